@@ -28,6 +28,9 @@ import com.example.arlocation.location.LocationMarker;
 import com.example.arlocation.location.LocationScene;
 import com.example.arlocation.location.rendering.LocationNode;
 import com.example.arlocation.location.rendering.LocationNodeRender;
+import com.example.arlocation.location.rendering.RenderablePool;
+import com.example.arlocation.location.rendering.ThrottledRender;
+import com.example.arlocation.location.sensor.LocationFix;
 import com.google.ar.core.Frame;
 import com.google.ar.core.Plane;
 import com.google.ar.core.Session;
@@ -39,21 +42,16 @@ import com.google.ar.sceneform.Node;
 import com.google.ar.sceneform.rendering.ModelRenderable;
 import com.google.ar.sceneform.rendering.ViewRenderable;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-
 
 public class MainActivity extends AppCompatActivity {
 
     private boolean installRequested;
-    private boolean hasFinishedLoadingRenderable = false;
     private boolean hasFinishedSetRenderable = false;
     
     private Snackbar loadingMessageSnackbar = null;
     private ArSceneView arSceneView;
-    // Renderables for this example
-    private ViewRenderable CCNURenderable;//华中师范大学的标识牌
-    private ViewRenderable WHURenderable;//武汉大学的标识牌
+    // Cards for this example, shared by the markers in view 标识牌 由可见的标识共用
+    private RenderablePool cardPool;
     // Our ARCore-Location scene
     private LocationScene locationScene;
     private TextView locationText;
@@ -71,52 +69,22 @@ public class MainActivity extends AppCompatActivity {
         arSceneView = findViewById(R.id.ar_scene_view);
         locationText = findViewById(R.id.tv_location);
 
-        // Build a renderable from a 2D View.
-        CompletableFuture<ViewRenderable> CCNUViewLayout =
-                ViewRenderable.builder()
-                        .setView(this, R.layout.card)
-                        .build();
-
-        CompletableFuture<ViewRenderable> WHUViewLayout =
-                ViewRenderable.builder()
-                        .setView(this, R.layout.card)
-                        .build();
-
-        CompletableFuture.allOf(
-                CCNUViewLayout,
-                WHUViewLayout)
-                .handle(
-                        (notUsed, throwable) -> {
-                            // When you build a Renderable, Sceneform loads its resources in the background while
-                            // returning a CompletableFuture. Call handle(), thenAccept(), or check isDone()
-                            // before calling get().
-                            if (throwable != null) {
-                                Utils.displayError(this, "Unable to load renderables", throwable);
-                                return null;
-                            }
-                            try {
-                                CCNURenderable = CCNUViewLayout.get();
-                                WHURenderable = WHUViewLayout.get();
-                                hasFinishedLoadingRenderable = true;
-
-                            } catch (InterruptedException | ExecutionException ex) {
-                                Utils.displayError(this, "Unable to load renderables", ex);
-                            }
-                            return null;
-                        });
+        // Renderables from a 2D View are built in the background and handed to markers as they
+        // get anchors. 后台构建标识牌 标识获得Anchor时分配
+        cardPool = new RenderablePool(this, R.layout.card);
+        cardPool.setOnBuiltListener(this::addTouchListener);
+        cardPool.prebuild(2);
 
         arSceneView
                 .getScene()
                 .addOnUpdateListener(
                         frameTime -> {
-                            //在模型加载完之后再进行接下来的操作
-                            if (!hasFinishedLoadingRenderable) {
-                                return;
-                            }
                             //新建我们继承的LocationScene对象
                             if (locationScene == null) {
                                 locationScene = new LocationScene(this, this, arSceneView);
+                                locationScene.setRenderablePool(cardPool);//标识牌按需分配
                                 locationScene.setOffsetOverlapping(false);//设置是否在重叠的模型上加上偏移量
+                                locationScene.setDiffRefreshing(true);//只重建位置变化的Anchor
                             }
                             //获取ArFrame
                             Frame frame = arSceneView.getArFrame();
@@ -125,6 +93,8 @@ public class MainActivity extends AppCompatActivity {
                             }
                             //当Frame处于跟踪状态再继续
                             if (frame.getCamera().getTrackingState() != TrackingState.TRACKING) {
+                                if (locationScene != null)
+                                    locationScene.processFrame(frame);//让场景知道跟踪已丢失 恢复后刷新Anchor
                                 return;
                             }
                             //如果locationScene不为空且还未放置模型
@@ -132,48 +102,17 @@ public class MainActivity extends AppCompatActivity {
                             {
                                 //如果当前设备的位置已经获取到
                                 if(this.locationScene.locationManager.currentLocation!=null) {
-                                    //创建标识华中师范大学的模型
-                                    LocationMarker CCNUMarker = new LocationMarker(
+                                    //创建标识华中师范大学的模型 并加入locationScene
+                                    locationScene.getMarkerRegistry().add(getCardMarker(
                                             114.3541910072,
                                             30.5180109898,
-                                            getViewRenderable(CCNURenderable)
-                                    );
-                                    //设置自定义的渲染事件来展示位置信息
-                                    CCNUMarker.setRenderEvent(new LocationNodeRender() {
-                                        @Override
-                                        public void render(LocationNode node) {
-                                            View eView = CCNURenderable.getView();
-                                            TextView distanceTextView = eView.findViewById(R.id.tv_message);
-                                            String renderInfo = "Central China Normal University"+"\n"
-                                                    +"Longitude:"+CCNUMarker.longitude+"\n"
-                                                    +"Latitude:"+CCNUMarker.latitude+"\n"
-                                                    +node.getDistanceInGPS() + "M";//显示模型与设备之间的距离
-                                            distanceTextView.setText(renderInfo);
-                                        }
-                                    });
-                                    //将模型加入locationScene
-                                    locationScene.mLocationMarkers.add(CCNUMarker);
+                                            "Central China Normal University"));
 
                                     //创建标识武汉大学的模型
-                                    LocationMarker WuHanMarker = new LocationMarker(
+                                    locationScene.getMarkerRegistry().add(getCardMarker(
                                             114.3637329340,
                                             30.5399015552,
-                                            getViewRenderable(WHURenderable)
-                                    );
-                                    WuHanMarker.setRenderEvent(new LocationNodeRender() {
-                                        @Override
-                                        public void render(LocationNode node) {
-                                            View eView = WHURenderable.getView();
-                                            TextView distanceTextView = eView.findViewById(R.id.tv_message);
-
-                                            String renderInfo = "Wuhan University"+"\n"
-                                                    +"Longitude:"+WuHanMarker.longitude+"\n"
-                                                    +"Latitude:"+WuHanMarker.latitude+"\n"
-                                                    +node.getDistanceInGPS() + "M";
-                                            distanceTextView.setText(renderInfo);
-                                        }
-                                    });
-                                    locationScene.mLocationMarkers.add(WuHanMarker);
+                                            "Wuhan University"));
                                     //模型已经放置完毕
                                     hasFinishedSetRenderable = true;
                                 }
@@ -183,13 +122,15 @@ public class MainActivity extends AppCompatActivity {
                                 locationScene.processFrame(frame);
                                 if(this.locationScene.locationManager.currentLocation!=null)
                                 {
+                                    LocationFix fix = this.locationScene.locationManager.currentFix;
                                     String deviceInfo = "WGS Longitude:"+this.locationScene.locationManager.currentLocation.getLongitude()+"\n"
                                             +"WGS Latitude:"+this.locationScene.locationManager.currentLocation.getLatitude()+"\n"
-                                            +"AMap Longitude:"+this.locationScene.locationManager.currentAmapLocation.getLongitude()+"\n"
-                                            +"AMap Latitude:"+this.locationScene.locationManager.currentAmapLocation.getLatitude()+"\n"
-                                            +"Location Type:"+this.locationScene.locationManager.currentAmapLocation.getLocationType()+"\n"
-                                        +"Accuracy:"+this.locationScene.locationManager.currentAmapLocation.getAccuracy()+"\n"
-                                        +"Address:"+this.locationScene.locationManager.currentAmapLocation.getAddress();
+                                            +"AMap Longitude:"+fix.longitude+"\n"
+                                            +"AMap Latitude:"+fix.latitude+"\n"
+                                            +"Location Type:"+fix.locationType+"\n"
+                                        +"Accuracy:"+fix.accuracy;
+                                    if(this.locationScene.locationManager.currentAmapLocation!=null)
+                                        deviceInfo += "\n"+"Address:"+this.locationScene.locationManager.currentAmapLocation.getAddress();
                                     locationText.setText(deviceInfo);
                                 }
 
@@ -208,13 +149,39 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Example node of a layout
+     * Example marker showing a card from the pool. The node gets its renderable when the
+     * marker is anchored, so the card is looked up on each render.
      *
      * @return
      */
-    private Node getViewRenderable(ViewRenderable renderable) {
-        Node base = new Node();
-        base.setRenderable(renderable);
+    private LocationMarker getCardMarker(double longitude, double latitude, String name) {
+        LocationMarker marker = new LocationMarker(longitude, latitude);
+        locationScene.setNode(marker, new Node());
+        //设置自定义的渲染事件来展示位置信息 只在距离变化时更新标识牌
+        locationScene.setRenderEvent(marker, new ThrottledRender(new LocationNodeRender() {
+            @Override
+            public void render(LocationNode node) {
+                ViewRenderable card = (ViewRenderable) locationScene.getNode(marker).getRenderable();
+                if (card == null) {
+                    //标识牌尚未构建好 下一帧再试
+                    ((ThrottledRender) locationScene.getRenderEvent(marker)).invalidate();
+                    return;
+                }
+                TextView distanceTextView = card.getView().findViewById(R.id.tv_message);
+                String renderInfo = name+"\n"
+                        +"Longitude:"+marker.longitude+"\n"
+                        +"Latitude:"+marker.latitude+"\n"
+                        +node.getDistanceInGPS() + "M";//显示模型与设备之间的距离
+                distanceTextView.setText(renderInfo);
+            }
+        }));
+        return marker;
+    }
+
+    /**
+     * Example listeners for a card of a layout
+     */
+    private void addTouchListener(ViewRenderable renderable) {
         Context c = this;
         // Add  listeners etc here
         View eView = renderable.getView();
@@ -224,7 +191,6 @@ public class MainActivity extends AppCompatActivity {
                     .show();
             return false;
         });
-        return base;
     }
 
     /***
@@ -307,6 +273,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        if (locationScene != null) {
+            locationScene.destroy();
+        }
         arSceneView.destroy();
     }
 
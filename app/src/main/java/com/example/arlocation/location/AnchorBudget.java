@@ -0,0 +1,161 @@
+package com.example.arlocation.location;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * Caps the number of live anchors 限制同时存在的Anchor数量
+ * <p>
+ * ARCore tracking gets slower as anchors accumulate. When a refresh wants more anchors than
+ * the budget allows, markers in view come first, then markers seen recently, then markers
+ * that already hold an anchor, most recently seen first, then the rest. Within each group the
+ * nearest markers win. Anchors of markers outside the refresh are evicted least recently seen
+ * first until the budget is met.
+ */
+public class AnchorBudget {
+
+    private static final int TIER_IN_VIEW = 0;
+    private static final int TIER_RECENT = 1;
+    private static final int TIER_ANCHORED = 2;
+    private static final int TIER_OTHER = 3;
+    // Sort key layout: tier, secondary order, batch index 排序键: 分组 次序 下标
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final long MAX_SECONDARY = (1L << 26) - 1;
+
+    private int maxAnchors = 30;
+    private long recentMillis = 3000;
+
+    // Markers holding an anchor, least recently seen first LRU顺序
+    private final LinkedHashMap<LocationMarker, LocationMarker> anchored = new LinkedHashMap<>(64, 0.75F, true);
+    private boolean[] selected = new boolean[0];
+    private long[] keys = new long[0];
+    private int pass = 0;
+
+    /**
+     * Choose which markers of a refresh get an anchor.
+     *
+     * @param inView - whether each marker of the batch is in front of the camera
+     * @param now    - time in milliseconds
+     * @return - true for each marker of the batch that should hold an anchor. The array is
+     * reused by the next call.
+     */
+    public boolean[] select(PoseBatch batch, boolean[] inView, long now) {
+        int count = batch.size();
+        pass++;
+        if (selected.length < count) {
+            selected = new boolean[count];
+            keys = new long[count];
+        }
+        for (int i = 0; i < count; i++)
+            batch.getMarker(i).budgetPass = pass;
+
+        if (maxAnchors <= 0 || count <= maxAnchors || count > INDEX_MASK) {
+            Arrays.fill(selected, 0, count, true);
+            return selected;
+        }
+
+        for (int i = 0; i < count; i++) {
+            LocationMarker marker = batch.getMarker(i);
+            long distance = batch.getPose(i).markerDistance;
+            long tier;
+            long secondary;
+            if (inView[i]) {
+                tier = TIER_IN_VIEW;
+                secondary = distance;
+            } else if (marker.lastSeen != 0 && now - marker.lastSeen < recentMillis) {
+                tier = TIER_RECENT;
+                secondary = distance;
+            } else if (anchored.containsKey(marker)) {
+                // Placed but not seen since still counts over older anchors 新放置的Anchor优先于旧的
+                tier = TIER_ANCHORED;
+                secondary = now - Math.max(marker.lastSeen, marker.anchoredAt);
+            } else {
+                tier = TIER_OTHER;
+                secondary = distance;
+            }
+            secondary = Math.max(0, Math.min(secondary, MAX_SECONDARY));
+            keys[i] = (tier << (INDEX_BITS + 26)) | (secondary << INDEX_BITS) | i;
+        }
+        Arrays.sort(keys, 0, count);
+        Arrays.fill(selected, 0, count, false);
+        for (int k = 0; k < maxAnchors; k++)
+            selected[(int) (keys[k] & INDEX_MASK)] = true;
+        return selected;
+    }
+
+    /**
+     * The next marker whose anchor should be released to stay within the budget, or null.
+     * Markers of the last selected batch are never returned.
+     */
+    public LocationMarker nextEviction() {
+        if (maxAnchors <= 0 || anchored.size() <= maxAnchors)
+            return null;
+        for (LocationMarker marker : anchored.keySet()) {
+            if (marker.budgetPass != pass)
+                return marker;
+        }
+        return null;
+    }
+
+    /**
+     * [marker] got an anchor. This doesn't count as seen, only {@link #touch} does.
+     */
+    public void onAnchored(LocationMarker marker, long now) {
+        marker.anchoredAt = now;
+        anchored.put(marker, marker);
+    }
+
+    public void onReleased(LocationMarker marker) {
+        anchored.remove(marker);
+    }
+
+    /**
+     * The marker's node was in view on this frame
+     */
+    public void touch(LocationMarker marker, long now) {
+        marker.lastSeen = now;
+        anchored.get(marker);
+    }
+
+    /**
+     * Copy of the markers currently holding an anchor, least recently seen first
+     */
+    public LocationMarker[] getAnchoredMarkers() {
+        return anchored.keySet().toArray(new LocationMarker[0]);
+    }
+
+    public void clear() {
+        anchored.clear();
+    }
+
+    /**
+     * Number of markers currently holding an anchor
+     */
+    public int getAnchoredCount() {
+        return anchored.size();
+    }
+
+    public int getMaxAnchors() {
+        return maxAnchors;
+    }
+
+    /**
+     * Most anchors to keep at once, 0 for no limit. Default 30
+     */
+    public void setMaxAnchors(int maxAnchors) {
+        this.maxAnchors = maxAnchors;
+    }
+
+    public long getRecentMillis() {
+        return recentMillis;
+    }
+
+    /**
+     * How long in milliseconds a marker counts as recently seen after leaving the view.
+     * Default 3000
+     */
+    public void setRecentMillis(long recentMillis) {
+        this.recentMillis = recentMillis;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.arlocation.location;
+
+/**
+ * Stands in for several markers in the same direction and distance band 代表同一方向和距离区间内的多个标识
+ * <p>
+ * Created by {@link MarkerClusterer} and placed like any other marker. Its node comes from the
+ * {@link ClusterNodeFactory} set on the LocationScene. A cluster keeps its identity across
+ * refreshes while its bucket stays occupied, so its anchor isn't re-created needlessly.
+ */
+public class ClusterMarker extends LocationMarker {
+
+    private volatile LocationMarker[] members = new LocationMarker[0];
+
+    ClusterMarker() {
+        super(0, 0);
+    }
+
+    void setMembers(LocationMarker[] members) {
+        double latitude = 0;
+        double longitude = 0;
+        for (LocationMarker member : members) {
+            latitude += member.latitude;
+            longitude += member.longitude;
+        }
+        this.latitude = latitude / members.length;
+        this.longitude = longitude / members.length;
+        this.members = members;
+    }
+
+    /**
+     * Markers merged into this cluster, as of the last refresh
+     */
+    public LocationMarker[] getMembers() {
+        return members;
+    }
+
+    /**
+     * Number of markers merged into this cluster
+     */
+    public int getSize() {
+        return members.length;
+    }
+}
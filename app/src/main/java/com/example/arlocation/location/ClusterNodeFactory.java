@@ -0,0 +1,14 @@
+package com.example.arlocation.location;
+
+import com.google.ar.sceneform.Node;
+
+/**
+ * Creates the node shown for a cluster of markers 为标识聚合创建显示结点
+ * <p>
+ * Called on the UI thread the first time a cluster is placed. The factory may also set a render
+ * event on the cluster with {@link LocationScene#setRenderEvent} to show
+ * {@link ClusterMarker#getSize()}.
+ */
+public interface ClusterNodeFactory {
+    Node createNode(ClusterMarker cluster);
+}
@@ -0,0 +1,142 @@
+package com.example.arlocation.location;
+
+import java.util.Arrays;
+
+/**
+ * Stacks overlapping marker labels into rows 将重叠的标识牌分层摆放
+ * <p>
+ * Labels are laid out by bearing around the device, so the result does not depend on where the
+ * camera is pointing and only needs to be recomputed once per anchor refresh. With
+ * FIXED_SIZE_ON_SCREEN scaling a label covers the same angle at any distance, so its width and
+ * height are given in degrees.
+ * <p>
+ * Nearer labels are placed first and each label keeps its previous row while that row is still
+ * free, so rows don't jump around between refreshes. Occupied rows are kept in a grid of bearing
+ * bins at least one label wide, so a label is only tested against the labels in its own and the
+ * two neighbouring bins.
+ * Not thread safe.
+ */
+public class LabelPlacer {
+
+    private float labelWidth = 20F; // degrees
+    private float labelHeight = 12F; // degrees
+    private int maxRows = 4;
+
+    // Placed labels per row and bearing bin, as linked lists 每行每个方向区间中已摆放的标识牌
+    private int[] cellHead = new int[0];
+    private int[] next = new int[0];
+    private long[] order = new long[0];
+
+    /**
+     * Assign a row to every label.
+     *
+     * @param bearings  - bearing from north of each label in degrees
+     * @param distances - distance of each label, only used for priority
+     * @param rows      - the previous row of each label or -1, replaced by the new row
+     * @param count     - number of labels
+     */
+    public void place(float[] bearings, int[] distances, int[] rows, int count) {
+        int bins = Math.max(1, (int) (360 / labelWidth));
+        float binWidth = 360F / bins;
+        if (cellHead.length < maxRows * bins)
+            cellHead = new int[maxRows * bins];
+        Arrays.fill(cellHead, 0, maxRows * bins, -1);
+        if (next.length < count) {
+            next = new int[count];
+            order = new long[count];
+        }
+
+        // Nearest first 近处的标识优先
+        for (int i = 0; i < count; i++)
+            order[i] = ((long) Math.max(distances[i], 0) << 32) | i;
+        Arrays.sort(order, 0, count);
+
+        for (int k = 0; k < count; k++) {
+            int i = (int) order[k];
+            float bearing = normalize(bearings[i]);
+            int bin = Math.min((int) (bearing / binWidth), bins - 1);
+
+            int row = rows[i];
+            if (row < 0 || row >= maxRows || !fits(bearings, bearing, row, bin, bins)) {
+                row = maxRows - 1; // every row is taken, the top one overlaps 所有行都被占用时放在最上层
+                for (int r = 0; r < maxRows; r++) {
+                    if (fits(bearings, bearing, r, bin, bins)) {
+                        row = r;
+                        break;
+                    }
+                }
+            }
+
+            rows[i] = row;
+            int cell = row * bins + bin;
+            next[i] = cellHead[cell];
+            cellHead[cell] = i;
+        }
+    }
+
+    private boolean fits(float[] bearings, float bearing, int row, int bin, int bins) {
+        // With fewer than three bins the neighbours are the bins themselves
+        int first = bins < 3 ? 0 : bin - 1;
+        int last = bins < 3 ? bins - 1 : bin + 1;
+        for (int b = first; b <= last; b++) {
+            int cell = row * bins + (b + bins) % bins;
+            for (int j = cellHead[cell]; j != -1; j = next[j]) {
+                float difference = Math.abs(normalize(bearings[j]) - bearing);
+                if (Math.min(difference, 360 - difference) < labelWidth)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static float normalize(float bearing) {
+        bearing %= 360;
+        return bearing < 0 ? bearing + 360 : bearing;
+    }
+
+    /**
+     * Height in metres to raise a label in [row] at [renderDistance] so it clears the rows below
+     */
+    public float heightOf(int row, int renderDistance) {
+        if (row <= 0)
+            return 0;
+        return renderDistance * (float) Math.tan(Math.toRadians(row * labelHeight));
+    }
+
+    public float getLabelWidth() {
+        return labelWidth;
+    }
+
+    /**
+     * Angular width of a label in degrees. Default 20, a 180dp card at FIXED_SIZE_ON_SCREEN scale
+     */
+    public void setLabelWidth(float labelWidth) {
+        if (labelWidth <= 0 || labelWidth > 360)
+            throw new IllegalArgumentException("labelWidth must be in (0, 360]");
+        this.labelWidth = labelWidth;
+    }
+
+    public float getLabelHeight() {
+        return labelHeight;
+    }
+
+    /**
+     * Angular height of a row in degrees. Default 12
+     */
+    public void setLabelHeight(float labelHeight) {
+        this.labelHeight = labelHeight;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Most rows to stack labels into. Default 4
+     */
+    public void setMaxRows(int maxRows) {
+        if (maxRows < 1)
+            throw new IllegalArgumentException("maxRows must be at least 1");
+        this.maxRows = maxRows;
+    }
+}
@@ -0,0 +1,523 @@
+package com.example.arlocation.location;
+
+import com.example.arlocation.location.engine.AnchorFactory;
+import com.example.arlocation.location.engine.CameraPose;
+import com.example.arlocation.location.engine.Clock;
+import com.example.arlocation.location.engine.Scheduler;
+import com.example.arlocation.location.rendering.ViewCone;
+import com.example.arlocation.location.stats.FrameStats;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides when to refresh, computes marker poses and keeps anchors in place 标识放置引擎
+ * <p>
+ * This is the placement and refresh logic of LocationScene without Android, ARCore or
+ * Sceneform. The camera, anchors, threads and time come in through small interfaces, and
+ * nodes are left to the {@link Listener}, so a scene can also run on a plain JVM with the
+ * in-memory stand-ins of the engine package. Call everything except the registry from the
+ * frame thread.
+ *
+ * @param <A> - the anchor type of the AnchorFactory
+ */
+public class LocationEngine<A> {
+
+    /**
+     * Keeps whatever shows a marker in step with its anchor. Called on the frame thread.
+     */
+    public interface Listener<A> {
+        /**
+         * Called before [marker] gets an anchor
+         *
+         * @return - false to leave the marker without an anchor for now
+         */
+        boolean onPrepare(LocationMarker marker);
+
+        /**
+         * [marker] was placed on [anchor]. [previous] is detached right after, null if the
+         * marker had no anchor.
+         */
+        void onAnchored(LocationMarker marker, A anchor, A previous, MarkerPose pose, float height);
+
+        /**
+         * [marker] keeps its anchor, but its GPS distance or height may have changed
+         */
+        void onUpdated(LocationMarker marker, A anchor, int distance, float height);
+
+        /**
+         * [marker] lost its anchor, which is detached right after
+         */
+        void onReleased(LocationMarker marker, A anchor);
+
+        /**
+         * A refresh was applied, [created] of [size] markers got new anchors
+         */
+        void onBatchApplied(int created, int size);
+
+        /**
+         * Computing or applying a refresh failed. Markers keep the anchors they had.
+         */
+        void onError(RuntimeException error);
+    }
+
+    private final CameraPose camera;
+    private final AnchorFactory<A> anchorFactory;
+    private final Scheduler scheduler;
+    private final Clock clock;
+    private Listener<A> listener;
+
+    private final MarkerRegistry markerRegistry = new MarkerRegistry();
+    private final MarkerPlacer markerPlacer = new MarkerPlacer();
+    private final RefreshScheduler refreshScheduler = new RefreshScheduler();
+    private final AnchorBudget anchorBudget = new AnchorBudget();
+    private final ViewCone viewCone = new ViewCone();
+    private final FrameStats frameStats = new FrameStats();
+    // Anchor of each placed marker, only touched on the frame thread 已放置标识的Anchor
+    private final IdentityHashMap<LocationMarker, A> anchors = new IdentityHashMap<>();
+
+    // Limit of where to draw markers within AR scene 在AR Scene中绘制标识的距离范围
+    private int distanceLimit = 20;
+    private boolean offsetOverlapping = false;
+    // Bearing adjustment. Can be set to calibrate with true north
+    private int bearingAdjustment = 0;
+    // Only re-anchor markers whose target pose moved beyond the tolerances 仅重建位置变化超过阈值的Anchor
+    private boolean diffRefreshing = false;
+    private int diffDistanceTolerance = 2; // metres
+    private float diffBearingTolerance = 2F; // degrees
+    private boolean anchorsNeedRefresh = true;
+    private boolean fullRefreshRequired = true;
+
+    // Latest location and orientation 最新的位置和朝向
+    private boolean hasLocation = false;
+    private double latitude;
+    private double longitude;
+    private float accuracy;
+    private float heading;
+    private float pitch;
+
+    private final AtomicReference<PoseBatch> completedBatch = new AtomicReference<>();
+    private boolean poseJobRunning = false;
+    private int markerGeneration = 0;
+    private int poseJobGeneration = 0;
+    private int indexedVersion = -1;
+    private MarkerStore markerStore;
+    private MarkerStore indexedStore;
+    private int indexedStoreVersion = -1;
+    private boolean closed = false;
+
+    private boolean[] inView = new boolean[0];
+
+    public LocationEngine(CameraPose camera, AnchorFactory<A> anchorFactory, Scheduler scheduler, Clock clock) {
+        this.camera = camera;
+        this.anchorFactory = anchorFactory;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        markerPlacer.setFrameStats(frameStats);
+        markerRegistry.addListener((added, removed, version) ->
+                scheduler.runOnFrameThread(() -> onMarkersChanged(removed)));
+    }
+
+    public void setListener(Listener<A> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Latest location in WGS-84
+     *
+     * @param accuracy - metres, 0 if unknown
+     */
+    public void setLocation(double latitude, double longitude, float accuracy) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+        hasLocation = true;
+    }
+
+    /**
+     * Latest device heading and pitch in degrees
+     */
+    public void setOrientation(float heading, float pitch) {
+        this.heading = heading;
+        this.pitch = pitch;
+    }
+
+    /**
+     * Apply a finished refresh and start the next one when due. Call once per frame.
+     */
+    public void processFrame() {
+        if (closed)
+            return;
+        if (!camera.isTracking()) {
+            // No anchors can be placed, refresh as soon as tracking is back 跟踪丢失
+            refreshScheduler.onTrackingLost();
+            return;
+        }
+
+        PoseBatch batch = completedBatch.getAndSet(null);
+        if (batch != null) {
+            poseJobRunning = false;
+            if (poseJobGeneration == markerGeneration) {
+                applyPoseBatch(batch);
+            } else {
+                // The poses are stale, but the placer has already let go of the hidden markers
+                // 位置已过期 但被隐藏的标识仍需释放
+                for (LocationMarker marker : batch.getHidden())
+                    releaseAnchor(marker);
+            }
+        }
+
+        if (poseJobRunning || !hasLocation)
+            return;
+
+        long now = clock.uptimeMillis();
+        if (!anchorsNeedRefresh) {
+            int reasons = refreshScheduler.check(now, latitude, longitude, accuracy, heading);
+            if (reasons == 0)
+                return;
+            // Anchors placed before tracking was lost may have drifted 跟踪丢失前的Anchor可能已漂移
+            if ((reasons & RefreshScheduler.REASON_TRACKING) != 0)
+                fullRefreshRequired = true;
+        }
+        anchorsNeedRefresh = false;
+
+        // Copy everything the pose thread needs, it must not touch engine state 复制后台计算所需的数据
+        final List<LocationMarker> markers;
+        final MarkerStore store = markerStore;
+        int storeVersion = store == null ? -1 : store.getVersion();
+        MarkerRegistry.Snapshot snapshot = markerRegistry.getSnapshot();
+        if (indexedVersion != snapshot.version || indexedStore != store || indexedStoreVersion != storeVersion) {
+            markers = snapshot.asList();
+            indexedVersion = snapshot.version;
+            indexedStore = store;
+            indexedStoreVersion = storeVersion;
+        } else {
+            markers = null;
+        }
+        final double latitude = this.latitude;
+        final double longitude = this.longitude;
+        final float heading = this.heading;
+        final float pitch = this.pitch;
+        final int adjustment = bearingAdjustment;
+        final int limit = distanceLimit;
+        final boolean placeLabels = offsetOverlapping;
+        final boolean fullRefresh = fullRefreshRequired;
+        fullRefreshRequired = false;
+        // Poses are relative to the heading read now, so anchors are placed from this camera pose
+        // 位姿基于当前朝向计算 Anchor也相对当前相机位姿放置
+        final float[] cameraTranslation = new float[3];
+        final float[] cameraRotation = new float[4];
+        camera.getPose(cameraTranslation, cameraRotation);
+        refreshScheduler.onRefresh(now, latitude, longitude, accuracy, heading);
+
+        poseJobRunning = true;
+        poseJobGeneration = markerGeneration;
+        scheduler.runInBackground(() -> {
+            PoseBatch result;
+            try {
+                if (markers != null)
+                    markerPlacer.setMarkers(markers, store);
+                result = markerPlacer.place(latitude, longitude, heading, pitch, adjustment, limit,
+                        placeLabels, fullRefresh, cameraTranslation, cameraRotation);
+            } catch (RuntimeException e) {
+                scheduler.runOnFrameThread(() -> reportError(e));
+                result = new PoseBatch(new LocationMarker[0], new MarkerPose[0], new float[0],
+                        new LocationMarker[0], fullRefresh, cameraTranslation, cameraRotation);
+            }
+            completedBatch.set(result);
+        });
+    }
+
+    /**
+     * Move the anchors of a computed batch into place. Runs on the frame thread.
+     */
+    private void applyPoseBatch(PoseBatch batch) {
+        long start = frameStats.start();
+        int created = 0;
+
+        // Camera height when the refresh started 刷新开始时的相机高度
+        float[] cameraTranslation = batch.getCameraTranslation();
+        float[] cameraRotation = batch.getCameraRotation();
+        float y = cameraTranslation[1];
+
+        // Markers merged into a cluster and clusters that split up 移除被聚合的标识和已解散的聚合
+        for (LocationMarker marker : batch.getHidden())
+            releaseAnchor(marker);
+
+        // Markers roughly in front of the camera get anchors first 相机前方的标识优先
+        long now = clock.uptimeMillis();
+        if (inView.length < batch.size())
+            inView = new boolean[batch.size()];
+        float halfAngle = viewCone.getFieldOfView() / 2 + viewCone.getMargin();
+        for (int i = 0; i < batch.size(); i++) {
+            MarkerPose pose = batch.getPose(i);
+            inView[i] = Math.abs(Math.toDegrees(Math.atan2(pose.x, -pose.z))) <= halfAngle;
+        }
+        boolean[] keep = anchorBudget.select(batch, inView, now);
+
+        for (int i = 0; i < batch.size(); i++) {
+            LocationMarker marker = batch.getMarker(i);
+            MarkerPose pose = batch.getPose(i);
+            if (!keep[i]) {
+                releaseAnchor(marker);
+                continue;
+            }
+            try {
+                float height = marker.getHeight() + batch.getLabelHeight(i);
+                A previous = anchors.get(marker);
+                // Cache the GPS distance for per-frame scaling 缓存GPS距离供每帧缩放使用
+                if (previous != null && listener != null)
+                    listener.onUpdated(marker, previous, pose.markerDistance, height);
+
+                if (diffRefreshing && !batch.fullRefresh && isAnchorCurrent(marker, pose.markerDistance, pose.gpsBearing)) {
+                    // The marker hasn't moved enough to justify a new anchor 位置变化不大 保留原Anchor
+                    continue;
+                }
+
+                if (listener != null && !listener.onPrepare(marker))
+                    continue;
+
+                // Don't replace the old anchor until the new one exists 新Anchor创建成功后再替换
+                A anchor = anchorFactory.createAnchor(cameraTranslation, cameraRotation,
+                        pose.x, y + pose.heightAdjustment, pose.z);
+                if (anchor == null)
+                    continue;
+
+                created++;
+                anchors.put(marker, anchor);
+                marker.anchoredDistance = pose.markerDistance;
+                marker.anchoredBearing = pose.gpsBearing;
+                anchorBudget.onAnchored(marker, now);
+                if (listener != null)
+                    listener.onAnchored(marker, anchor, previous, pose, height);
+                if (previous != null)
+                    anchorFactory.detach(previous);
+            } catch (RuntimeException e) {
+                reportError(e);
+            }
+        }
+
+        // Anchors outside this refresh, least recently seen first 超出预算时按LRU释放
+        LocationMarker evicted;
+        while ((evicted = anchorBudget.nextEviction()) != null)
+            releaseAnchor(evicted);
+
+        frameStats.stop(FrameStats.Stage.ANCHOR_UPDATE, start);
+        frameStats.recordAnchorsCreated(created);
+        if (listener != null)
+            listener.onBatchApplied(created, batch.size());
+    }
+
+    private void reportError(RuntimeException error) {
+        if (listener != null)
+            listener.onError(error);
+    }
+
+    private void releaseAnchor(LocationMarker marker) {
+        anchorBudget.onReleased(marker);
+        A anchor = anchors.remove(marker);
+        if (anchor == null)
+            return;
+        if (listener != null)
+            listener.onReleased(marker, anchor);
+        anchorFactory.detach(anchor);
+    }
+
+    /**
+     * Whether the marker's anchor was placed close enough to its current target pose.
+     * Distances beyond what affects placement are treated as equal.
+     */
+    private boolean isAnchorCurrent(LocationMarker marker, int markerDistance, float gpsBearing) {
+        if (!anchors.containsKey(marker))
+            return false;
+
+        int cap = Math.max(distanceLimit, 500);
+        int distanceChange = Math.abs(Math.min(markerDistance, cap) - Math.min(marker.anchoredDistance, cap));
+        float bearingChange = Math.abs(((gpsBearing - marker.anchoredBearing) % 360 + 540) % 360 - 180);
+        return distanceChange <= diffDistanceTolerance && bearingChange <= diffBearingTolerance;
+    }
+
+    // Runs on the frame thread after every change to the registry 标识变化后在帧线程处理
+    private void onMarkersChanged(LocationMarker[] removed) {
+        if (removed.length > 0) {
+            for (LocationMarker marker : removed)
+                releaseAnchor(marker);
+            // Poses still being computed may include removed markers 丢弃可能包含已移除标识的计算结果
+            markerGeneration++;
+        }
+        anchorsNeedRefresh = true;
+    }
+
+    /**
+     * Remove all markers, detach the MarkerStore and release every anchor, including those of
+     * clusters and store markers. The store itself is left as it is.
+     */
+    public void clearMarkers() {
+        markerRegistry.clear();
+        markerStore = null;
+        for (LocationMarker marker : anchorBudget.getAnchoredMarkers())
+            releaseAnchor(marker);
+        // Poses still being computed belong to the old markers 丢弃旧标识的计算结果
+        markerGeneration++;
+        refreshMarkerIndex();
+    }
+
+    /**
+     * Force anchors to be re-calculated
+     */
+    public void refreshAnchors() {
+        anchorsNeedRefresh = true;
+    }
+
+    /**
+     * Force every anchor to be re-created on the next refresh, even when diff refreshing
+     */
+    public void refreshAllAnchors() {
+        fullRefreshRequired = true;
+        anchorsNeedRefresh = true;
+    }
+
+    /**
+     * Force the marker index to be rebuilt on the next refresh.
+     * Adding or removing markers is picked up automatically, but this must be
+     * called after changing a marker's coordinates or render distance in place.
+     */
+    public void refreshMarkerIndex() {
+        indexedVersion = -1;
+        anchorsNeedRefresh = true;
+    }
+
+    /**
+     * The anchor [marker] is placed on, or null. Call from the frame thread.
+     */
+    public A getAnchor(LocationMarker marker) {
+        return anchors.get(marker);
+    }
+
+    public MarkerRegistry getMarkerRegistry() {
+        return markerRegistry;
+    }
+
+    public MarkerStore getMarkerStore() {
+        return markerStore;
+    }
+
+    /**
+     * Place markers from a compact store alongside the marker registry, null to remove them
+     */
+    public void setMarkerStore(MarkerStore markerStore) {
+        this.markerStore = markerStore;
+        anchorsNeedRefresh = true;
+    }
+
+    public void setClusteringEnabled(boolean clusteringEnabled) {
+        runOnPoseThread(() -> markerPlacer.setClusteringEnabled(clusteringEnabled));
+        anchorsNeedRefresh = true;
+    }
+
+    /**
+     * Markers closer than this many metres are never clustered. Default 300
+     */
+    public void setClusterSplitDistance(int splitDistance) {
+        runOnPoseThread(() -> markerPlacer.getClusterer().setSplitDistance(splitDistance));
+        anchorsNeedRefresh = true;
+    }
+
+    /**
+     * Size of one label for overlap checks, in degrees as seen from the device
+     */
+    public void setLabelSize(float width, float height) {
+        // The placer is only touched from the pose thread 仅在后台线程访问
+        runOnPoseThread(() -> {
+            markerPlacer.getLabelPlacer().setLabelWidth(width);
+            markerPlacer.getLabelPlacer().setLabelHeight(height);
+        });
+        anchorsNeedRefresh = true;
+    }
+
+    private void runOnPoseThread(Runnable task) {
+        // The scheduler may already be shut down 调度器可能已关闭
+        if (!closed)
+            scheduler.runInBackground(task);
+    }
+
+    /**
+     * Stop refreshing and handing work to the scheduler, e.g. before shutting the scheduler
+     * down. Settings can still be changed afterwards but have no effect.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public int getDistanceLimit() {
+        return distanceLimit;
+    }
+
+    public void setDistanceLimit(int distanceLimit) {
+        this.distanceLimit = distanceLimit;
+        fullRefreshRequired = true;
+    }
+
+    public boolean shouldOffsetOverlapping() {
+        return offsetOverlapping;
+    }
+
+    public void setOffsetOverlapping(boolean offsetOverlapping) {
+        this.offsetOverlapping = offsetOverlapping;
+        anchorsNeedRefresh = true;
+    }
+
+    public int getBearingAdjustment() {
+        return bearingAdjustment;
+    }
+
+    public void setBearingAdjustment(int bearingAdjustment) {
+        this.bearingAdjustment = bearingAdjustment;
+        fullRefreshRequired = true;
+        anchorsNeedRefresh = true;
+    }
+
+    public boolean diffRefreshing() {
+        return diffRefreshing;
+    }
+
+    public void setDiffRefreshing(boolean diffRefreshing) {
+        this.diffRefreshing = diffRefreshing;
+    }
+
+    public int getDiffDistanceTolerance() {
+        return diffDistanceTolerance;
+    }
+
+    public void setDiffDistanceTolerance(int diffDistanceTolerance) {
+        this.diffDistanceTolerance = diffDistanceTolerance;
+    }
+
+    public float getDiffBearingTolerance() {
+        return diffBearingTolerance;
+    }
+
+    public void setDiffBearingTolerance(float diffBearingTolerance) {
+        this.diffBearingTolerance = diffBearingTolerance;
+    }
+
+    public RefreshScheduler getRefreshScheduler() {
+        return refreshScheduler;
+    }
+
+    public AnchorBudget getAnchorBudget() {
+        return anchorBudget;
+    }
+
+    /**
+     * Field of view used to prioritize markers, shared with culling
+     */
+    public ViewCone getViewCone() {
+        return viewCone;
+    }
+
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+}
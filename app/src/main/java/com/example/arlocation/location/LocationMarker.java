@@ -1,34 +1,48 @@
 package com.example.arlocation.location;
 
-import com.example.arlocation.location.rendering.LocationNode;
-import com.example.arlocation.location.rendering.LocationNodeRender;
-import com.google.ar.sceneform.Node;
-
+/**
+ * A point of interest to place in the AR scene 需要在AR中放置的标识
+ * <p>
+ * Plain Java, so the placement classes can run without Sceneform. The Node that shows the
+ * marker and its render event are set on the LocationScene, see LocationScene.setNode.
+ */
 public class LocationMarker {
 
     // Location in real-world terms 实地经纬度
     public double longitude;
     public double latitude;
 
-    // Location in AR terms AR中的位置结点
-    public LocationNode anchorNode;
-
-    // Node to render AR要渲染的结点
-    public Node node;
+    // Id in the MarkerStore this marker was materialized from, -1 if none 所属MarkerStore中的编号
+    int storeId = -1;
+    // Row assigned by LabelPlacer on the last refresh, -1 if none 上次刷新分配的标识牌行号
+    int labelRow = -1;
+    // GPS distance and bearing the marker's anchor was placed with 放置Anchor时的距离和方向
+    int anchoredDistance;
+    float anchoredBearing;
+    // Last time the marker's node was in view, when it got its anchor, and the AnchorBudget pass
+    // it was part of 上次可见时间和放置时间
+    long lastSeen = 0;
+    long anchoredAt = 0;
+    int budgetPass = 0;
 
-    // Called on each frame if not null AR中的渲染事件
-    private LocationNodeRender renderEvent;
     private float scaleModifier = 1F;
     private float height = 0F;
     private int onlyRenderWhenWithin = Integer.MAX_VALUE;
+    private float geofenceRadius = 0F;
     private ScalingMode scalingMode = ScalingMode.FIXED_SIZE_ON_SCREEN;
     private float gradualScalingMinScale = 0.8F;
     private float gradualScalingMaxScale = 1.4F;
 
-    public LocationMarker(double longitude, double latitude, Node node) {
+    public LocationMarker(double longitude, double latitude) {
         this.longitude = longitude;
         this.latitude = latitude;
-        this.node = node;
+    }
+
+    /**
+     * Id of this marker in its MarkerStore, or -1 if it wasn't created by a store
+     */
+    public int getStoreId() {
+        return storeId;
     }
 
     public float getGradualScalingMinScale() {
@@ -65,6 +79,25 @@ public class LocationMarker {
         this.onlyRenderWhenWithin = onlyRenderWhenWithin;
     }
 
+    /**
+     * Distance within which GeofenceEngine reports this marker as entered
+     *
+     * @return - metres, 0 to use the engine's radius
+     */
+    public float getGeofenceRadius() {
+        return geofenceRadius;
+    }
+
+    /**
+     * Distance within which GeofenceEngine reports this marker as entered. Default 0, the
+     * engine's radius
+     *
+     * @param geofenceRadius - metres
+     */
+    public void setGeofenceRadius(float geofenceRadius) {
+        this.geofenceRadius = geofenceRadius;
+    }
+
     /**
      * Height based on camera height
      *
@@ -119,22 +152,6 @@ public class LocationMarker {
         this.scaleModifier = scaleModifier;
     }
 
-    /**
-     * Called on each frame
-     *
-     * @return - LocationNodeRender (event)
-     */
-    public LocationNodeRender getRenderEvent() {
-        return renderEvent;
-    }
-
-    /**
-     * Called on each frame.
-     */
-    public void setRenderEvent(LocationNodeRender renderEvent) {
-        this.renderEvent = renderEvent;
-    }
-
     public enum ScalingMode {
         FIXED_SIZE_ON_SCREEN,
         NO_SCALING,
@@ -3,19 +3,49 @@ package com.example.arlocation.location;
 import android.app.Activity;
 import android.content.Context;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
-
+import android.widget.TextView;
+
+import com.example.arlocation.location.engine.AnchorFactory;
+import com.example.arlocation.location.engine.CameraPose;
+import com.example.arlocation.location.engine.Scheduler;
+import com.example.arlocation.location.geofence.GeofenceEngine;
+import com.example.arlocation.location.geofence.GeofenceListener;
+import com.example.arlocation.location.poi.PoiBatch;
+import com.example.arlocation.location.poi.PoiImportListener;
+import com.example.arlocation.location.poi.PoiImporter;
+import com.example.arlocation.location.poi.PoiMarkerFactory;
 import com.example.arlocation.location.rendering.LocationNode;
+import com.example.arlocation.location.rendering.LocationNodePool;
+import com.example.arlocation.location.rendering.LocationNodeRender;
+import com.example.arlocation.location.rendering.RenderablePool;
+import com.example.arlocation.location.rendering.ViewCone;
 import com.example.arlocation.location.sensor.DeviceOrientation;
+import com.example.arlocation.location.sensor.LocationFix;
+import com.example.arlocation.location.sensor.LocationFilter;
 import com.example.arlocation.location.sensor.LocationManager;
-import com.example.arlocation.location.utils.LocationUtils;
+import com.example.arlocation.location.stats.FrameStats;
+import com.example.arlocation.location.stats.StatsOverlay;
+import com.example.arlocation.location.trace.TraceListener;
+import com.example.arlocation.location.trace.TraceRecorder;
+import com.example.arlocation.location.trace.TraceReplayer;
 import com.google.ar.core.Anchor;
 import com.google.ar.core.Frame;
 import com.google.ar.core.Pose;
 import com.google.ar.core.Session;
+import com.google.ar.core.TrackingState;
 import com.google.ar.sceneform.ArSceneView;
+import com.google.ar.sceneform.Node;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class LocationScene {
 
@@ -25,37 +55,70 @@ public class LocationScene {
     public DeviceOrientation deviceOrientation;
     public Context mContext;
     public Activity mActivity;
-    public ArrayList<LocationMarker> mLocationMarkers = new ArrayList<>();
-    // Anchors are currently re-drawn on an interval. There are likely better
-    // ways of doing this, however it's sufficient for now. Anchor刷新间隔
-    private int anchorRefreshInterval = 1000 * 5; // 5 seconds
-    // Limit of where to draw markers within AR scene.
-    // They will auto scale, but this helps prevents rendering issues 在AR Scene中绘制标识的距离范围
-    private int distanceLimit = 20;
-    private boolean offsetOverlapping = false;
-    // Bearing adjustment. Can be set to calibrate with true north
-    private int bearingAdjustment = 0;
-    private boolean anchorsNeedRefresh = true;
+    // Anchors are re-drawn when the user moves or turns, and at least this often 最长刷新间隔
+    private int anchorRefreshInterval = 1000 * 30; // 30 seconds
     private boolean minimalRefreshing = false;
     private boolean refreshAnchorsAsLocationChanges = false;
     private Handler mHandler = new Handler();
-    Runnable anchorRefreshTask = new Runnable() {
-        @Override
-        public void run() {
-            anchorsNeedRefresh = true;
-            mHandler.postDelayed(anchorRefreshTask, anchorRefreshInterval);
-        }
-    };
     private boolean debugEnabled = false;
+    private StatsOverlay statsOverlay;
     private Session mSession;
+    // Pose math runs on its own thread, the frame thread only applies the results 位姿计算在后台线程进行
+    private ExecutorService poseExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LocationScene-poses");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Placement and refresh logic, fed with ARCore's camera and anchors 放置与刷新逻辑
+    private final ArCoreBridge arCore = new ArCoreBridge();
+    private final LocationEngine<Anchor> engine;
+    // Large marker sets, materialized only while in range 大量标识的紧凑存储
+    private StoreNodeFactory storeNodeFactory;
+    // Nodes outside the camera's view are disabled so they skip per-frame updates 禁用视野外的结点
+    private boolean cullingEnabled = true;
+    private final ArrayList<LocationNode> liveNodes = new ArrayList<>();
+    // Node and render event of each marker, set by the app or created by a factory 每个标识的结点和渲染事件
+    private final IdentityHashMap<LocationMarker, MarkerNodes> markerNodes = new IdentityHashMap<>();
+    private int culledNodeCount = 0;
+    // Released nodes are reused 复用结点
+    private final LocationNodePool nodePool = new LocationNodePool(this);
+    private RenderablePool renderablePool;
+    private ClusterNodeFactory clusterNodeFactory;
+    private PoiImporter poiImporter;
+    private TraceRecorder traceRecorder;
+    private TraceReplayer traceReplayer;
+    // Proximity events, checked and dispatched on their own thread 地理围栏在独立线程中检查和回调
+    private GeofenceEngine geofenceEngine;
+    private ExecutorService geofenceExecutor;
+
+    private static class MarkerNodes {
+        // Node to render AR要渲染的结点
+        Node node;
+        // Called on each frame if not null AR中的渲染事件
+        LocationNodeRender renderEvent;
+    }
+
     public LocationScene(Context mContext, Activity mActivity, ArSceneView mArSceneView) {
         Log.i(TAG, "Location Scene initiated.");
         this.mContext = mContext;
         this.mActivity = mActivity;
         this.mSession = mArSceneView.getSession();
         this.mArSceneView = mArSceneView;
+        engine = new LocationEngine<>(arCore, arCore, new Scheduler() {
+            @Override
+            public void runInBackground(Runnable task) {
+                poseExecutor.execute(task);
+            }
 
-        startCalculationTask();
+            @Override
+            public void runOnFrameThread(Runnable task) {
+                mHandler.post(task);
+            }
+        }, SystemClock::uptimeMillis);
+        engine.setListener(new NodeBinder());
+        // Called in order with the registry locked, so a marker added again right away keeps its node
+        engine.getMarkerRegistry().addListener((added, removed, version) -> forgetNodes(removed));
+        engine.getRefreshScheduler().setMaxInterval(anchorRefreshInterval);
 
         locationManager = new LocationManager(mContext);
         deviceOrientation = new DeviceOrientation(this);
@@ -66,8 +129,47 @@ public class LocationScene {
         return debugEnabled;
     }
 
+    /**
+     * Record per-stage timings into {@link #getFrameStats()}, and show them in the stats
+     * overlay if one was set.
+     *
+     * @param debugEnabled
+     */
     public void setDebugEnabled(boolean debugEnabled) {
         this.debugEnabled = debugEnabled;
+        engine.getFrameStats().setEnabled(debugEnabled);
+        if (statsOverlay != null) {
+            if (debugEnabled)
+                statsOverlay.show();
+            else
+                statsOverlay.hide();
+        }
+    }
+
+    /**
+     * Latency histograms of marker filtering, pose math, anchor updates, scaleAndRotate and
+     * render, plus the number of anchors created per refresh. Use snapshot() to read them.
+     */
+    public FrameStats getFrameStats() {
+        return engine.getFrameStats();
+    }
+
+    /**
+     * Placement and refresh logic of this scene
+     */
+    public LocationEngine<Anchor> getEngine() {
+        return engine;
+    }
+
+    /**
+     * Show the frame stats in [textView] while debug is enabled. Pass null to remove the overlay.
+     */
+    public void setStatsOverlay(TextView textView) {
+        if (statsOverlay != null)
+            statsOverlay.hide();
+        statsOverlay = textView == null ? null : new StatsOverlay(engine.getFrameStats(), textView);
+        if (statsOverlay != null && debugEnabled)
+            statsOverlay.show();
     }
 
     public boolean minimalRefreshing() {
@@ -78,18 +180,58 @@ public class LocationScene {
         this.minimalRefreshing = minimalRefreshing;
     }
 
+    public boolean diffRefreshing() {
+        return engine.diffRefreshing();
+    }
+
+    /**
+     * When enabled, a refresh keeps the existing anchor of every marker whose distance and
+     * bearing have not changed beyond the tolerances, instead of re-creating all anchors.
+     *
+     * @param diffRefreshing
+     */
+    public void setDiffRefreshing(boolean diffRefreshing) {
+        engine.setDiffRefreshing(diffRefreshing);
+    }
+
+    public int getDiffDistanceTolerance() {
+        return engine.getDiffDistanceTolerance();
+    }
+
+    /**
+     * Distance change in metres before a marker is re-anchored when diff refreshing.
+     * Default 2
+     */
+    public void setDiffDistanceTolerance(int diffDistanceTolerance) {
+        engine.setDiffDistanceTolerance(diffDistanceTolerance);
+    }
+
+    public float getDiffBearingTolerance() {
+        return engine.getDiffBearingTolerance();
+    }
+
+    /**
+     * Bearing change in degrees before a marker is re-anchored when diff refreshing.
+     * Default 2
+     */
+    public void setDiffBearingTolerance(float diffBearingTolerance) {
+        engine.setDiffBearingTolerance(diffBearingTolerance);
+    }
+
     public boolean refreshAnchorsAsLocationChanges() {
         return refreshAnchorsAsLocationChanges;
     }
 
+    /**
+     * Only refresh anchors when the location, heading, accuracy or tracking changes, without
+     * the periodic refresh every anchorRefreshInterval.
+     *
+     * @param refreshAnchorsAsLocationChanges
+     */
     public void setRefreshAnchorsAsLocationChanges(boolean refreshAnchorsAsLocationChanges) {
-        if (refreshAnchorsAsLocationChanges) {
-            stopCalculationTask();
-        } else {
-            startCalculationTask();
-        }
-        refreshAnchors();
         this.refreshAnchorsAsLocationChanges = refreshAnchorsAsLocationChanges;
+        engine.getRefreshScheduler().setMaxInterval(refreshAnchorsAsLocationChanges ? 0 : anchorRefreshInterval);
+        refreshAnchors();
     }
 
     public int getAnchorRefreshInterval() {
@@ -97,25 +239,217 @@ public class LocationScene {
     }
 
     /**
-     * Set the interval at which anchors should be automatically re-calculated.
+     * Set the longest time between anchor refreshes when nothing changes. Moving or turning
+     * refreshes sooner, see {@link #getRefreshScheduler()}.
      *
      * @param anchorRefreshInterval
      */
     public void setAnchorRefreshInterval(int anchorRefreshInterval) {
         this.anchorRefreshInterval = anchorRefreshInterval;
-        stopCalculationTask();
-        startCalculationTask();
+        if (!refreshAnchorsAsLocationChanges)
+            engine.getRefreshScheduler().setMaxInterval(anchorRefreshInterval);
+    }
+
+    /**
+     * Thresholds and intervals that decide when anchors are refreshed
+     */
+    public RefreshScheduler getRefreshScheduler() {
+        return engine.getRefreshScheduler();
     }
 
+    /**
+     * The markers to place. Add, remove or replace markers here from any thread.
+     */
+    public MarkerRegistry getMarkerRegistry() {
+        return engine.getMarkerRegistry();
+    }
+
+    /**
+     * Remove all markers and their anchors, including clusters, and detach the MarkerStore
+     */
     public void clearMarkers() {
-        for (LocationMarker lm : mLocationMarkers) {
-            if (lm.anchorNode != null) {
-                lm.anchorNode.getAnchor().detach();
-                lm.anchorNode.setEnabled(false);
-                lm.anchorNode = null;
+        engine.clearMarkers();
+    }
+
+    /**
+     * Import markers from a CSV or GeoJSON file, see {@link PoiImporter} for the formats.
+     * The file is parsed on a background thread, and each batch is turned into markers by
+     * [factory] on the UI thread and added to the marker registry, so markers show up while
+     * the rest of the file is still being read.
+     *
+     * @param importer - options such as GCJ-02 conversion, cancel() stops the import
+     * @param listener - progress, may be null
+     */
+    public void importMarkers(File file, PoiImporter importer, PoiMarkerFactory factory,
+                              PoiImportListener listener) {
+        importMarkers(file, importer, listener, batch -> mHandler.post(() -> addPoiBatch(batch, factory)));
+    }
+
+    /**
+     * Import markers from a CSV or GeoJSON file straight into [store], with [style], on a
+     * background thread. Nothing is created per point until it comes into range.
+     *
+     * @param listener - progress, may be null
+     */
+    public void importMarkers(File file, PoiImporter importer, MarkerStore store, int style,
+                              PoiImportListener listener) {
+        importMarkers(file, importer, listener,
+                batch -> store.addAll(batch.latitudes, batch.longitudes, batch.names, batch.size(), style));
+    }
+
+    private interface BatchConsumer {
+        void accept(PoiBatch batch);
+    }
+
+    // Runs the import on its own thread, [consumer] is called on that thread 在后台线程导入
+    private void importMarkers(File file, PoiImporter importer, PoiImportListener listener,
+                               BatchConsumer consumer) {
+        PoiImporter.Format format = PoiImporter.formatOf(file.getName());
+        poiImporter = importer;
+        Thread thread = new Thread(() -> {
+            int count = 0;
+            IOException error = null;
+            try {
+                count = importer.importFile(file, format, new PoiImporter.Listener() {
+                    @Override
+                    public void onBatch(PoiBatch batch) {
+                        consumer.accept(batch);
+                    }
+
+                    @Override
+                    public void onProgress(long bytesRead, long totalBytes) {
+                        if (listener != null)
+                            mHandler.post(() -> listener.onProgress(bytesRead, totalBytes));
+                    }
+                });
+                Log.i(TAG, "Imported " + count + " markers, skipped " + importer.getSkipped() + ".");
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to import " + file, e);
+                error = e;
             }
+            int imported = count;
+            IOException failure = error;
+            mHandler.post(() -> {
+                if (poiImporter == importer)
+                    poiImporter = null;
+                refreshAnchors();
+                if (listener != null)
+                    listener.onFinished(imported, failure);
+            });
+        }, "LocationScene-import");
+        thread.start();
+    }
+
+    // One registry change per batch 每批只发布一次
+    private void addPoiBatch(PoiBatch batch, PoiMarkerFactory factory) {
+        ArrayList<LocationMarker> markers = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            LocationMarker marker = factory.createMarker(batch.latitudes[i], batch.longitudes[i], batch.names[i]);
+            if (marker != null)
+                markers.add(marker);
         }
-        mLocationMarkers = new ArrayList<>();
+        engine.getMarkerRegistry().addAll(markers);
+    }
+
+    /**
+     * Node to render for [marker]. Set it before adding the marker to the registry, it is
+     * forgotten when the marker is removed.
+     */
+    public void setNode(LocationMarker marker, Node node) {
+        synchronized (markerNodes) {
+            nodesOf(marker).node = node;
+        }
+    }
+
+    public Node getNode(LocationMarker marker) {
+        synchronized (markerNodes) {
+            MarkerNodes nodes = markerNodes.get(marker);
+            return nodes == null ? null : nodes.node;
+        }
+    }
+
+    /**
+     * Called on each frame while [marker] is placed
+     */
+    public void setRenderEvent(LocationMarker marker, LocationNodeRender renderEvent) {
+        synchronized (markerNodes) {
+            nodesOf(marker).renderEvent = renderEvent;
+        }
+    }
+
+    public LocationNodeRender getRenderEvent(LocationMarker marker) {
+        synchronized (markerNodes) {
+            MarkerNodes nodes = markerNodes.get(marker);
+            return nodes == null ? null : nodes.renderEvent;
+        }
+    }
+
+    // Call with markerNodes locked
+    private MarkerNodes nodesOf(LocationMarker marker) {
+        MarkerNodes nodes = markerNodes.get(marker);
+        if (nodes == null) {
+            nodes = new MarkerNodes();
+            markerNodes.put(marker, nodes);
+        }
+        return nodes;
+    }
+
+    // Removed markers no longer need their nodes 移除的标识不再保留结点
+    private void forgetNodes(LocationMarker[] removed) {
+        if (removed.length == 0)
+            return;
+        synchronized (markerNodes) {
+            for (LocationMarker marker : removed)
+                markerNodes.remove(marker);
+        }
+    }
+
+    public ClusterNodeFactory getClusterNodeFactory() {
+        return clusterNodeFactory;
+    }
+
+    /**
+     * Merge distant markers in the same direction into one cluster node, so the number of
+     * anchors stays bounded. Clusters split back into markers as the user approaches.
+     *
+     * @param clusterNodeFactory - creates the node of each cluster, null to disable clustering
+     */
+    public void setClusterNodeFactory(ClusterNodeFactory clusterNodeFactory) {
+        this.clusterNodeFactory = clusterNodeFactory;
+        engine.setClusteringEnabled(clusterNodeFactory != null);
+    }
+
+    /**
+     * Markers closer than this many metres are never clustered. Default 300
+     */
+    public void setClusterSplitDistance(int splitDistance) {
+        engine.setClusterSplitDistance(splitDistance);
+    }
+
+    public MarkerStore getMarkerStore() {
+        return engine.getMarkerStore();
+    }
+
+    /**
+     * Place markers from a compact store alongside the marker registry. Store markers only get a
+     * LocationMarker while within their render distance, and a Node from [nodeFactory] when
+     * first placed; both are released when they leave range. Markers added to the store later
+     * are picked up on the next refresh.
+     *
+     * @param store - null to remove the store's markers
+     */
+    public void setMarkerStore(MarkerStore store, StoreNodeFactory nodeFactory) {
+        this.storeNodeFactory = nodeFactory;
+        engine.setMarkerStore(store);
+    }
+
+    /**
+     * Force the marker index to be rebuilt on the next refresh.
+     * Adding or removing markers is picked up automatically, but this must be
+     * called after changing a marker's coordinates or render distance in place.
+     */
+    public void refreshMarkerIndex() {
+        engine.refreshMarkerIndex();
     }
 
     /**
@@ -125,7 +459,7 @@ public class LocationScene {
      * @return
      */
     public int getDistanceLimit() {
-        return distanceLimit;
+        return engine.getDistanceLimit();
     }
 
     /**
@@ -134,143 +468,289 @@ public class LocationScene {
      * Default 20
      */
     public void setDistanceLimit(int distanceLimit) {
-        this.distanceLimit = distanceLimit;
+        engine.setDistanceLimit(distanceLimit);
     }
 
     public boolean shouldOffsetOverlapping() {
-        return offsetOverlapping;
+        return engine.shouldOffsetOverlapping();
     }
 
     /**
-     * Attempts to raise markers vertically when they overlap.
-     * Needs work!
+     * Raise markers vertically when their labels overlap. Rows are assigned once per refresh
+     * by {@link LabelPlacer}, based on bearing and distance.
      *
      * @param offsetOverlapping
      */
     public void setOffsetOverlapping(boolean offsetOverlapping) {
-        this.offsetOverlapping = offsetOverlapping;
+        engine.setOffsetOverlapping(offsetOverlapping);
+    }
+
+    /**
+     * Size of one label for overlap checks, in degrees as seen from the device.
+     * The defaults suit the 180dp card at FIXED_SIZE_ON_SCREEN scale.
+     *
+     * @param width  - default 20
+     * @param height - default 12
+     */
+    public void setLabelSize(float width, float height) {
+        engine.setLabelSize(width, height);
+    }
+
+    public boolean cullingEnabled() {
+        return cullingEnabled;
+    }
+
+    /**
+     * Disable nodes outside the camera's horizontal view cone, so they skip scaleAndRotate and
+     * their render event. They are enabled again as soon as they come back into view.
+     * Default true
+     *
+     * @param cullingEnabled
+     */
+    public void setCullingEnabled(boolean cullingEnabled) {
+        this.cullingEnabled = cullingEnabled;
+        if (!cullingEnabled) {
+            for (LocationNode node : liveNodes) {
+                if (node.getAnchor() != null)
+                    node.setEnabled(true);
+            }
+            culledNodeCount = 0;
+        }
+    }
+
+    /**
+     * Field of view, margin and hysteresis used for culling
+     */
+    public ViewCone getViewCone() {
+        return engine.getViewCone();
+    }
+
+    /**
+     * Limit on live anchors and how markers are prioritized when over it
+     */
+    public AnchorBudget getAnchorBudget() {
+        return engine.getAnchorBudget();
+    }
+
+    /**
+     * Released nodes kept for reuse
+     */
+    public LocationNodePool getNodePool() {
+        return nodePool;
+    }
+
+    public RenderablePool getRenderablePool() {
+        return renderablePool;
+    }
+
+    /**
+     * Give the nodes of anchored markers a renderable from [renderablePool] when they have
+     * none, and take it back when their anchor is released.
+     *
+     * @param renderablePool
+     */
+    public void setRenderablePool(RenderablePool renderablePool) {
+        this.renderablePool = renderablePool;
+    }
+
+    /**
+     * Number of nodes disabled by culling on the last frame
+     */
+    public int getCulledNodeCount() {
+        return culledNodeCount;
     }
 
     public void processFrame(Frame frame) {
-        refreshAnchorsIfRequired(frame);
+        arCore.frame = frame;
+        if (locationManager.currentLocation != null) {
+            LocationFix fix = locationManager.filteredFix;
+            engine.setLocation(locationManager.currentLocation.getLatitude(),
+                    locationManager.currentLocation.getLongitude(), fix != null ? fix.accuracy : 0);
+        }
+        engine.setOrientation(deviceOrientation.currentDegree, deviceOrientation.pitch);
+        engine.processFrame();
+        if (cullingEnabled && arCore.isTracking())
+            cullNodes();
+    }
+
+    private void cullNodes() {
+        ViewCone viewCone = engine.getViewCone();
+        AnchorBudget anchorBudget = engine.getAnchorBudget();
+        float[] camera = mArSceneView.getScene().getCamera().getWorldModelMatrix().data;
+        boolean cull = viewCone.setCamera(camera);
+        long now = SystemClock.uptimeMillis();
+        int culled = 0;
+        for (int i = liveNodes.size() - 1; i >= 0; i--) {
+            LocationNode node = liveNodes.get(i);
+            if (node.getAnchor() == null) {
+                // Replaced by a new anchor 已被新的Anchor替换
+                int last = liveNodes.size() - 1;
+                liveNodes.set(i, liveNodes.get(last));
+                liveNodes.remove(last);
+                continue;
+            }
+            float[] m = node.getWorldModelMatrix().data;
+            boolean enabled = node.isEnabled();
+            boolean visible = !cull || viewCone.contains(m[12], m[14], enabled);
+            if (visible != enabled)
+                node.setEnabled(visible);
+            if (!visible)
+                culled++;
+            else
+                anchorBudget.touch(node.getLocationMarker(), now);
+        }
+        culledNodeCount = culled;
     }
 
     /**
      * Force anchors to be re-calculated
      */
     public void refreshAnchors() {
-        anchorsNeedRefresh = true;
+        engine.refreshAnchors();
     }
 
-    private void refreshAnchorsIfRequired(Frame frame) {
-        if (anchorsNeedRefresh) {
-            Log.i(TAG, "Refreshing anchors...");
-            anchorsNeedRefresh = false;
+    /**
+     * Force every anchor to be re-created on the next refresh, even when diff refreshing
+     */
+    public void refreshAllAnchors() {
+        engine.refreshAllAnchors();
+    }
 
-            if (locationManager.currentLocation == null) {
-                Log.i(TAG, "Location not yet established.");
-                return;
-            }
+    // ARCore camera and anchors of the current frame 当前帧的ARCore相机和Anchor
+    private class ArCoreBridge implements CameraPose, AnchorFactory<Anchor> {
+        Frame frame;
 
-            for (int i = 0; i < mLocationMarkers.size(); i++) {
-                try {
-
-                    int markerDistance = (int) Math.round(
-                            LocationUtils.distance(
-                                    mLocationMarkers.get(i).latitude,
-                                    locationManager.currentLocation.getLatitude(),
-                                    mLocationMarkers.get(i).longitude,
-                                    locationManager.currentLocation.getLongitude())
-                    );
-
-                    if (markerDistance > mLocationMarkers.get(i).getOnlyRenderWhenWithin()) {
-                        // Don't render if this has been set and we are too far away.
-                        Log.i(TAG, "Not rendering. Marker distance: " + markerDistance + " Max render distance: " + mLocationMarkers.get(i).getOnlyRenderWhenWithin());
-                        continue;
-                    }
+        @Override
+        public boolean isTracking() {
+            return frame != null && frame.getCamera().getTrackingState() == TrackingState.TRACKING;
+        }
 
-                    float markerBearing = deviceOrientation.currentDegree + (float) LocationUtils.bearing(
-                            locationManager.currentLocation.getLatitude(),
-                            locationManager.currentLocation.getLongitude(),
-                            mLocationMarkers.get(i).latitude,
-                            mLocationMarkers.get(i).longitude);
-
-                    // Bearing adjustment can be set if you are trying to
-                    // correct the heading of north - setBearingAdjustment(10)
-                    markerBearing = markerBearing + bearingAdjustment;
-                    markerBearing = markerBearing % 360;
-
-                    double rotation = Math.floor(markerBearing);
-
-                    // When pointing device upwards (camera towards sky)
-                    // the compass bearing can flip.
-                    // In experiments this seems to happen at pitch~=-25
-                    if (deviceOrientation.pitch > -25)
-                        rotation = rotation * Math.PI / 180;
-
-                    int renderDistance = markerDistance;
-
-                    // Limit the distance of the Anchor within the scene.
-                    // Prevents rendering issues.
-                    if (renderDistance > distanceLimit)
-                        renderDistance = distanceLimit;
-
-                    // Adjustment to add markers on horizon, instead of just directly in front of camera
-                    double heightAdjustment = 0;
-                    // Math.round(renderDistance * (Math.tan(Math.toRadians(deviceOrientation.pitch)))) - 1.5F;
-
-                    // Raise distant markers for better illusion of distance
-                    // Hacky - but it works as a temporary measure
-                    int cappedRealDistance = markerDistance > 500 ? 500 : markerDistance;
-                    if (renderDistance != markerDistance)
-                        heightAdjustment += 0.005F * (cappedRealDistance - renderDistance);
-
-                    float x = 0;
-                    float z = -renderDistance;
-
-                    float zRotated = (float) (z * Math.cos(rotation) - x * Math.sin(rotation));
-                    float xRotated = (float) -(z * Math.sin(rotation) + x * Math.cos(rotation));
-
-                    // Current camera height
-                    float y = frame.getCamera().getDisplayOrientedPose().ty();
-
-                    if (mLocationMarkers.get(i).anchorNode != null &&
-                            mLocationMarkers.get(i).anchorNode.getAnchor() != null) {
-                        mLocationMarkers.get(i).anchorNode.getAnchor().detach();
-                        mLocationMarkers.get(i).anchorNode.setAnchor(null);
-                        mLocationMarkers.get(i).anchorNode.setEnabled(false);
-                        mLocationMarkers.get(i).anchorNode = null;
-                    }
+        @Override
+        public void getPose(float[] translation, float[] rotation) {
+            Pose pose = frame.getCamera().getPose();
+            translation[0] = pose.tx();
+            translation[1] = pose.ty();
+            translation[2] = pose.tz();
+            rotation[0] = pose.qx();
+            rotation[1] = pose.qy();
+            rotation[2] = pose.qz();
+            rotation[3] = pose.qw();
+        }
 
-                    // Don't immediately assign newly created anchor in-case of exceptions
-                    Anchor newAnchor = mSession.createAnchor(
-                            frame.getCamera().getPose()
-                                    .compose(Pose.makeTranslation(xRotated, y + (float) heightAdjustment, zRotated)));
+        @Override
+        public Anchor createAnchor(float[] translation, float[] rotation, float x, float y, float z) {
+            return mSession.createAnchor(new Pose(translation, rotation).compose(Pose.makeTranslation(x, y, z)));
+        }
 
+        @Override
+        public void detach(Anchor anchor) {
+            anchor.detach();
+        }
+    }
 
-                    mLocationMarkers.get(i).anchorNode = new LocationNode(newAnchor, mLocationMarkers.get(i), this);
-                    mLocationMarkers.get(i).anchorNode.setParent(mArSceneView.getScene());
-                    mLocationMarkers.get(i).anchorNode.addChild(mLocationMarkers.get(i).node);
+    // Keeps a LocationNode on the anchor of every placed marker 为每个已放置的标识维护LocationNode
+    private class NodeBinder implements LocationEngine.Listener<Anchor> {
 
-                    if (mLocationMarkers.get(i).getRenderEvent() != null) {
-                        mLocationMarkers.get(i).anchorNode.setRenderEvent(mLocationMarkers.get(i).getRenderEvent());
-                    }
+        // Only touched on the frame thread 仅在帧线程访问
+        private final IdentityHashMap<LocationMarker, LocationNode> anchorNodes = new IdentityHashMap<>();
+        // The node each LocationNode shows, still known after the marker was removed 已挂载的结点
+        private final IdentityHashMap<LocationNode, Node> attachedNodes = new IdentityHashMap<>();
 
-                    mLocationMarkers.get(i).anchorNode.setScaleModifier(mLocationMarkers.get(i).getScaleModifier());
-                    mLocationMarkers.get(i).anchorNode.setScalingMode(mLocationMarkers.get(i).getScalingMode());
-                    mLocationMarkers.get(i).anchorNode.setGradualScalingMaxScale(mLocationMarkers.get(i).getGradualScalingMaxScale());
-                    mLocationMarkers.get(i).anchorNode.setGradualScalingMinScale(mLocationMarkers.get(i).getGradualScalingMinScale());
-                    mLocationMarkers.get(i).anchorNode.setHeight(mLocationMarkers.get(i).getHeight());
+        @Override
+        public boolean onPrepare(LocationMarker marker) {
+            synchronized (markerNodes) {
+                MarkerNodes nodes = nodesOf(marker);
+                if (nodes.node == null && marker instanceof ClusterMarker) {
+                    if (clusterNodeFactory == null)
+                        return false;
+                    nodes.node = clusterNodeFactory.createNode((ClusterMarker) marker);
+                } else if (nodes.node == null && marker.storeId >= 0) {
+                    // First placement of a store marker 存储中的标识首次放置时创建结点
+                    if (storeNodeFactory == null)
+                        return false;
+                    nodes.node = storeNodeFactory.createNode(marker, marker.storeId);
+                }
+            }
+            return true;
+        }
 
-                    if (minimalRefreshing)
-                        mLocationMarkers.get(i).anchorNode.scaleAndRotate();
-                } catch (Exception e) {
-                    e.printStackTrace();
+        @Override
+        public void onAnchored(LocationMarker marker, Anchor anchor, Anchor previous, MarkerPose pose, float height) {
+            Node child;
+            LocationNodeRender renderEvent;
+            synchronized (markerNodes) {
+                MarkerNodes nodes = nodesOf(marker);
+                child = nodes.node;
+                renderEvent = nodes.renderEvent;
+            }
+            LocationNode node = anchorNodes.get(marker);
+            if (node != null) {
+                // Move the marker's node to the new anchor 原结点换用新的Anchor
+                node.setAnchor(anchor);
+            } else {
+                node = nodePool.obtain(anchor, marker);
+                anchorNodes.put(marker, node);
+                node.setParent(mArSceneView.getScene());
+                node.addChild(child);
+                liveNodes.add(node);
+                if (child != null) {
+                    attachedNodes.put(node, child);
+                    if (renderablePool != null)
+                        renderablePool.attach(child);
                 }
+            }
+
+            if (renderEvent != null) {
+                node.setRenderEvent(renderEvent);
+            }
+
+            node.setScaleModifier(marker.getScaleModifier());
+            node.setScalingMode(marker.getScalingMode());
+            node.setGradualScalingMaxScale(marker.getGradualScalingMaxScale());
+            node.setGradualScalingMinScale(marker.getGradualScalingMinScale());
+            node.setHeight(height);
+            node.setAnchoredPose(pose.markerDistance, pose.gpsBearing);
+            node.setDistanceInGPS(pose.markerDistance);
 
+            if (minimalRefreshing)
+                node.scaleAndRotate();
+        }
+
+        @Override
+        public void onUpdated(LocationMarker marker, Anchor anchor, int distance, float height) {
+            LocationNode node = anchorNodes.get(marker);
+            if (node != null) {
+                node.setDistanceInGPS(distance);
+                node.setHeight(height);
             }
+        }
+
+        @Override
+        public void onReleased(LocationMarker marker, Anchor anchor) {
+            // Clusters and store markers outside the registry get a new node next time 聚合和存储标识下次重新创建结点
+            if (marker instanceof ClusterMarker || marker.storeId >= 0)
+                forgetNodes(new LocationMarker[]{marker});
+            LocationNode node = anchorNodes.remove(marker);
+            if (node == null)
+                return;
+            liveNodes.remove(node);
+            nodePool.release(node);
+            Node child = attachedNodes.remove(node);
+            if (renderablePool != null && child != null)
+                renderablePool.detach(child);
+        }
 
-            System.gc();
+        @Override
+        public void onBatchApplied(int created, int size) {
+            if (debugEnabled)
+                Log.i(TAG, "Created " + created + " of " + size + " anchors.");
+            if (!engine.diffRefreshing())
+                System.gc();
+        }
+
+        @Override
+        public void onError(RuntimeException error) {
+            Log.e(TAG, "Unable to place markers", error);
         }
     }
 
@@ -280,7 +760,7 @@ public class LocationScene {
      * @return
      */
     public int getBearingAdjustment() {
-        return bearingAdjustment;
+        return engine.getBearingAdjustment();
     }
 
     /**
@@ -290,15 +770,15 @@ public class LocationScene {
      * @param i
      */
     public void setBearingAdjustment(int i) {
-        bearingAdjustment = i;
-        anchorsNeedRefresh = true;
+        engine.setBearingAdjustment(i);
     }
 
     /**
      * Resume sensor services. Important!
      */
     public void resume() {
-        deviceOrientation.resume();
+        if (traceReplayer == null)
+            deviceOrientation.resume();
     }
 
     /**
@@ -308,11 +788,123 @@ public class LocationScene {
         deviceOrientation.pause();
     }
 
-    void startCalculationTask() {
-        anchorRefreshTask.run();
+    /**
+     * Enter, dwell and exit events for the scene's markers, checked on each location fix.
+     * Created on first use.
+     */
+    public GeofenceEngine getGeofenceEngine() {
+        if (geofenceEngine == null) {
+            geofenceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "LocationScene-geofence");
+                thread.setDaemon(true);
+                return thread;
+            });
+            geofenceEngine = new GeofenceEngine(engine.getMarkerRegistry(), geofenceExecutor,
+                    SystemClock::uptimeMillis);
+            locationManager.setGeofenceEngine(geofenceEngine);
+        }
+        return geofenceEngine;
     }
 
-    void stopCalculationTask() {
-        mHandler.removeCallbacks(anchorRefreshTask);
+    /**
+     * Receive geofence events on the geofence thread, or stop with null
+     */
+    public void setGeofenceListener(GeofenceListener listener) {
+        if (listener == null && geofenceEngine == null)
+            return;
+        getGeofenceEngine().setListener(listener);
+    }
+
+    /**
+     * Record live location fixes and orientation samples to [trace] until stopRecording().
+     */
+    public void startRecording(OutputStream trace) throws IOException {
+        stopRecording();
+        traceRecorder = new TraceRecorder(trace);
+        locationManager.setTraceRecorder(traceRecorder);
+        deviceOrientation.setTraceRecorder(traceRecorder);
+    }
+
+    public void stopRecording() {
+        if (traceRecorder == null)
+            return;
+        locationManager.setTraceRecorder(null);
+        deviceOrientation.setTraceRecorder(null);
+        try {
+            traceRecorder.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to finish trace", e);
+        }
+        traceRecorder = null;
+    }
+
+    /**
+     * Replace live location and sensor input with a recorded trace 使用记录的轨迹代替实时定位和传感器
+     *
+     * @param speed - 1 for real time, higher to speed up, 0 for as fast as possible
+     */
+    public TraceReplayer startReplay(InputStream trace, float speed) {
+        stopReplay();
+        locationManager.stop();
+        deviceOrientation.pause();
+        // Forget the live estimate, the trace starts somewhere else 丢弃实时定位的估计
+        LocationFilter filter = locationManager.getLocationFilter();
+        if (filter != null)
+            filter.reset();
+
+        // Samples are handed to the UI thread, where the scene reads them 回放数据交给UI线程处理
+        traceReplayer = new TraceReplayer(trace, new TraceListener() {
+            @Override
+            public void onLocation(long timestamp, LocationFix fix) {
+                mHandler.post(() -> locationManager.onFix(fix));
+            }
+
+            @Override
+            public void onOrientation(long timestamp, float heading, float pitch, float roll) {
+                mHandler.post(() -> deviceOrientation.onOrientation(heading, pitch, roll));
+            }
+        });
+        traceReplayer.setSpeed(speed);
+        traceReplayer.start();
+        return traceReplayer;
+    }
+
+    /**
+     * Stop replaying and go back to live input
+     */
+    public void stopReplay() {
+        if (!endReplay())
+            return;
+        locationManager.start();
+        deviceOrientation.resume();
+    }
+
+    // Stop the replayer without going back to live input 仅停止回放
+    private boolean endReplay() {
+        if (traceReplayer == null)
+            return false;
+        traceReplayer.stop();
+        traceReplayer = null;
+        return true;
+    }
+
+    /**
+     * Stop background work. Call when the scene is no longer used.
+     */
+    public void destroy() {
+        endReplay();
+        locationManager.stop();
+        deviceOrientation.pause();
+        stopRecording();
+        if (poiImporter != null)
+            poiImporter.cancel();
+        setStatsOverlay(null);
+        engine.close();
+        poseExecutor.shutdownNow();
+        if (geofenceExecutor != null) {
+            locationManager.setGeofenceEngine(null);
+            geofenceEngine.close();
+            geofenceExecutor.shutdownNow();
+        }
     }
 }
@@ -0,0 +1,165 @@
+package com.example.arlocation.location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Merges distant markers in the same direction into clusters 将远处同一方向的标识合并
+ * <p>
+ * Markers beyond the split distance are grouped by bearing bucket and by distance band, where
+ * each band is twice as deep as the one before it. Groups of at least the minimum size become
+ * one {@link ClusterMarker}, so the number of anchors stays bounded by the number of buckets
+ * however dense the data is. Markers within the split distance are never clustered, so
+ * clusters split back into their markers as the user approaches.
+ * Not thread safe, MarkerPlacer runs it on the pose thread.
+ */
+public class MarkerClusterer {
+
+    private float bearingBucket = 10F; // degrees
+    private int splitDistance = 300; // metres
+    private int minClusterSize = 2;
+
+    // Clusters of the last refresh by bucket, reused while their bucket stays occupied 上次刷新的聚合
+    private HashMap<Long, ClusterMarker> clusters = new HashMap<>();
+
+    /**
+     * Replace groups of markers in the first [count] entries by their clusters, in place.
+     *
+     * @param markers   - markers in range
+     * @param distances - GPS distance of each marker in metres
+     * @param bearings  - bearing from north of each marker in degrees
+     * @param hidden    - receives markers whose anchors should be removed: members of a
+     *                  cluster and clusters that no longer exist
+     * @return - number of entries after clustering
+     */
+    public int cluster(LocationMarker[] markers, int[] distances, float[] bearings, int count,
+                       ArrayList<LocationMarker> hidden) {
+        int buckets = Math.max(1, (int) (360 / bearingBucket));
+
+        LocationMarker[] inMarkers = Arrays.copyOf(markers, count);
+        int[] inDistances = Arrays.copyOf(distances, count);
+        float[] inBearings = Arrays.copyOf(bearings, count);
+
+        // Markers that are never clustered stay first, the rest are sorted by bucket 按区间排序
+        long[] order = new long[count];
+        int clusterable = 0;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (inDistances[i] < splitDistance || inMarkers[i] instanceof ClusterMarker) {
+                markers[n] = inMarkers[i];
+                distances[n] = inDistances[i];
+                bearings[n] = inBearings[i];
+                n++;
+                continue;
+            }
+            long key = bucketOf(inDistances[i], inBearings[i], buckets);
+            order[clusterable++] = (key << 32) | i;
+        }
+        Arrays.sort(order, 0, clusterable);
+
+        HashMap<Long, ClusterMarker> current = new HashMap<>();
+        for (int start = 0; start < clusterable; ) {
+            long key = order[start] >>> 32;
+            int end = start + 1;
+            while (end < clusterable && order[end] >>> 32 == key)
+                end++;
+
+            if (end - start < minClusterSize) {
+                for (int k = start; k < end; k++) {
+                    int i = (int) order[k];
+                    markers[n] = inMarkers[i];
+                    distances[n] = inDistances[i];
+                    bearings[n] = inBearings[i];
+                    n++;
+                }
+            } else {
+                LocationMarker[] members = new LocationMarker[end - start];
+                int nearest = Integer.MAX_VALUE;
+                double sin = 0;
+                double cos = 0;
+                for (int k = start; k < end; k++) {
+                    int i = (int) order[k];
+                    members[k - start] = inMarkers[i];
+                    hidden.add(inMarkers[i]);
+                    nearest = Math.min(nearest, inDistances[i]);
+                    sin += Math.sin(Math.toRadians(inBearings[i]));
+                    cos += Math.cos(Math.toRadians(inBearings[i]));
+                }
+
+                ClusterMarker cluster = clusters.remove(key);
+                if (cluster == null)
+                    cluster = new ClusterMarker();
+                cluster.setMembers(members);
+                current.put(key, cluster);
+
+                // Placed at the nearest member, in the mean direction 位于最近成员的距离 平均方向
+                markers[n] = cluster;
+                distances[n] = nearest;
+                bearings[n] = (float) ((Math.toDegrees(Math.atan2(sin, cos)) + 360) % 360);
+                n++;
+            }
+            start = end;
+        }
+
+        // Clusters whose bucket emptied out 已解散的聚合
+        hidden.addAll(clusters.values());
+        clusters = current;
+        return n;
+    }
+
+    /**
+     * Forget all clusters, e.g. when the markers are replaced
+     *
+     * @param hidden - receives the clusters that existed
+     */
+    public void clear(ArrayList<LocationMarker> hidden) {
+        hidden.addAll(clusters.values());
+        clusters.clear();
+    }
+
+    private long bucketOf(int distance, float bearing, int buckets) {
+        // Bands double in depth: [split, 2 split), [2 split, 4 split), ... 距离区间逐级加倍
+        int band = 31 - Integer.numberOfLeadingZeros(Math.max(1, distance / splitDistance));
+        float normalized = ((bearing % 360) + 360) % 360;
+        int bucket = Math.min((int) (normalized * buckets / 360), buckets - 1);
+        return (long) band * buckets + bucket;
+    }
+
+    public float getBearingBucket() {
+        return bearingBucket;
+    }
+
+    /**
+     * Width in degrees of the directions merged into one cluster. Default 10
+     */
+    public void setBearingBucket(float bearingBucket) {
+        if (bearingBucket <= 0)
+            throw new IllegalArgumentException("bearingBucket must be positive");
+        this.bearingBucket = bearingBucket;
+    }
+
+    public int getSplitDistance() {
+        return splitDistance;
+    }
+
+    /**
+     * Markers closer than this many metres are shown on their own. Default 300
+     */
+    public void setSplitDistance(int splitDistance) {
+        if (splitDistance <= 0)
+            throw new IllegalArgumentException("splitDistance must be positive");
+        this.splitDistance = splitDistance;
+    }
+
+    public int getMinClusterSize() {
+        return minClusterSize;
+    }
+
+    /**
+     * Fewest markers that form a cluster. Default 2
+     */
+    public void setMinClusterSize(int minClusterSize) {
+        this.minClusterSize = Math.max(2, minClusterSize);
+    }
+}
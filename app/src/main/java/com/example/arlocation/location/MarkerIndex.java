@@ -0,0 +1,175 @@
+package com.example.arlocation.location;
+
+import com.example.arlocation.location.utils.LocationUtils;
+
+import java.util.Arrays;
+
+/**
+ * Grid based spatial index over marker coordinates 基于经纬度网格的标识空间索引
+ * <p>
+ * Markers are bucketed into cells of {@link #getCellSize()} degrees and stored in a compact,
+ * sorted layout so a radius query only touches the cells around the query point.
+ * Queries do not allocate.
+ */
+public class MarkerIndex {
+
+    // Metres per degree of latitude, on the same sphere as LocationUtils 每纬度对应的米数
+    private static final double METRES_PER_DEGREE = LocationUtils.EARTH_RADIUS * Math.PI / 180;
+    // Above this many cells a query falls back to visiting everything
+    private static final int MAX_QUERY_CELLS = 4096;
+
+    public interface Visitor {
+        void visit(int id);
+    }
+
+    private final double cellSize;
+
+    // Sorted cell keys, and where each cell's ids start in [ids] 已排序的网格编号及其在ids中的起始位置
+    private long[] cellKeys = new long[0];
+    private int[] cellStart = new int[1];
+    private int[] ids = new int[0];
+    private int cellCount = 0;
+    private int size = 0;
+
+    public MarkerIndex() {
+        this(0.01); // roughly 1.1km
+    }
+
+    /**
+     * @param cellSize - cell edge length in degrees
+     */
+    public MarkerIndex(double cellSize) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("cellSize must be positive");
+        this.cellSize = cellSize;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Rebuild the index. Ids are the positions in the given arrays.
+     *
+     * @param latitudes  - marker latitudes
+     * @param longitudes - marker longitudes
+     * @param count      - number of markers to index
+     */
+    public void build(double[] latitudes, double[] longitudes, int count) {
+        long[] keys = new long[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = key(cellOf(latitudes[i]), cellOf(longitudes[i]));
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        ids = new int[count];
+        long[] uniqueKeys = new long[count];
+        int[] starts = new int[count + 1];
+        int cells = 0;
+        for (int i = 0; i < count; i++) {
+            int id = order[i];
+            ids[i] = id;
+            if (cells == 0 || uniqueKeys[cells - 1] != keys[id]) {
+                uniqueKeys[cells] = keys[id];
+                starts[cells] = i;
+                cells++;
+            }
+        }
+        starts[cells] = count;
+
+        cellKeys = Arrays.copyOf(uniqueKeys, cells);
+        cellStart = Arrays.copyOf(starts, cells + 1);
+        cellCount = cells;
+        size = count;
+    }
+
+    /**
+     * Visit every id whose cell intersects the square around [latitude, longitude], wrapping
+     * around at 180 degrees longitude. Candidates still need an exact distance check.
+     *
+     * @param radius - metres
+     */
+    public void query(double latitude, double longitude, double radius, Visitor visitor) {
+        if (size == 0)
+            return;
+
+        double latSpan = radius / METRES_PER_DEGREE;
+        // Degrees of longitude shrink towards the poles, use the edge closest to one 取靠近极点一侧的纬度
+        double farLatitude = Math.min(90, Math.abs(latitude) + latSpan);
+        double sinLon = Math.sin(radius / LocationUtils.EARTH_RADIUS) / Math.cos(Math.toRadians(farLatitude));
+        double lonSpan = sinLon < 1 ? Math.toDegrees(Math.asin(sinLon)) : 360;
+
+        long minRow = cellOf(latitude - latSpan);
+        long maxRow = cellOf(latitude + latSpan);
+        if (lonSpan >= 180) {
+            scan(visitor);
+            return;
+        }
+        long minCol = cellOf(longitude - lonSpan);
+        long maxCol = cellOf(longitude + lonSpan);
+        long wrapMinCol = 0;
+        long wrapMaxCol = -1;
+        if (longitude - lonSpan < -180) {
+            wrapMinCol = cellOf(longitude - lonSpan + 360);
+            wrapMaxCol = cellOf(180);
+        } else if (longitude + lonSpan > 180) {
+            wrapMinCol = cellOf(-180);
+            wrapMaxCol = cellOf(longitude + lonSpan - 360);
+        }
+
+        long cells = (maxRow - minRow + 1) * (maxCol - minCol + 1 + Math.max(0, wrapMaxCol - wrapMinCol + 1));
+        if (cells > Math.max(MAX_QUERY_CELLS, cellCount)) {
+            // Radius covers most of the dataset, a plain scan is cheaper
+            scan(visitor);
+            return;
+        }
+
+        visitColumns(minRow, maxRow, minCol, maxCol, visitor);
+        if (wrapMaxCol >= wrapMinCol)
+            visitColumns(minRow, maxRow, wrapMinCol, wrapMaxCol, visitor);
+    }
+
+    private void scan(Visitor visitor) {
+        for (int i = 0; i < size; i++)
+            visitor.visit(ids[i]);
+    }
+
+    private void visitColumns(long minRow, long maxRow, long minCol, long maxCol, Visitor visitor) {
+        for (long row = minRow; row <= maxRow; row++) {
+            // Cells in a row are contiguous in key order 同一行的网格编号连续
+            int c = lowerBound(key(row, minCol));
+            long last = key(row, maxCol);
+            for (; c < cellCount && cellKeys[c] <= last; c++) {
+                for (int i = cellStart[c]; i < cellStart[c + 1]; i++)
+                    visitor.visit(ids[i]);
+            }
+        }
+    }
+
+    private long cellOf(double degrees) {
+        return (long) Math.floor(degrees / cellSize);
+    }
+
+    private static long key(long row, long col) {
+        return (row << 32) + col;
+    }
+
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = cellCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cellKeys[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
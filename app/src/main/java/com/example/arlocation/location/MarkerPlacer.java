@@ -0,0 +1,292 @@
+package com.example.arlocation.location;
+
+import com.example.arlocation.location.stats.FrameStats;
+import com.example.arlocation.location.utils.LocalProjection;
+import com.example.arlocation.location.utils.LocationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the markers in render range and computes their target poses 计算范围内标识的目标位置
+ * <p>
+ * Holds the marker index and local projection between refreshes. Not thread safe, use it from
+ * one thread at a time; LocationScene runs it on its pose thread.
+ */
+public class MarkerPlacer {
+
+    // Spatial index over markers that have a render radius 对有显示范围的标识建立空间索引
+    private final MarkerIndex markerIndex = new MarkerIndex();
+    // Entries are the list markers followed by the store's markers 条目: 先列表中的标识 后存储中的标识
+    private LocationMarker[] listMarkers = new LocationMarker[0];
+    private MarkerStore store;
+    private int entryCount = 0;
+    private double[] latitudes = new double[0];
+    private double[] longitudes = new double[0];
+    private int[] renderRadius = new int[0];
+    // Index positions to entries, and entries without a render limit 索引位置对应的条目 无距离限制的条目
+    private int[] indexedEntries = new int[0];
+    private int[] unboundedEntries = new int[0];
+    private int unboundedCount = 0;
+    private int maxRenderRadius = 0;
+    private int[] nearbyEntries = new int[0];
+    private int nearbyCount = 0;
+    // Entries are projected to local metres once per origin 条目坐标按原点投影为局部米制坐标
+    private final LocalProjection projection = new LocalProjection();
+    // Distance and bearing beyond the projection's valid radius 超出投影范围时的距离和方向角
+    private final double[] exact = new double[2];
+    private double[] projectedEast = new double[0];
+    private double[] projectedNorth = new double[0];
+    private int[] projectionVersions = new int[0];
+    // Store markers materialized while in range, by store id 范围内已创建的存储标识
+    private LocationMarker[] storeMarkers = new LocationMarker[0];
+    private int[] lastInRange = new int[0];
+    private final ArrayList<LocationMarker> materialized = new ArrayList<>();
+    private int refreshCount = 0;
+    private FrameStats frameStats = new FrameStats();
+    // Stacks overlapping labels into rows 重叠标识牌分层
+    private final LabelPlacer labelPlacer = new LabelPlacer();
+    // Merges distant markers in the same direction 聚合远处同方向的标识
+    private final MarkerClusterer clusterer = new MarkerClusterer();
+    private boolean clusteringEnabled = false;
+    private final ArrayList<LocationMarker> hiddenMarkers = new ArrayList<>();
+    private final MarkerIndex.Visitor nearbyCollector = new MarkerIndex.Visitor() {
+        @Override
+        public void visit(int id) {
+            nearbyEntries[nearbyCount++] = indexedEntries[id];
+        }
+    };
+
+    /**
+     * Replace the markers to place. Also re-reads their coordinates and render distances.
+     */
+    public void setMarkers(List<LocationMarker> markers) {
+        setMarkers(markers, null);
+    }
+
+    /**
+     * Replace the markers to place, from a list and from a store. Also re-reads their
+     * coordinates and render distances, and picks up markers added to the store.
+     *
+     * @param store - may be null
+     */
+    public void setMarkers(List<LocationMarker> markers, MarkerStore store) {
+        if (store != this.store) {
+            // Markers of the old store go away 旧存储中的标识全部移除
+            hiddenMarkers.addAll(materialized);
+            materialized.clear();
+            storeMarkers = new LocationMarker[0];
+            lastInRange = new int[0];
+            this.store = store;
+        }
+
+        int listCount = markers.size();
+        int storeCount = store == null ? 0 : store.size();
+        int total = listCount + storeCount;
+        latitudes = new double[total];
+        longitudes = new double[total];
+        renderRadius = new int[total];
+        listMarkers = markers.toArray(new LocationMarker[0]);
+        for (int i = 0; i < listCount; i++) {
+            latitudes[i] = listMarkers[i].latitude;
+            longitudes[i] = listMarkers[i].longitude;
+            renderRadius[i] = listMarkers[i].getOnlyRenderWhenWithin();
+        }
+        if (store != null) {
+            storeCount = store.copyTo(latitudes, longitudes, renderRadius, listCount, storeCount);
+            if (storeMarkers.length < storeCount) {
+                storeMarkers = Arrays.copyOf(storeMarkers, storeCount);
+                lastInRange = Arrays.copyOf(lastInRange, storeCount);
+            }
+        }
+        entryCount = listCount + storeCount;
+
+        // Entries without a render limit are always candidates 无距离限制的条目总是参与刷新
+        int bounded = 0;
+        unboundedCount = 0;
+        maxRenderRadius = 0;
+        indexedEntries = new int[entryCount];
+        unboundedEntries = new int[entryCount];
+        double[] boundedLatitudes = new double[entryCount];
+        double[] boundedLongitudes = new double[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            if (renderRadius[i] == Integer.MAX_VALUE) {
+                unboundedEntries[unboundedCount++] = i;
+                continue;
+            }
+            indexedEntries[bounded] = i;
+            boundedLatitudes[bounded] = latitudes[i];
+            boundedLongitudes[bounded] = longitudes[i];
+            maxRenderRadius = Math.max(maxRenderRadius, renderRadius[i]);
+            bounded++;
+        }
+        markerIndex.build(boundedLatitudes, boundedLongitudes, bounded);
+        nearbyEntries = new int[entryCount];
+
+        projectedEast = new double[entryCount];
+        projectedNorth = new double[entryCount];
+        projectionVersions = new int[entryCount];
+        Arrays.fill(projectionVersions, -1);
+        projection.invalidate();
+    }
+
+    /**
+     * Enable or disable clustering. Clusters of the previous refresh are hidden by the next batch.
+     */
+    public void setClusteringEnabled(boolean clusteringEnabled) {
+        if (!clusteringEnabled)
+            clusterer.clear(hiddenMarkers);
+        this.clusteringEnabled = clusteringEnabled;
+    }
+
+    public MarkerClusterer getClusterer() {
+        return clusterer;
+    }
+
+    /**
+     * Where the filter and pose math timings are recorded
+     */
+    public void setFrameStats(FrameStats frameStats) {
+        this.frameStats = frameStats;
+    }
+
+    public LabelPlacer getLabelPlacer() {
+        return labelPlacer;
+    }
+
+    public int getMarkerCount() {
+        return entryCount;
+    }
+
+    /**
+     * Number of store markers currently materialized
+     */
+    public int getMaterializedCount() {
+        return materialized.size();
+    }
+
+    /**
+     * Compute the pose of every marker within its render distance of [latitude, longitude].
+     *
+     * @param heading           - device heading, DeviceOrientation.currentDegree
+     * @param pitch             - device pitch in degrees
+     * @param bearingAdjustment - compass calibration in degrees
+     * @param distanceLimit     - furthest distance to place an anchor at
+     * @param placeLabels       - raise overlapping labels, see {@link LabelPlacer}
+     * @param fullRefresh       - passed through to the batch
+     * @param cameraTranslation - camera pose the heading was read with, passed through to the batch
+     * @param cameraRotation    - see cameraTranslation
+     */
+    public PoseBatch place(double latitude, double longitude, float heading, float pitch,
+                           int bearingAdjustment, int distanceLimit, boolean placeLabels,
+                           boolean fullRefresh, float[] cameraTranslation, float[] cameraRotation) {
+        long filterStart = frameStats.start();
+
+        // Only the index cells around the device are visited 只访问设备附近的网格
+        System.arraycopy(unboundedEntries, 0, nearbyEntries, 0, unboundedCount);
+        nearbyCount = unboundedCount;
+        markerIndex.query(latitude, longitude, maxRenderRadius, nearbyCollector);
+
+        projection.update(latitude, longitude);
+        double currentEast = projection.east(latitude, longitude);
+        double currentNorth = projection.north(latitude);
+        int listCount = listMarkers.length;
+        refreshCount++;
+
+        int count = 0;
+        LocationMarker[] markers = new LocationMarker[nearbyCount];
+        int[] distances = new int[markers.length];
+        float[] bearings = new float[markers.length];
+        for (int i = 0; i < nearbyCount; i++) {
+            int entry = nearbyEntries[i];
+
+            if (projectionVersions[entry] != projection.getVersion()) {
+                projectedEast[entry] = projection.east(latitudes[entry], longitudes[entry]);
+                projectedNorth[entry] = projection.north(latitudes[entry]);
+                projectionVersions[entry] = projection.getVersion();
+            }
+            double dEast = projectedEast[entry] - currentEast;
+            double dNorth = projectedNorth[entry] - currentNorth;
+            double projectedDistance = Math.sqrt(dEast * dEast + dNorth * dNorth);
+            boolean projected = projectedDistance <= projection.getValidRadius();
+
+            int markerDistance;
+            if (projected) {
+                markerDistance = (int) Math.round(projectedDistance);
+            } else {
+                // Too far for the local projection, use the exact formula 超出局部投影精度范围 使用精确公式
+                LocationUtils.distanceAndBearing(latitude, longitude, latitudes[entry], longitudes[entry],
+                        LocationUtils.Accuracy.HAVERSINE, exact);
+                markerDistance = (int) Math.round(exact[0]);
+            }
+
+            if (markerDistance > renderRadius[entry]) {
+                // Don't render if this has been set and we are too far away.
+                continue;
+            }
+
+            float gpsBearing = projected
+                    ? (float) LocalProjection.bearing(dEast, dNorth)
+                    : (float) exact[1];
+
+            markers[count] = entry < listCount ? listMarkers[entry] : materialize(entry - listCount);
+            distances[count] = markerDistance;
+            bearings[count] = gpsBearing;
+            count++;
+        }
+        releaseOutOfRange();
+        if (clusteringEnabled)
+            count = clusterer.cluster(markers, distances, bearings, count, hiddenMarkers);
+        frameStats.stop(FrameStats.Stage.MARKER_FILTER, filterStart);
+
+        long poseStart = frameStats.start();
+        MarkerPose[] poses = new MarkerPose[count];
+        for (int i = 0; i < count; i++)
+            poses[i] = MarkerPose.compute(distances[i], bearings[i], heading,
+                    bearingAdjustment, pitch, distanceLimit);
+
+        float[] labelHeights = new float[count];
+        if (placeLabels) {
+            int[] rows = new int[count];
+            for (int i = 0; i < count; i++)
+                rows[i] = markers[i].labelRow;
+            labelPlacer.place(bearings, distances, rows, count);
+            for (int i = 0; i < count; i++) {
+                markers[i].labelRow = rows[i];
+                labelHeights[i] = labelPlacer.heightOf(rows[i], Math.min(distances[i], distanceLimit));
+            }
+        }
+        frameStats.stop(FrameStats.Stage.POSE_MATH, poseStart);
+
+        LocationMarker[] hidden = hiddenMarkers.toArray(new LocationMarker[0]);
+        hiddenMarkers.clear();
+        return new PoseBatch(Arrays.copyOf(markers, count), poses, labelHeights, hidden, fullRefresh,
+                cameraTranslation, cameraRotation);
+    }
+
+    private LocationMarker materialize(int id) {
+        lastInRange[id] = refreshCount;
+        LocationMarker marker = storeMarkers[id];
+        if (marker == null) {
+            marker = store.materialize(id);
+            storeMarkers[id] = marker;
+            materialized.add(marker);
+        }
+        return marker;
+    }
+
+    // Let go of store markers that left range, their anchors are removed by the batch 释放离开范围的存储标识
+    private void releaseOutOfRange() {
+        for (int i = materialized.size() - 1; i >= 0; i--) {
+            LocationMarker marker = materialized.get(i);
+            if (lastInRange[marker.storeId] == refreshCount)
+                continue;
+            storeMarkers[marker.storeId] = null;
+            hiddenMarkers.add(marker);
+            int last = materialized.size() - 1;
+            materialized.set(i, materialized.get(last));
+            materialized.remove(last);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.arlocation.location;
+
+/**
+ * Where a marker's anchor goes, relative to the camera 标识Anchor相对相机的目标位置
+ * <p>
+ * Pure math, kept free of Android and ARCore types so it can run anywhere.
+ */
+public class MarkerPose {
+
+    // GPS distance in metres and bearing from north the pose was computed from
+    public final int markerDistance;
+    public final float gpsBearing;
+    // Translation from the camera, in metres
+    public final float x;
+    public final float z;
+    public final float heightAdjustment;
+
+    public MarkerPose(int markerDistance, float gpsBearing, float x, float z, float heightAdjustment) {
+        this.markerDistance = markerDistance;
+        this.gpsBearing = gpsBearing;
+        this.x = x;
+        this.z = z;
+        this.heightAdjustment = heightAdjustment;
+    }
+
+    /**
+     * @param markerDistance    - GPS distance in metres
+     * @param gpsBearing        - bearing from north to the marker in degrees
+     * @param heading           - device heading, DeviceOrientation.currentDegree
+     * @param bearingAdjustment - compass calibration in degrees
+     * @param pitch             - device pitch in degrees
+     * @param distanceLimit     - furthest distance to place an anchor at
+     */
+    public static MarkerPose compute(int markerDistance, float gpsBearing, float heading,
+                                     int bearingAdjustment, float pitch, int distanceLimit) {
+        float markerBearing = heading + gpsBearing;
+
+        // Bearing adjustment can be set if you are trying to
+        // correct the heading of north - setBearingAdjustment(10)
+        markerBearing = markerBearing + bearingAdjustment;
+        markerBearing = markerBearing % 360;
+
+        double rotation = Math.floor(markerBearing);
+
+        // When pointing device upwards (camera towards sky)
+        // the compass bearing can flip.
+        // In experiments this seems to happen at pitch~=-25
+        if (pitch > -25)
+            rotation = rotation * Math.PI / 180;
+
+        int renderDistance = markerDistance;
+
+        // Limit the distance of the Anchor within the scene.
+        // Prevents rendering issues.
+        if (renderDistance > distanceLimit)
+            renderDistance = distanceLimit;
+
+        // Adjustment to add markers on horizon, instead of just directly in front of camera
+        double heightAdjustment = 0;
+        // Math.round(renderDistance * (Math.tan(Math.toRadians(deviceOrientation.pitch)))) - 1.5F;
+
+        // Raise distant markers for better illusion of distance
+        // Hacky - but it works as a temporary measure
+        int cappedRealDistance = markerDistance > 500 ? 500 : markerDistance;
+        if (renderDistance != markerDistance)
+            heightAdjustment += 0.005F * (cappedRealDistance - renderDistance);
+
+        float x = 0;
+        float z = -renderDistance;
+
+        float zRotated = (float) (z * Math.cos(rotation) - x * Math.sin(rotation));
+        float xRotated = (float) -(z * Math.sin(rotation) + x * Math.cos(rotation));
+
+        return new MarkerPose(markerDistance, gpsBearing, xRotated, zRotated, (float) heightAdjustment);
+    }
+}
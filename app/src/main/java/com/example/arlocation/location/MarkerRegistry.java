@@ -0,0 +1,176 @@
+package com.example.arlocation.location;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The markers of a scene, safe to change from any thread 线程安全的标识集合
+ * <p>
+ * Changes are serialized and each one publishes a new immutable snapshot with a higher
+ * version, so readers such as the frame thread never lock or copy. Changing one marker at a
+ * time copies the whole array, so add many markers with addAll or replaceAll. Markers are
+ * compared by identity.
+ */
+public class MarkerRegistry {
+
+    public interface Listener {
+        /**
+         * Called on the thread that made the change, after the new snapshot is visible.
+         * Changes are reported in order.
+         */
+        void onMarkersChanged(LocationMarker[] added, LocationMarker[] removed, int version);
+    }
+
+    /**
+     * The markers at one version. Never changes.
+     */
+    public static final class Snapshot {
+        public final int version;
+        private final LocationMarker[] markers;
+
+        Snapshot(LocationMarker[] markers, int version) {
+            this.markers = markers;
+            this.version = version;
+        }
+
+        public int size() {
+            return markers.length;
+        }
+
+        public LocationMarker get(int i) {
+            return markers[i];
+        }
+
+        /**
+         * Read-only view of the markers, without copying
+         */
+        public List<LocationMarker> asList() {
+            return Collections.unmodifiableList(Arrays.asList(markers));
+        }
+    }
+
+    private static final LocationMarker[] NONE = new LocationMarker[0];
+
+    private final Object lock = new Object();
+    private volatile Snapshot snapshot = new Snapshot(NONE, 0);
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Increases with every change
+     */
+    public int getVersion() {
+        return snapshot.version;
+    }
+
+    public void add(LocationMarker marker) {
+        addAll(Collections.singletonList(marker));
+    }
+
+    public void addAll(Collection<? extends LocationMarker> markers) {
+        LocationMarker[] added = markers.toArray(NONE);
+        if (added.length == 0)
+            return;
+        synchronized (lock) {
+            LocationMarker[] current = snapshot.markers;
+            LocationMarker[] next = Arrays.copyOf(current, current.length + added.length);
+            System.arraycopy(added, 0, next, current.length, added.length);
+            publish(next, added, NONE);
+        }
+    }
+
+    /**
+     * @return - whether the marker was registered
+     */
+    public boolean remove(LocationMarker marker) {
+        return removeAll(Collections.singletonList(marker)) > 0;
+    }
+
+    /**
+     * @return - how many markers were removed
+     */
+    public int removeAll(Collection<? extends LocationMarker> markers) {
+        Set<LocationMarker> remove = identitySet(markers);
+        synchronized (lock) {
+            LocationMarker[] current = snapshot.markers;
+            LocationMarker[] next = new LocationMarker[current.length];
+            LocationMarker[] removed = new LocationMarker[current.length];
+            int kept = 0;
+            int removedCount = 0;
+            for (LocationMarker marker : current) {
+                if (remove.contains(marker))
+                    removed[removedCount++] = marker;
+                else
+                    next[kept++] = marker;
+            }
+            if (removedCount == 0)
+                return 0;
+            publish(Arrays.copyOf(next, kept), NONE, Arrays.copyOf(removed, removedCount));
+            return removedCount;
+        }
+    }
+
+    /**
+     * Replace all markers at once. Markers in both the old and the new set are reported as
+     * neither added nor removed.
+     */
+    public void replaceAll(Collection<? extends LocationMarker> markers) {
+        LocationMarker[] next = markers.toArray(NONE);
+        Set<LocationMarker> nextSet = identitySet(markers);
+        synchronized (lock) {
+            LocationMarker[] current = snapshot.markers;
+            Set<LocationMarker> currentSet = identitySet(Arrays.asList(current));
+            LocationMarker[] added = new LocationMarker[next.length];
+            LocationMarker[] removed = new LocationMarker[current.length];
+            int addedCount = 0;
+            int removedCount = 0;
+            for (LocationMarker marker : next) {
+                if (!currentSet.contains(marker))
+                    added[addedCount++] = marker;
+            }
+            for (LocationMarker marker : current) {
+                if (!nextSet.contains(marker))
+                    removed[removedCount++] = marker;
+            }
+            publish(next, Arrays.copyOf(added, addedCount), Arrays.copyOf(removed, removedCount));
+        }
+    }
+
+    public void clear() {
+        replaceAll(Collections.<LocationMarker>emptyList());
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Called with the lock held so listeners see changes in order 持锁通知 保证顺序
+    private void publish(LocationMarker[] markers, LocationMarker[] added, LocationMarker[] removed) {
+        Snapshot next = new Snapshot(markers, snapshot.version + 1);
+        snapshot = next;
+        for (Listener listener : listeners)
+            listener.onMarkersChanged(added, removed, next.version);
+    }
+
+    private static Set<LocationMarker> identitySet(Collection<? extends LocationMarker> markers) {
+        Set<LocationMarker> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(markers);
+        return set;
+    }
+}
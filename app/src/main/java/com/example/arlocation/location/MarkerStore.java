@@ -0,0 +1,156 @@
+package com.example.arlocation.location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Compact storage for large sets of markers 大量标识的紧凑存储
+ * <p>
+ * Coordinates and style indices are kept in primitive arrays, about 20 bytes per marker plus its
+ * name. A LocationMarker is only materialized while the marker is within its render distance,
+ * and its Node is created by the {@link StoreNodeFactory} when it is first placed. Both are released
+ * once the marker leaves range again.
+ * Thread safe; markers may be added while the scene is running.
+ */
+public class MarkerStore {
+
+    private double[] latitudes = new double[16];
+    private double[] longitudes = new double[16];
+    private short[] styles = new short[16];
+    private String[] names = new String[16];
+    private int size = 0;
+    private int version = 0;
+    private final ArrayList<MarkerStyle> styleList = new ArrayList<>();
+
+    public MarkerStore() {
+        styleList.add(new MarkerStyle());
+    }
+
+    /**
+     * Register a style for markers to use. Style 0 is the default style.
+     *
+     * @return - the style index
+     */
+    public synchronized int addStyle(MarkerStyle style) {
+        if (styleList.size() > Short.MAX_VALUE)
+            throw new IllegalStateException("Too many styles");
+        styleList.add(style);
+        return styleList.size() - 1;
+    }
+
+    public synchronized MarkerStyle getStyle(int style) {
+        return styleList.get(style);
+    }
+
+    /**
+     * @return - the id of the new marker
+     */
+    public synchronized int add(double latitude, double longitude, int style, String name) {
+        checkStyle(style);
+        ensureCapacity(size + 1);
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        styles[size] = (short) style;
+        names[size] = name;
+        version++;
+        return size++;
+    }
+
+    /**
+     * Add [count] markers of the same style, e.g. a batch from PoiImporter.
+     *
+     * @param names - may be null
+     * @return - the id of the first new marker, the rest follow in order
+     */
+    public synchronized int addAll(double[] latitudes, double[] longitudes, String[] names, int count, int style) {
+        checkStyle(style);
+        ensureCapacity(size + count);
+        System.arraycopy(latitudes, 0, this.latitudes, size, count);
+        System.arraycopy(longitudes, 0, this.longitudes, size, count);
+        Arrays.fill(styles, size, size + count, (short) style);
+        if (names != null)
+            System.arraycopy(names, 0, this.names, size, count);
+        int first = size;
+        size += count;
+        version++;
+        return first;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Changes whenever markers are added
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    public synchronized double getLatitude(int id) {
+        checkId(id);
+        return latitudes[id];
+    }
+
+    public synchronized double getLongitude(int id) {
+        checkId(id);
+        return longitudes[id];
+    }
+
+    public synchronized int getStyleIndex(int id) {
+        checkId(id);
+        return styles[id];
+    }
+
+    public synchronized String getName(int id) {
+        checkId(id);
+        return names[id];
+    }
+
+    /**
+     * Copy coordinates and render distances of up to [count] markers, starting at [offset]
+     * in the output arrays.
+     *
+     * @return - number of markers copied
+     */
+    synchronized int copyTo(double[] outLatitudes, double[] outLongitudes, int[] outRenderRadius,
+                            int offset, int count) {
+        int n = Math.min(count, size);
+        System.arraycopy(latitudes, 0, outLatitudes, offset, n);
+        System.arraycopy(longitudes, 0, outLongitudes, offset, n);
+        for (int i = 0; i < n; i++)
+            outRenderRadius[offset + i] = styleList.get(styles[i]).getOnlyRenderWhenWithin();
+        return n;
+    }
+
+    /**
+     * Create a marker without a node for [id], with its style applied
+     */
+    synchronized LocationMarker materialize(int id) {
+        checkId(id);
+        LocationMarker marker = new LocationMarker(longitudes[id], latitudes[id]);
+        styleList.get(styles[id]).applyTo(marker);
+        marker.storeId = id;
+        return marker;
+    }
+
+    private void checkStyle(int style) {
+        if (style < 0 || style >= styleList.size())
+            throw new IllegalArgumentException("Unknown style " + style);
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("No marker " + id);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= latitudes.length)
+            return;
+        int grown = Math.max(capacity, latitudes.length * 3 / 2);
+        latitudes = Arrays.copyOf(latitudes, grown);
+        longitudes = Arrays.copyOf(longitudes, grown);
+        styles = Arrays.copyOf(styles, grown);
+        names = Arrays.copyOf(names, grown);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.arlocation.location;
+
+/**
+ * Style shared by many markers in a MarkerStore 存储中多个标识共用的样式
+ * <p>
+ * Same meaning as the matching LocationMarker properties, copied onto a marker when it is
+ * materialized. Changing a style only affects markers materialized afterwards.
+ */
+public class MarkerStyle {
+
+    private float scaleModifier = 1F;
+    private float height = 0F;
+    private int onlyRenderWhenWithin = Integer.MAX_VALUE;
+    private LocationMarker.ScalingMode scalingMode = LocationMarker.ScalingMode.FIXED_SIZE_ON_SCREEN;
+    private float gradualScalingMinScale = 0.8F;
+    private float gradualScalingMaxScale = 1.4F;
+
+    void applyTo(LocationMarker marker) {
+        marker.setScaleModifier(scaleModifier);
+        marker.setHeight(height);
+        marker.setOnlyRenderWhenWithin(onlyRenderWhenWithin);
+        marker.setScalingMode(scalingMode);
+        marker.setGradualScalingMinScale(gradualScalingMinScale);
+        marker.setGradualScalingMaxScale(gradualScalingMaxScale);
+    }
+
+    public float getScaleModifier() {
+        return scaleModifier;
+    }
+
+    public void setScaleModifier(float scaleModifier) {
+        this.scaleModifier = scaleModifier;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    public void setHeight(float height) {
+        this.height = height;
+    }
+
+    public int getOnlyRenderWhenWithin() {
+        return onlyRenderWhenWithin;
+    }
+
+    /**
+     * Only render markers of this style when within [onlyRenderWhenWithin] metres.
+     * Markers without a limit are always materialized, so large stores should set one.
+     */
+    public void setOnlyRenderWhenWithin(int onlyRenderWhenWithin) {
+        this.onlyRenderWhenWithin = onlyRenderWhenWithin;
+    }
+
+    public LocationMarker.ScalingMode getScalingMode() {
+        return scalingMode;
+    }
+
+    public void setScalingMode(LocationMarker.ScalingMode scalingMode) {
+        this.scalingMode = scalingMode;
+    }
+
+    public float getGradualScalingMinScale() {
+        return gradualScalingMinScale;
+    }
+
+    public void setGradualScalingMinScale(float gradualScalingMinScale) {
+        this.gradualScalingMinScale = gradualScalingMinScale;
+    }
+
+    public float getGradualScalingMaxScale() {
+        return gradualScalingMaxScale;
+    }
+
+    public void setGradualScalingMaxScale(float gradualScalingMaxScale) {
+        this.gradualScalingMaxScale = gradualScalingMaxScale;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.arlocation.location;
+
+/**
+ * Target poses of one anchor refresh, computed off the frame thread 一次刷新中所有标识的目标位置
+ * <p>
+ * Immutable once built, so it can be handed from the pose thread to the frame thread as is.
+ */
+public class PoseBatch {
+
+    private final LocationMarker[] markers;
+    private final MarkerPose[] poses;
+    private final float[] labelHeights;
+    // Markers whose anchors should be removed, e.g. merged into a cluster 需要移除Anchor的标识
+    private final LocationMarker[] hidden;
+    // Whether every anchor should be re-created, ignoring diff refreshing
+    public final boolean fullRefresh;
+    // Camera pose when the refresh started, the poses are relative to it 刷新开始时的相机位姿
+    private final float[] cameraTranslation;
+    private final float[] cameraRotation;
+
+    PoseBatch(LocationMarker[] markers, MarkerPose[] poses, float[] labelHeights,
+              LocationMarker[] hidden, boolean fullRefresh,
+              float[] cameraTranslation, float[] cameraRotation) {
+        this.markers = markers;
+        this.poses = poses;
+        this.labelHeights = labelHeights;
+        this.hidden = hidden;
+        this.fullRefresh = fullRefresh;
+        this.cameraTranslation = cameraTranslation;
+        this.cameraRotation = cameraRotation;
+    }
+
+    public int size() {
+        return poses.length;
+    }
+
+    public LocationMarker getMarker(int i) {
+        return markers[i];
+    }
+
+    public MarkerPose getPose(int i) {
+        return poses[i];
+    }
+
+    /**
+     * Extra height in metres that keeps the label clear of overlapping ones, 0 if not offset
+     */
+    public float getLabelHeight(int i) {
+        return labelHeights[i];
+    }
+
+    public LocationMarker[] getHidden() {
+        return hidden;
+    }
+
+    /**
+     * Camera position x, y, z when the refresh started. Not copied, don't modify.
+     */
+    public float[] getCameraTranslation() {
+        return cameraTranslation;
+    }
+
+    /**
+     * Camera rotation x, y, z, w when the refresh started. Not copied, don't modify.
+     */
+    public float[] getCameraRotation() {
+        return cameraRotation;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.arlocation.location;
+
+/**
+ * Decides when anchors need to be re-calculated 根据位置、朝向等变化决定何时刷新Anchor
+ * <p>
+ * A refresh is due when the user moved, turned, got a much more accurate fix or AR tracking
+ * came back, but never more often than the min interval. The max interval is a safety net for
+ * slow drift and can be turned off, so a user standing still costs nothing. Pure logic, the
+ * caller passes in the time.
+ */
+public class RefreshScheduler {
+
+    public static final int REASON_MOVED = 1;
+    public static final int REASON_HEADING = 2;
+    public static final int REASON_ACCURACY = 4;
+    public static final int REASON_TRACKING = 8;
+    public static final int REASON_INTERVAL = 16;
+
+    private static final double METRES_PER_DEGREE = 111195.0;
+
+    private long minInterval = 1000;
+    private long maxInterval = 30000;
+    private float distanceThreshold = 3F;
+    private float headingThreshold = 15F;
+    private float accuracyRatio = 0.5F;
+
+    private boolean hasBaseline = false;
+    private long lastTime;
+    private double lastLatitude;
+    private double lastLongitude;
+    private float lastAccuracy;
+    private float lastHeading;
+    private boolean trackingLost = false;
+
+    /**
+     * @param now       - time in milliseconds
+     * @param latitude  - current location
+     * @param longitude - current location
+     * @param accuracy  - accuracy of the current location in metres, 0 if unknown
+     * @param heading   - device heading in degrees
+     * @return - the REASON_ flags of a due refresh, 0 when none is needed
+     */
+    public int check(long now, double latitude, double longitude, float accuracy, float heading) {
+        if (!hasBaseline)
+            return REASON_MOVED;
+        // Tracking recovery isn't held back by the min interval 跟踪恢复后立即刷新
+        if (trackingLost)
+            return REASON_TRACKING;
+
+        long elapsed = now - lastTime;
+        if (elapsed < minInterval)
+            return 0;
+
+        int reasons = 0;
+        double north = (latitude - lastLatitude) * METRES_PER_DEGREE;
+        double east = (longitude - lastLongitude) * METRES_PER_DEGREE * Math.cos(Math.toRadians(lastLatitude));
+        if (north * north + east * east >= distanceThreshold * distanceThreshold)
+            reasons |= REASON_MOVED;
+
+        float turned = Math.abs(((heading - lastHeading) % 360 + 540) % 360 - 180);
+        if (turned >= headingThreshold)
+            reasons |= REASON_HEADING;
+
+        if (accuracy > 0 && lastAccuracy > 0 && accuracy <= lastAccuracy * accuracyRatio)
+            reasons |= REASON_ACCURACY;
+
+        if (maxInterval > 0 && elapsed >= maxInterval)
+            reasons |= REASON_INTERVAL;
+        return reasons;
+    }
+
+    /**
+     * Record the state a refresh was started from
+     */
+    public void onRefresh(long now, double latitude, double longitude, float accuracy, float heading) {
+        hasBaseline = true;
+        lastTime = now;
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastAccuracy = accuracy;
+        lastHeading = heading;
+        trackingLost = false;
+    }
+
+    /**
+     * AR tracking was lost, refresh as soon as it is back
+     */
+    public void onTrackingLost() {
+        trackingLost = true;
+    }
+
+    /**
+     * Forget the last refresh, the next check is always due
+     */
+    public void reset() {
+        hasBaseline = false;
+        trackingLost = false;
+    }
+
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    /**
+     * Shortest time in milliseconds between refreshes. Default 1000
+     */
+    public void setMinInterval(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    public long getMaxInterval() {
+        return maxInterval;
+    }
+
+    /**
+     * Refresh at least this often in milliseconds, 0 to only refresh on changes. Default 30000
+     */
+    public void setMaxInterval(long maxInterval) {
+        this.maxInterval = maxInterval;
+    }
+
+    public float getDistanceThreshold() {
+        return distanceThreshold;
+    }
+
+    /**
+     * Metres moved before a refresh. Default 3
+     */
+    public void setDistanceThreshold(float distanceThreshold) {
+        this.distanceThreshold = distanceThreshold;
+    }
+
+    public float getHeadingThreshold() {
+        return headingThreshold;
+    }
+
+    /**
+     * Degrees turned before a refresh. Default 15
+     */
+    public void setHeadingThreshold(float headingThreshold) {
+        this.headingThreshold = headingThreshold;
+    }
+
+    public float getAccuracyRatio() {
+        return accuracyRatio;
+    }
+
+    /**
+     * Refresh when the accuracy drops to this fraction of what the last refresh used.
+     * Default 0.5
+     */
+    public void setAccuracyRatio(float accuracyRatio) {
+        this.accuracyRatio = accuracyRatio;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.arlocation.location;
+
+import com.google.ar.sceneform.Node;
+
+/**
+ * Creates the node shown for a marker of a MarkerStore 为存储中的标识创建显示结点
+ * <p>
+ * Called on the UI thread when a materialized marker is first placed. The factory may also set a
+ * render event on the marker with {@link LocationScene#setRenderEvent}.
+ */
+public interface StoreNodeFactory {
+    /**
+     * @param id - the marker's id in the store
+     */
+    Node createNode(LocationMarker marker, int id);
+}
@@ -0,0 +1,21 @@
+package com.example.arlocation.location.engine;
+
+/**
+ * Creates and detaches anchors, e.g. ARCore anchors of a Session 创建和释放Anchor
+ *
+ * @param <A> - the anchor type
+ */
+public interface AnchorFactory<A> {
+
+    /**
+     * Place an anchor at x, y, z metres from a camera pose, in that pose's frame. The pose is the
+     * camera's when the refresh started, the camera may have moved since.
+     *
+     * @param translation - camera position x, y, z in metres
+     * @param rotation    - camera rotation as a unit quaternion x, y, z, w
+     * @return - the anchor, or null if it can't be placed right now
+     */
+    A createAnchor(float[] translation, float[] rotation, float x, float y, float z);
+
+    void detach(A anchor);
+}
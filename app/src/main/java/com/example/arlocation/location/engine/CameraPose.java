@@ -0,0 +1,15 @@
+package com.example.arlocation.location.engine;
+
+/**
+ * Where the AR camera is on the current frame 当前帧的相机位姿
+ */
+public interface CameraPose {
+
+    boolean isTracking();
+
+    /**
+     * @param translation - receives the camera's world position x, y, z in metres
+     * @param rotation    - receives the camera's rotation as a unit quaternion x, y, z, w
+     */
+    void getPose(float[] translation, float[] rotation);
+}
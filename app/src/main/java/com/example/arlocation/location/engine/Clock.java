@@ -0,0 +1,12 @@
+package com.example.arlocation.location.engine;
+
+/**
+ * Monotonic time source 单调时钟
+ */
+public interface Clock {
+
+    /**
+     * Milliseconds since some fixed point, never going backwards
+     */
+    long uptimeMillis();
+}
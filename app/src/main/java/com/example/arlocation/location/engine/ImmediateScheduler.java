@@ -0,0 +1,18 @@
+package com.example.arlocation.location.engine;
+
+/**
+ * Runs every task right away on the calling thread, so a refresh started on one frame is
+ * applied on the next 在调用线程立即执行 结果可复现
+ */
+public class ImmediateScheduler implements Scheduler {
+
+    @Override
+    public void runInBackground(Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public void runOnFrameThread(Runnable task) {
+        task.run();
+    }
+}
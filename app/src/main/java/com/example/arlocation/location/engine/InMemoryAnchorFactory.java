@@ -0,0 +1,65 @@
+package com.example.arlocation.location.engine;
+
+/**
+ * Anchors that are just world positions, composed with the camera pose the same way as
+ * ARCore's Pose.compose 仅记录世界坐标的Anchor
+ */
+public class InMemoryAnchorFactory implements AnchorFactory<InMemoryAnchorFactory.Anchor> {
+
+    public static class Anchor {
+        public final float x;
+        public final float y;
+        public final float z;
+        private boolean detached = false;
+
+        Anchor(float x, float y, float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public boolean isDetached() {
+            return detached;
+        }
+    }
+
+    private int liveCount = 0;
+    private int createdCount = 0;
+
+    @Override
+    public Anchor createAnchor(float[] translation, float[] rotation, float x, float y, float z) {
+        float qx = rotation[0];
+        float qy = rotation[1];
+        float qz = rotation[2];
+        float qw = rotation[3];
+        // Rotate by the camera: v + w t + q x t, with t = 2 q x v 按相机旋转
+        float cx = 2 * (qy * z - qz * y);
+        float cy = 2 * (qz * x - qx * z);
+        float cz = 2 * (qx * y - qy * x);
+        float rx = x + qw * cx + (qy * cz - qz * cy);
+        float ry = y + qw * cy + (qz * cx - qx * cz);
+        float rz = z + qw * cz + (qx * cy - qy * cx);
+        liveCount++;
+        createdCount++;
+        return new Anchor(translation[0] + rx, translation[1] + ry, translation[2] + rz);
+    }
+
+    @Override
+    public void detach(Anchor anchor) {
+        if (!anchor.detached) {
+            anchor.detached = true;
+            liveCount--;
+        }
+    }
+
+    /**
+     * Anchors created and not yet detached
+     */
+    public int getLiveCount() {
+        return liveCount;
+    }
+
+    public int getCreatedCount() {
+        return createdCount;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.arlocation.location.engine;
+
+/**
+ * A camera that stays where it is put 内存中的相机 用于测试和基准
+ */
+public class InMemoryCamera implements CameraPose {
+
+    private final float[] translation = new float[3];
+    private final float[] rotation = {0, 0, 0, 1};
+    private boolean tracking = true;
+
+    @Override
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    public void setTracking(boolean tracking) {
+        this.tracking = tracking;
+    }
+
+    @Override
+    public void getPose(float[] translation, float[] rotation) {
+        System.arraycopy(this.translation, 0, translation, 0, 3);
+        System.arraycopy(this.rotation, 0, rotation, 0, 4);
+    }
+
+    public void setTranslation(float x, float y, float z) {
+        translation[0] = x;
+        translation[1] = y;
+        translation[2] = z;
+    }
+
+    /**
+     * Turn the camera to [heading] degrees clockwise around the vertical axis
+     */
+    public void setYaw(float heading) {
+        double half = Math.toRadians(-heading) / 2;
+        rotation[0] = 0;
+        rotation[1] = (float) Math.sin(half);
+        rotation[2] = 0;
+        rotation[3] = (float) Math.cos(half);
+    }
+}
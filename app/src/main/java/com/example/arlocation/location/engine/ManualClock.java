@@ -0,0 +1,22 @@
+package com.example.arlocation.location.engine;
+
+/**
+ * A clock that only moves when told to 手动推进的时钟
+ */
+public class ManualClock implements Clock {
+
+    private long now;
+
+    public ManualClock(long now) {
+        this.now = now;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return now;
+    }
+
+    public void advance(long millis) {
+        now += millis;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.arlocation.location.engine;
+
+/**
+ * Where the engine runs its work 任务调度
+ */
+public interface Scheduler {
+
+    /**
+     * Run pose math away from the frame thread. Tasks must run one at a time, in order.
+     */
+    void runInBackground(Runnable task);
+
+    /**
+     * Run on the frame thread, e.g. to handle a change made on another thread
+     */
+    void runOnFrameThread(Runnable task);
+}
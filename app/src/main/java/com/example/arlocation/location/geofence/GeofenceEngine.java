@@ -0,0 +1,293 @@
+package com.example.arlocation.location.geofence;
+
+import com.example.arlocation.location.LocationMarker;
+import com.example.arlocation.location.MarkerIndex;
+import com.example.arlocation.location.MarkerRegistry;
+import com.example.arlocation.location.engine.Clock;
+import com.example.arlocation.location.utils.LocationUtils;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Enter, dwell and exit events for the markers of a MarkerRegistry 标识的地理围栏
+ * <p>
+ * Driven by location fixes rather than frames, so its cost doesn't depend on the frame rate.
+ * Each fix is checked on the executor against the markers the index returns around the user,
+ * plus the markers the user is currently inside. Fixes that arrive while one is being checked
+ * replace each other, only the latest is used.
+ * <p>
+ * A marker is entered within its radius and only exited beyond its radius plus the exit
+ * margin, so a position jittering around the edge doesn't flap between the two. Dwell is
+ * checked on each fix, so it fires on the first fix after the dwell time has passed.
+ */
+public class GeofenceEngine {
+
+    private static class Fix {
+        final double latitude;
+        final double longitude;
+        final float accuracy;
+
+        Fix(double latitude, double longitude, float accuracy) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracy = accuracy;
+        }
+    }
+
+    // A marker the user is inside of 用户所在的围栏
+    private static class Fence {
+        final long enteredAt;
+        boolean dwelled = false;
+
+        Fence(long enteredAt) {
+            this.enteredAt = enteredAt;
+        }
+    }
+
+    private final MarkerRegistry registry;
+    private final Executor executor;
+    private final Clock clock;
+    private final MarkerRegistry.Listener registryListener = (added, removed, version) -> requestCheck();
+    private final AtomicReference<Fix> pending = new AtomicReference<>();
+    private volatile GeofenceListener listener;
+    private volatile boolean closed = false;
+
+    private volatile float radius = 50;
+    private volatile float exitMargin = 10;
+    private volatile long dwellTime = 30000;
+    private volatile float maxAccuracy = 100;
+
+    // Only touched on the executor 仅在执行器中访问
+    private final MarkerIndex index = new MarkerIndex();
+    private final IdentityHashMap<LocationMarker, Fence> inside = new IdentityHashMap<>();
+    private final ArrayList<LocationMarker> entered = new ArrayList<>();
+    private final double[] result = new double[2];
+    private final MarkerIndex.Visitor visitor = this::visit;
+    private List<LocationMarker> markers = new ArrayList<>();
+    private int indexedVersion = -1;
+    private float indexedRadius = -1;
+    private float largestRadius = 0;
+    private Fix lastFix;
+    // The fix being checked 当前检查的定位
+    private Fix fix;
+    private float fixRadius;
+    private long now;
+    private int candidates;
+    private volatile int candidateCount = 0;
+
+    /**
+     * @param executor - where fixes are checked and the listener is called, e.g. a single
+     *                 background thread
+     */
+    public GeofenceEngine(MarkerRegistry registry, Executor executor, Clock clock) {
+        this.registry = registry;
+        this.executor = executor;
+        this.clock = clock;
+        registry.addListener(registryListener);
+    }
+
+    /**
+     * Stop following the registry and ignore further fixes, e.g. before shutting the executor
+     * down. Checks already queued still run.
+     */
+    public void close() {
+        closed = true;
+        registry.removeListener(registryListener);
+    }
+
+    public void setListener(GeofenceListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Latest location in WGS-84, from any thread
+     *
+     * @param accuracy - metres, 0 if unknown
+     */
+    public void onLocation(double latitude, double longitude, float accuracy) {
+        if (closed)
+            return;
+        if (pending.getAndSet(new Fix(latitude, longitude, accuracy)) == null)
+            executor.execute(this::checkPending);
+    }
+
+    // Markers changed, re-check the last fix so removed markers are dropped 标识变化后重新检查
+    private void requestCheck() {
+        if (closed)
+            return;
+        executor.execute(() -> {
+            if (lastFix != null && pending.get() == null)
+                check(lastFix);
+        });
+    }
+
+    private void checkPending() {
+        Fix fix = pending.getAndSet(null);
+        if (fix != null)
+            check(fix);
+    }
+
+    private void check(Fix fix) {
+        if (maxAccuracy > 0 && fix.accuracy > maxAccuracy)
+            return;
+        lastFix = fix;
+        this.fix = fix;
+        now = clock.uptimeMillis();
+        float radius = this.radius;
+        float exitMargin = this.exitMargin;
+        fixRadius = radius;
+        updateIndex(radius);
+
+        // Only markers near the user can be entered 只有附近的标识可能被进入
+        candidates = 0;
+        entered.clear();
+        index.query(fix.latitude, fix.longitude, largestRadius, visitor);
+        candidateCount = candidates;
+
+        GeofenceListener listener = this.listener;
+        if (listener != null) {
+            for (LocationMarker marker : entered)
+                listener.onEnter(marker, distance(fix, marker));
+        }
+
+        // Markers the user was inside of, wherever the user is now 已进入的标识
+        Iterator<Map.Entry<LocationMarker, Fence>> it = inside.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<LocationMarker, Fence> entry = it.next();
+            LocationMarker marker = entry.getKey();
+            Fence fence = entry.getValue();
+            double distance = distance(fix, marker);
+            if (distance > radiusOf(marker, radius) + exitMargin) {
+                it.remove();
+                if (listener != null)
+                    listener.onExit(marker, distance);
+            } else if (!fence.dwelled && dwellTime > 0 && now - fence.enteredAt >= dwellTime) {
+                fence.dwelled = true;
+                if (listener != null)
+                    listener.onDwell(marker, distance, now - fence.enteredAt);
+            }
+        }
+    }
+
+    private void visit(int id) {
+        candidates++;
+        LocationMarker marker = markers.get(id);
+        if (inside.containsKey(marker))
+            return;
+        if (distance(fix, marker) <= radiusOf(marker, fixRadius)) {
+            inside.put(marker, new Fence(now));
+            entered.add(marker);
+        }
+    }
+
+    // Rebuild the index after markers were added or removed 标识增删后重建索引
+    private void updateIndex(float radius) {
+        MarkerRegistry.Snapshot snapshot = registry.getSnapshot();
+        if (snapshot.version == indexedVersion && radius == indexedRadius)
+            return;
+        markers = snapshot.asList();
+        int count = markers.size();
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        float largest = radius;
+        IdentityHashMap<LocationMarker, Boolean> present = new IdentityHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            LocationMarker marker = markers.get(i);
+            latitudes[i] = marker.latitude;
+            longitudes[i] = marker.longitude;
+            largest = Math.max(largest, radiusOf(marker, radius));
+            present.put(marker, Boolean.TRUE);
+        }
+        index.build(latitudes, longitudes, count);
+        largestRadius = largest;
+        indexedVersion = snapshot.version;
+        indexedRadius = radius;
+        // Removed markers leave without an exit event 已移除的标识不再触发事件
+        inside.keySet().retainAll(present.keySet());
+    }
+
+    private double distance(Fix fix, LocationMarker marker) {
+        LocationUtils.distanceAndBearing(fix.latitude, fix.longitude, marker.latitude, marker.longitude,
+                LocationUtils.Accuracy.AUTO, result);
+        return result[0];
+    }
+
+    private static float radiusOf(LocationMarker marker, float radius) {
+        float markerRadius = marker.getGeofenceRadius();
+        return markerRadius > 0 ? markerRadius : radius;
+    }
+
+    /**
+     * Force the index to be rebuilt on the next fix, e.g. after moving a marker or changing
+     * its geofence radius in place
+     */
+    public void refreshMarkerIndex() {
+        if (closed)
+            return;
+        executor.execute(() -> indexedVersion = -1);
+    }
+
+    /**
+     * Whether the user is currently inside [marker]. Only reliable on the executor.
+     */
+    public boolean isInside(LocationMarker marker) {
+        return inside.containsKey(marker);
+    }
+
+    /**
+     * Markers checked for the last fix 上次检查的候选标识数量
+     */
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    /**
+     * Metres within which a marker without its own geofence radius is entered. Default 50m
+     */
+    public void setRadius(float radius) {
+        this.radius = radius;
+    }
+
+    public float getExitMargin() {
+        return exitMargin;
+    }
+
+    /**
+     * How far beyond its radius the user must move to exit a marker. Default 10m
+     */
+    public void setExitMargin(float exitMargin) {
+        this.exitMargin = exitMargin;
+    }
+
+    public long getDwellTime() {
+        return dwellTime;
+    }
+
+    /**
+     * Milliseconds inside a marker before onDwell, 0 to disable. Default 30s
+     */
+    public void setDwellTime(long dwellTime) {
+        this.dwellTime = dwellTime;
+    }
+
+    public float getMaxAccuracy() {
+        return maxAccuracy;
+    }
+
+    /**
+     * Fixes less accurate than this many metres are ignored, 0 to use all. Default 100m
+     */
+    public void setMaxAccuracy(float maxAccuracy) {
+        this.maxAccuracy = maxAccuracy;
+    }
+}
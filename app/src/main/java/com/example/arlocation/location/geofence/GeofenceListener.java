@@ -0,0 +1,27 @@
+package com.example.arlocation.location.geofence;
+
+import com.example.arlocation.location.LocationMarker;
+
+/**
+ * Proximity events of GeofenceEngine, called on the engine's executor 地理围栏事件 在引擎的执行器中调用
+ */
+public interface GeofenceListener {
+    /**
+     * The user came within the marker's radius
+     *
+     * @param distance - metres
+     */
+    void onEnter(LocationMarker marker, double distance);
+
+    /**
+     * The user has stayed inside the marker's radius for the dwell time. Called once per visit.
+     *
+     * @param insideMillis - time since onEnter
+     */
+    void onDwell(LocationMarker marker, double distance, long insideMillis);
+
+    /**
+     * The user moved beyond the marker's radius plus the exit margin
+     */
+    void onExit(LocationMarker marker, double distance);
+}
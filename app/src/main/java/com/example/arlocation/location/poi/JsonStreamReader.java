@@ -0,0 +1,298 @@
+package com.example.arlocation.location.poi;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser over a JSON character stream 流式JSON解析
+ * <p>
+ * Same shape as android.util.JsonReader, but plain Java so it can be tested on the JVM. Only a
+ * small buffer is held, never the whole document. Lenient about commas and colons between
+ * tokens; the structure itself is checked.
+ */
+class JsonStreamReader implements Closeable {
+
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+
+    // Open containers, true for objects 当前嵌套的容器 true表示对象
+    private boolean[] scopes = new boolean[32];
+    private int depth = 0;
+    private boolean nameExpected = false;
+    private Token peeked;
+    private final StringBuilder text = new StringBuilder();
+
+    JsonStreamReader(Reader in) {
+        this.in = in;
+    }
+
+    Token peek() throws IOException {
+        if (peeked != null)
+            return peeked;
+        int c = nextNonSeparator();
+        switch (c) {
+            case -1:
+                if (depth > 0)
+                    throw new EOFException("Unterminated JSON document");
+                return peeked = Token.END_DOCUMENT;
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '}':
+                return peeked = Token.END_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case ']':
+                return peeked = Token.END_ARRAY;
+            case '"':
+                return peeked = inObject() && nameExpected ? Token.NAME : Token.STRING;
+            case 't':
+            case 'f':
+                return peeked = Token.BOOLEAN;
+            case 'n':
+                return peeked = Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9'))
+                    return peeked = Token.NUMBER;
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(true);
+        nameExpected = true;
+    }
+
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        if (depth == 0 || !scopes[depth - 1])
+            throw syntaxError("Mismatched '}'");
+        depth--;
+        valueConsumed();
+    }
+
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(false);
+    }
+
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        if (depth == 0 || scopes[depth - 1])
+            throw syntaxError("Mismatched ']'");
+        depth--;
+        valueConsumed();
+    }
+
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        String name = readString();
+        nameExpected = false;
+        return name;
+    }
+
+    String nextString() throws IOException {
+        Token token = peek();
+        String value;
+        if (token == Token.STRING) {
+            peeked = null;
+            value = readString();
+        } else if (token == Token.NUMBER || token == Token.BOOLEAN || token == Token.NULL) {
+            peeked = null;
+            value = readLiteral();
+            if (token == Token.NULL)
+                value = null;
+        } else {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        valueConsumed();
+        return value;
+    }
+
+    double nextDouble() throws IOException {
+        Token token = peek();
+        String value;
+        if (token == Token.NUMBER) {
+            peeked = null;
+            value = readLiteral();
+        } else if (token == Token.STRING) {
+            peeked = null;
+            value = readString();
+        } else {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        valueConsumed();
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + value);
+        }
+    }
+
+    void skipValue() throws IOException {
+        int open = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    open++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    open++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    open--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    open--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case END_DOCUMENT:
+                    throw new EOFException("Unterminated JSON document");
+                default:
+                    nextString();
+                    break;
+            }
+        } while (open > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean inObject() {
+        return depth > 0 && scopes[depth - 1];
+    }
+
+    private void push(boolean object) {
+        if (depth == scopes.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(scopes, 0, grown, 0, depth);
+            scopes = grown;
+        }
+        scopes[depth++] = object;
+    }
+
+    private void valueConsumed() {
+        nameExpected = inObject();
+    }
+
+    private void expect(Token token) throws IOException {
+        Token actual = peek();
+        if (actual != token)
+            throw syntaxError("Expected " + token + " but was " + actual);
+        peeked = null;
+        if (token != Token.NAME)
+            pos++; // structural characters are a single char 结构字符只有一个字符
+    }
+
+    // Skip whitespace, commas and colons and return the next char without consuming it
+    private int nextNonSeparator() throws IOException {
+        while (true) {
+            if (pos == limit && !fill())
+                return -1;
+            char c = buffer[pos];
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' || c == ':')
+                pos++;
+            else
+                return c;
+        }
+    }
+
+    private String readString() throws IOException {
+        pos++; // opening quote
+        text.setLength(0);
+        while (true) {
+            if (pos == limit && !fill())
+                throw new EOFException("Unterminated string");
+            char c = buffer[pos++];
+            if (c == '"')
+                return text.toString();
+            if (c != '\\') {
+                text.append(c);
+                continue;
+            }
+            if (pos == limit && !fill())
+                throw new EOFException("Unterminated escape");
+            char escaped = buffer[pos++];
+            switch (escaped) {
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        if (pos == limit && !fill())
+                            throw new EOFException("Unterminated escape");
+                        int digit = Character.digit(buffer[pos++], 16);
+                        if (digit < 0)
+                            throw syntaxError("Invalid unicode escape");
+                        code = code * 16 + digit;
+                    }
+                    text.append((char) code);
+                    break;
+                default:
+                    text.append(escaped);
+                    break;
+            }
+        }
+    }
+
+    // Numbers, true, false and null 数字和字面量
+    private String readLiteral() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (pos == limit && !fill())
+                break;
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.' || c == 'E')
+                text.append(c);
+            else
+                break;
+            pos++;
+        }
+        return text.toString();
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        pos = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " in JSON document");
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.arlocation.location.poi;
+
+/**
+ * A run of imported points, coordinates in WGS-84 一批导入的兴趣点
+ */
+public class PoiBatch {
+
+    public final double[] latitudes;
+    public final double[] longitudes;
+    // Name of each point, or null 名称 可能为空
+    public final String[] names;
+
+    PoiBatch(double[] latitudes, double[] longitudes, String[] names) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.names = names;
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+}
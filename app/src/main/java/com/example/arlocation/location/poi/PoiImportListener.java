@@ -0,0 +1,19 @@
+package com.example.arlocation.location.poi;
+
+import java.io.IOException;
+
+/**
+ * Progress of LocationScene.importMarkers, called on the UI thread 导入进度回调 在UI线程调用
+ */
+public interface PoiImportListener {
+    /**
+     * @param totalBytes - size of the file
+     */
+    void onProgress(long bytesRead, long totalBytes);
+
+    /**
+     * @param count - points imported, including those the factory left out
+     * @param error - why the import stopped early, or null
+     */
+    void onFinished(int count, IOException error);
+}
@@ -0,0 +1,498 @@
+package com.example.arlocation.location.poi;
+
+import com.example.arlocation.location.utils.GCJ2WGSUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Streams points of interest out of CSV or GeoJSON files 从CSV或GeoJSON文件流式导入兴趣点
+ * <p>
+ * The document is parsed as it is read and points are handed out in batches, so memory use
+ * depends on the batch size, not on the file size.
+ * <ul>
+ * <li>CSV: the first row names the columns. Latitude is read from lat, latitude or y, longitude
+ * from lon, lng, longitude or x, and the name from name or title. Quoted fields follow RFC 4180.</li>
+ * <li>GeoJSON: a FeatureCollection, or a single Feature, with Point geometries. The name comes
+ * from properties.name. Other geometry types are skipped.</li>
+ * </ul>
+ * Rows without valid coordinates are skipped and counted, see {@link #getSkipped()}.
+ * Runs on the calling thread; one import at a time per importer.
+ */
+public class PoiImporter {
+
+    public enum Format {
+        CSV, GEOJSON
+    }
+
+    /**
+     * Called on the importing thread
+     */
+    public interface Listener {
+        void onBatch(PoiBatch batch);
+
+        /**
+         * @param totalBytes - size of the input, or -1 if unknown
+         */
+        void onProgress(long bytesRead, long totalBytes);
+    }
+
+    private int batchSize = 1000;
+    private boolean convertFromGcj = false;
+    private GCJ2WGSUtils.Trig gcjTrig = GCJ2WGSUtils.Trig.TABLE;
+    private char delimiter = ',';
+    private volatile boolean cancelled = false;
+    private int skipped = 0;
+
+    // Current batch 当前批次
+    private double[] latitudes;
+    private double[] longitudes;
+    private String[] names;
+    private int batchCount;
+    private int imported;
+    private Listener listener;
+    private CountingInputStream counter;
+    private long totalBytes;
+    // GeoJSON feature being read 正在读取的Feature
+    private boolean featureHasPoint;
+    private double featureLatitude;
+    private double featureLongitude;
+    private String featureName;
+
+    /**
+     * Guess the format from a file name, GeoJSON for .json and .geojson, CSV otherwise
+     */
+    public static Format formatOf(String fileName) {
+        String lower = fileName.toLowerCase(Locale.US);
+        return lower.endsWith(".json") || lower.endsWith(".geojson") ? Format.GEOJSON : Format.CSV;
+    }
+
+    /**
+     * Import a local file through a memory-mapped buffer.
+     *
+     * @return - number of points imported
+     */
+    public int importFile(File file, Format format, Listener listener) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // Too large to map in one piece 文件过大 无法一次映射
+                try (InputStream in = new FileInputStream(file)) {
+                    return importStream(new BufferedInputStream(in, 64 * 1024), size, format, listener);
+                }
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return importStream(new ByteBufferInputStream(mapped), size, format, listener);
+        }
+    }
+
+    /**
+     * Import from a stream of UTF-8 text. The stream is not closed.
+     *
+     * @param totalBytes - size of the stream for progress, or -1 if unknown
+     * @return - number of points imported
+     */
+    public int importStream(InputStream in, long totalBytes, Format format, Listener listener) throws IOException {
+        this.listener = listener;
+        this.counter = new CountingInputStream(in);
+        this.totalBytes = totalBytes;
+        cancelled = false;
+        skipped = 0;
+        imported = 0;
+        featureHasPoint = false;
+        featureName = null;
+        newBatch();
+
+        Reader reader = new InputStreamReader(counter, StandardCharsets.UTF_8);
+        if (format == Format.GEOJSON)
+            readGeoJson(new JsonStreamReader(reader));
+        else
+            readCsv(reader);
+
+        flush();
+        listener.onProgress(counter.count, totalBytes);
+        this.listener = null;
+        return imported;
+    }
+
+    /**
+     * Stop the running import after the current point. Points already delivered stay delivered.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void readCsv(Reader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader, delimiter);
+        ArrayList<String> row = new ArrayList<>();
+        if (!csv.readRow(row))
+            return;
+
+        int latColumn = -1;
+        int lonColumn = -1;
+        int nameColumn = -1;
+        for (int i = 0; i < row.size(); i++) {
+            String column = row.get(i).trim().toLowerCase(Locale.US);
+            if (column.equals("lat") || column.equals("latitude") || column.equals("y"))
+                latColumn = i;
+            else if (column.equals("lon") || column.equals("lng") || column.equals("longitude") || column.equals("x"))
+                lonColumn = i;
+            else if (column.equals("name") || column.equals("title"))
+                nameColumn = i;
+        }
+        if (latColumn < 0 || lonColumn < 0)
+            throw new IOException("CSV header has no latitude and longitude columns");
+
+        while (!cancelled && csv.readRow(row)) {
+            if (row.size() <= Math.max(latColumn, lonColumn)) {
+                skipped++;
+                continue;
+            }
+            try {
+                double latitude = Double.parseDouble(row.get(latColumn).trim());
+                double longitude = Double.parseDouble(row.get(lonColumn).trim());
+                String name = nameColumn >= 0 && nameColumn < row.size() ? row.get(nameColumn) : null;
+                add(latitude, longitude, name);
+            } catch (NumberFormatException e) {
+                skipped++;
+            }
+        }
+    }
+
+    private void readGeoJson(JsonStreamReader json) throws IOException {
+        json.beginObject();
+        while (!cancelled && json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("features")) {
+                json.beginArray();
+                while (!cancelled && json.hasNext())
+                    readFeature(json);
+                if (!cancelled)
+                    json.endArray();
+            } else if (name.equals("geometry") || name.equals("properties")) {
+                // The document is a single Feature 整个文档为单个Feature
+                readFeatureMember(json, name);
+            } else {
+                json.skipValue();
+            }
+        }
+        if (featureHasPoint)
+            addFeature();
+    }
+
+    private void readFeature(JsonStreamReader json) throws IOException {
+        featureHasPoint = false;
+        featureName = null;
+        json.beginObject();
+        while (json.hasNext())
+            readFeatureMember(json, json.nextName());
+        json.endObject();
+        if (featureHasPoint)
+            addFeature();
+        else
+            skipped++;
+    }
+
+    private void readFeatureMember(JsonStreamReader json, String member) throws IOException {
+        if (member.equals("geometry") && json.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+            readGeometry(json);
+        } else if (member.equals("properties") && json.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (json.nextName().equals("name") && json.peek() != JsonStreamReader.Token.BEGIN_OBJECT
+                        && json.peek() != JsonStreamReader.Token.BEGIN_ARRAY)
+                    featureName = json.nextString();
+                else
+                    json.skipValue();
+            }
+            json.endObject();
+        } else {
+            json.skipValue();
+        }
+    }
+
+    private void readGeometry(JsonStreamReader json) throws IOException {
+        boolean point = false;
+        boolean hasCoordinates = false;
+        double longitude = 0;
+        double latitude = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("type")) {
+                point = "Point".equals(json.nextString());
+            } else if (name.equals("coordinates") && json.peek() == JsonStreamReader.Token.BEGIN_ARRAY) {
+                json.beginArray();
+                // GeoJSON positions are [longitude, latitude, altitude?] 经度在前
+                if (json.peek() == JsonStreamReader.Token.NUMBER) {
+                    longitude = json.nextDouble();
+                    if (json.peek() == JsonStreamReader.Token.NUMBER) {
+                        latitude = json.nextDouble();
+                        hasCoordinates = true;
+                    }
+                }
+                while (json.hasNext())
+                    json.skipValue();
+                json.endArray();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        if (point && hasCoordinates) {
+            featureHasPoint = true;
+            featureLatitude = latitude;
+            featureLongitude = longitude;
+        }
+    }
+
+    private void addFeature() throws IOException {
+        add(featureLatitude, featureLongitude, featureName);
+        featureHasPoint = false;
+        featureName = null;
+    }
+
+    private void add(double latitude, double longitude, String name) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)
+                || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            skipped++;
+            return;
+        }
+        latitudes[batchCount] = latitude;
+        longitudes[batchCount] = longitude;
+        names[batchCount] = name;
+        batchCount++;
+        if (batchCount == batchSize)
+            flush();
+    }
+
+    private void flush() {
+        if (batchCount == 0)
+            return;
+        double[] lat = batchCount == batchSize ? latitudes : Arrays.copyOf(latitudes, batchCount);
+        double[] lon = batchCount == batchSize ? longitudes : Arrays.copyOf(longitudes, batchCount);
+        String[] name = batchCount == batchSize ? names : Arrays.copyOf(names, batchCount);
+        if (convertFromGcj)
+            GCJ2WGSUtils.toWGSExact(lat, lon, lat, lon, gcjTrig);
+
+        imported += batchCount;
+        listener.onBatch(new PoiBatch(lat, lon, name));
+        listener.onProgress(counter.count, totalBytes);
+        newBatch();
+    }
+
+    private void newBatch() {
+        latitudes = new double[batchSize];
+        longitudes = new double[batchSize];
+        names = new String[batchSize];
+        batchCount = 0;
+    }
+
+    /**
+     * Rows of the last import that had no valid coordinates or no point geometry
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Points per batch. Default 1000
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be positive");
+        this.batchSize = batchSize;
+    }
+
+    public boolean isConvertFromGcj() {
+        return convertFromGcj;
+    }
+
+    /**
+     * Treat the coordinates as GCJ-02, e.g. exported from AMap, and convert them to WGS-84.
+     * Default false
+     */
+    public void setConvertFromGcj(boolean convertFromGcj) {
+        this.convertFromGcj = convertFromGcj;
+    }
+
+    public GCJ2WGSUtils.Trig getGcjTrig() {
+        return gcjTrig;
+    }
+
+    /**
+     * How the GCJ-02 conversion evaluates its sines. Default TABLE, within 1cm of EXACT
+     */
+    public void setGcjTrig(GCJ2WGSUtils.Trig gcjTrig) {
+        this.gcjTrig = gcjTrig;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * CSV field delimiter. Default ','
+     */
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Reads CSV rows one at a time 逐行读取CSV
+     */
+    static class CsvReader {
+
+        private final Reader in;
+        private final char delimiter;
+        private final char[] buffer = new char[8192];
+        private int pos = 0;
+        private int limit = 0;
+        private final StringBuilder field = new StringBuilder();
+
+        CsvReader(Reader in, char delimiter) {
+            this.in = in;
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Read the next non-empty row into [row]
+         *
+         * @return - false at the end of the input
+         */
+        boolean readRow(ArrayList<String> row) throws IOException {
+            row.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean any = false;
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    if (any || field.length() > 0)
+                        row.add(field.toString());
+                    return !row.isEmpty();
+                }
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            field.append('"');
+                            pos++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    row.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r' && peek() == '\n')
+                        pos++;
+                    if (row.isEmpty() && field.length() == 0) {
+                        any = false; // blank line 空行
+                        continue;
+                    }
+                    row.add(field.toString());
+                    return true;
+                } else {
+                    field.append((char) c);
+                }
+            }
+        }
+
+        private int read() throws IOException {
+            if (pos == limit && !fill())
+                return -1;
+            return buffer[pos++];
+        }
+
+        private int peek() throws IOException {
+            if (pos == limit && !fill())
+                return -1;
+            return buffer[pos];
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+    }
+
+    // Reads a mapped file without copying it onto the heap 读取内存映射文件
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining())
+                return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
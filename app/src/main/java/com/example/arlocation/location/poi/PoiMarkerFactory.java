@@ -0,0 +1,15 @@
+package com.example.arlocation.location.poi;
+
+import com.example.arlocation.location.LocationMarker;
+
+/**
+ * Turns an imported point into a marker 将导入的兴趣点转换为标识
+ * <p>
+ * Called on the UI thread, so it may create Sceneform nodes.
+ */
+public interface PoiMarkerFactory {
+    /**
+     * @return - the marker, or null to leave the point out
+     */
+    LocationMarker createMarker(double latitude, double longitude, String name);
+}
@@ -2,14 +2,17 @@ package com.example.arlocation.location.rendering;
 
 import com.example.arlocation.location.LocationMarker;
 import com.example.arlocation.location.LocationScene;
-import com.example.arlocation.location.utils.LocationUtils;
+import com.example.arlocation.location.stats.FrameStats;
 import com.google.ar.core.Anchor;
 import com.google.ar.sceneform.AnchorNode;
 import com.google.ar.sceneform.FrameTime;
 import com.google.ar.sceneform.Node;
+import com.google.ar.sceneform.Scene;
 import com.google.ar.sceneform.math.Quaternion;
 import com.google.ar.sceneform.math.Vector3;
 
+import java.util.List;
+
 public class LocationNode extends AnchorNode {
 
     private String TAG = "LocationNode";
@@ -22,16 +25,59 @@ public class LocationNode extends AnchorNode {
     private float height = 0F;
     private float gradualScalingMinScale = 0.8F;
     private float gradualScalingMaxScale = 1.4F;
+    // GPS distance and bearing the anchor was placed with 创建Anchor时的GPS距离和方向角
+    private int anchoredDistance;
+    private float anchoredBearing;
 
     private LocationMarker.ScalingMode scalingMode = LocationMarker.ScalingMode.FIXED_SIZE_ON_SCREEN;
     private LocationScene locationScene;
 
+    // Scratch objects reused on every frame so updates don't allocate 每帧复用 避免分配新对象
+    private final NodeTransform transform = new NodeTransform();
+    private final Vector3 scratchPosition = new Vector3();
+    private final Vector3 scratchScale = new Vector3();
+    private final Quaternion scratchRotation = new Quaternion();
+    private float appliedScale = Float.NaN;
+    // Whether render was called on the last frame, and how often it started again 渲染状态变化次数
+    private boolean rendering = false;
+    private int renderResumeCount = 0;
+
     public LocationNode(Anchor anchor, LocationMarker locationMarker, LocationScene locationScene) {
         super(anchor);
         this.locationMarker = locationMarker;
         this.locationScene = locationScene;
     }
 
+    public LocationMarker getLocationMarker() {
+        return locationMarker;
+    }
+
+    /**
+     * Start over for another marker, see LocationNodePool
+     */
+    void reuse(Anchor anchor, LocationMarker locationMarker) {
+        setAnchor(anchor);
+        setEnabled(true);
+        this.locationMarker = locationMarker;
+        renderEvent = null;
+        appliedScale = Float.NaN;
+        distanceInAR = 0;
+    }
+
+    /**
+     * Drop the anchor and the children and leave the scene. The anchor itself is detached by its owner
+     */
+    void release() {
+        setAnchor(null);
+        List<Node> children = getChildren();
+        for (int i = children.size() - 1; i >= 0; i--)
+            removeChild(children.get(i));
+        setParent(null);
+        rendering = false;
+        locationMarker = null;
+        renderEvent = null;
+    }
+
     public float getHeight() {
         return height;
     }
@@ -72,6 +118,30 @@ public class LocationNode extends AnchorNode {
         this.distanceInAR = distanceInAR;
     }
 
+    public int getAnchoredDistance() {
+        return anchoredDistance;
+    }
+
+    public float getAnchoredBearing() {
+        return anchoredBearing;
+    }
+
+    /**
+     * Record the GPS distance and bearing this node's anchor was placed with.
+     */
+    public void setAnchoredPose(int anchoredDistance, float anchoredBearing) {
+        this.anchoredDistance = anchoredDistance;
+        this.anchoredBearing = anchoredBearing;
+    }
+
+    /**
+     * Increases each time the render event starts being called again, e.g. when tracking
+     * is regained or the node is enabled.
+     */
+    public int getRenderResumeCount() {
+        return renderResumeCount;
+    }
+
     public LocationMarker.ScalingMode getScalingMode() {
         return scalingMode;
     }
@@ -86,90 +156,91 @@ public class LocationNode extends AnchorNode {
         // is in the scene.
         // However, if onUpdate is called explicitly or if the node is removed from the scene on a
         // different thread during onUpdate, then getScene may be null.
-        for (Node n : getChildren()) {
-            if (getScene() == null) {
-                return;
-            }
+        Scene scene = getScene();
+        if (scene == null) {
+            return;
+        }
 
-            Vector3 cameraPosition = getScene().getCamera().getWorldPosition();
-            Vector3 nodePosition = n.getWorldPosition();
+        // World matrices are cached by Sceneform, reading them doesn't copy 读取缓存的世界矩阵 不产生新对象
+        float[] camera = scene.getCamera().getWorldModelMatrix().data;
+        List<Node> children = getChildren();
+        for (int i = 0; i < children.size(); i++) {
+            Node n = children.get(i);
+            float[] node = n.getWorldModelMatrix().data;
 
             // Compute the difference vector between the camera and anchor 计算相机与Anchor之间各坐标轴距离
-            float dx = cameraPosition.x - nodePosition.x;
-            float dy = cameraPosition.y - nodePosition.y;
-            float dz = cameraPosition.z - nodePosition.z;
+            float dx = camera[12] - node[12];
+            float dy = camera[13] - node[13];
+            float dz = camera[14] - node[14];
 
             // Compute the straight-line distanceInAR 计算在AR中的直线距离
             setDistanceInAR(Math.sqrt(dx * dx + dy * dy + dz * dz));
-
-            if (locationScene.shouldOffsetOverlapping()) {
-                if (locationScene.mArSceneView.getScene().overlapTestAll(n).size() > 0) {
-                    setHeight(getHeight() + 1.2F);
-                }
-            }
         }
 
         if(!locationScene.minimalRefreshing())
             scaleAndRotate();
 
         if (renderEvent != null) {
-            if(this.isTracking() && this.isActive() && this.isEnabled())
+            boolean visible = this.isTracking() && this.isActive() && this.isEnabled();
+            if (visible && !rendering)
+                renderResumeCount++;
+            rendering = visible;
+            if (visible) {
+                FrameStats stats = locationScene.getFrameStats();
+                long start = stats.start();
                 renderEvent.render(this);
+                stats.stop(FrameStats.Stage.RENDER, start);
+            }
         }
 
     }
 
+    /**
+     * Scale the children for the GPS distance of the last anchor refresh and turn them towards the camera.
+     */
     public void scaleAndRotate() {
+        Scene scene = getScene();
+        if (scene == null) {
+            return;
+        }
 
-        for (Node n : getChildren()) {
-            int markerDistance = (int) Math.ceil(
-                    LocationUtils.distance(
-                            locationMarker.latitude,
-                            locationScene.locationManager.currentLocation.getLatitude(),
-                            locationMarker.longitude,
-                            locationScene.locationManager.currentLocation.getLongitude())
-            );
-
-            setDistanceInGPS(markerDistance);
-
-            // Limit the distanceInGPS of the Anchor within the scene. 限制显示的距离
-            int renderDistance = markerDistance;
-            if (renderDistance > locationScene.getDistanceLimit())
-                renderDistance = locationScene.getDistanceLimit();
-
-            float scale = 1F;
-
-            switch (scalingMode) {
-                // Make sure marker stays the same size on screen, no matter the distanceInGPS 所有模型大小一致
-                case FIXED_SIZE_ON_SCREEN:
-                    scale = 0.5F * (float) renderDistance;
-                    // Distant markers a little smaller
-                    if (markerDistance > 3000)
-                        scale *= 0.75F;
-                    break;
-                // 模型逐渐变大
-                case GRADUAL_TO_MAX_RENDER_DISTANCE:
-                    float scaleDifference = gradualScalingMaxScale - gradualScalingMinScale;
-                    scale = (gradualScalingMinScale + ((locationScene.getDistanceLimit() - markerDistance) * (scaleDifference / locationScene.getDistanceLimit()))) * renderDistance;
-                    break;
-                case NO_SCALING:
-                    break;
+        FrameStats stats = locationScene.getFrameStats();
+        long start = stats.start();
+
+        // GPS distance is cached by LocationScene on each refresh 使用刷新时缓存的GPS距离
+        float scale = NodeTransform.scaleFor(scalingMode, getDistanceInGPS(), locationScene.getDistanceLimit(),
+                gradualScalingMinScale, gradualScalingMaxScale);
+        scale *= scaleModifier;
+        boolean scaleChanged = scale != appliedScale;
+        appliedScale = scale;
+
+        float[] camera = scene.getCamera().getWorldModelMatrix().data;
+        float[] parent = getWorldModelMatrix().data;
+        List<Node> children = getChildren();
+        for (int i = 0; i < children.size(); i++) {
+            Node n = children.get(i);
+            float[] node = n.getWorldModelMatrix().data;
+            float x = node[12];
+            float z = node[14];
+
+            // 设置位置 only when the height actually moved
+            if (Math.abs(node[13] - getHeight()) > 1e-3F) {
+                transform.toLocal(parent, x, getHeight(), z);
+                scratchPosition.set(transform.x, transform.y, transform.z);
+                n.setLocalPosition(scratchPosition);
             }
-
-            scale *= scaleModifier;
-
-            Vector3 cameraPosition = getScene().getCamera().getWorldPosition();
-            Vector3 nodePosition = n.getWorldPosition();
-            // 设置位置
-            n.setWorldPosition(new Vector3(n.getWorldPosition().x, getHeight(), n.getWorldPosition().z));
-            Vector3 direction = Vector3.subtract(cameraPosition, nodePosition);
-            Quaternion lookRotation = Quaternion.lookRotation(direction, Vector3.up());
             // 设置朝向
-            n.setWorldRotation(lookRotation);
+            if (transform.lookAt(parent, x, getHeight(), z, camera[12], camera[13], camera[14])) {
+                scratchRotation.set(transform.qx, transform.qy, transform.qz, transform.qw);
+                n.setLocalRotation(scratchRotation);
+            }
             // 设置大小
-            n.setWorldScale(new Vector3(scale, scale, scale));
-
+            if (scaleChanged) {
+                scratchScale.set(scale, scale, scale);
+                n.setLocalScale(scratchScale);
+            }
         }
+        stats.stop(FrameStats.Stage.SCALE_AND_ROTATE, start);
     }
 
     public float getGradualScalingMinScale() {
@@ -0,0 +1,71 @@
+package com.example.arlocation.location.rendering;
+
+import com.example.arlocation.location.LocationMarker;
+import com.example.arlocation.location.LocationScene;
+import com.google.ar.core.Anchor;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps released LocationNodes for reuse so refreshes don't allocate new ones 复用LocationNode
+ */
+public class LocationNodePool {
+
+    private final LocationScene locationScene;
+    private final ArrayDeque<LocationNode> free = new ArrayDeque<>();
+    private int maxSize = 64;
+    private int createdCount = 0;
+    private int reusedCount = 0;
+
+    public LocationNodePool(LocationScene locationScene) {
+        this.locationScene = locationScene;
+    }
+
+    /**
+     * A node for [marker] on [anchor], not yet added to the scene
+     */
+    public LocationNode obtain(Anchor anchor, LocationMarker marker) {
+        LocationNode node = free.poll();
+        if (node == null) {
+            createdCount++;
+            return new LocationNode(anchor, marker, locationScene);
+        }
+        reusedCount++;
+        node.reuse(anchor, marker);
+        return node;
+    }
+
+    /**
+     * Take the node off its anchor and out of the scene and keep it for reuse
+     */
+    public void release(LocationNode node) {
+        node.release();
+        if (free.size() < maxSize)
+            free.push(node);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Most released nodes to keep. Default 64
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (free.size() > maxSize)
+            free.pop();
+    }
+
+    public int getFreeCount() {
+        return free.size();
+    }
+
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    public int getReusedCount() {
+        return reusedCount;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.arlocation.location.rendering;
+
+import com.example.arlocation.location.LocationMarker;
+
+/**
+ * Scratch math for the per-frame LocationNode update 结点每帧更新所需的计算
+ * <p>
+ * Works on primitives and column-major world matrices only, so an update does not allocate.
+ * Results are left in the public fields until the next call.
+ */
+public class NodeTransform {
+
+    private static final float EPSILON = 1e-6F;
+
+    // Result of toLocal 局部坐标
+    public float x;
+    public float y;
+    public float z;
+
+    // Result of lookAt 局部旋转四元数
+    public float qx;
+    public float qy;
+    public float qz;
+    public float qw = 1F;
+
+    /**
+     * Scale of a marker's children for its GPS distance
+     *
+     * @param markerDistance - metres from the user
+     * @param distanceLimit  - furthest distance markers are drawn at in the scene
+     */
+    public static float scaleFor(LocationMarker.ScalingMode mode, int markerDistance, int distanceLimit,
+                                 float minScale, float maxScale) {
+        // Limit the distanceInGPS of the Anchor within the scene. 限制显示的距离
+        int renderDistance = Math.min(markerDistance, distanceLimit);
+        switch (mode) {
+            // Make sure marker stays the same size on screen, no matter the distanceInGPS 所有模型大小一致
+            case FIXED_SIZE_ON_SCREEN:
+                float scale = 0.5F * (float) renderDistance;
+                // Distant markers a little smaller
+                if (markerDistance > 3000)
+                    scale *= 0.75F;
+                return scale;
+            // 模型逐渐变大
+            case GRADUAL_TO_MAX_RENDER_DISTANCE:
+                float scaleDifference = maxScale - minScale;
+                return (minScale + ((distanceLimit - markerDistance) * (scaleDifference / distanceLimit))) * renderDistance;
+            default:
+                return 1F;
+        }
+    }
+
+    /**
+     * Convert a world position into the local space of a parent without scale.
+     *
+     * @param parent - parent world model matrix, column-major
+     */
+    public void toLocal(float[] parent, float wx, float wy, float wz) {
+        float dx = wx - parent[12];
+        float dy = wy - parent[13];
+        float dz = wz - parent[14];
+        x = parent[0] * dx + parent[1] * dy + parent[2] * dz;
+        y = parent[4] * dx + parent[5] * dy + parent[6] * dz;
+        z = parent[8] * dx + parent[9] * dy + parent[10] * dz;
+    }
+
+    /**
+     * Compute the local rotation that turns a child's +Z axis towards the camera while keeping
+     * it upright, the same as Quaternion.lookRotation(camera - node, up) applied in world space.
+     *
+     * @param parent - parent world model matrix, column-major
+     * @return - false if the camera is straight above or below the node, leaving the result unchanged
+     */
+    public boolean lookAt(float[] parent, float nx, float ny, float nz, float cx, float cy, float cz) {
+        // Forward, towards the camera 朝向相机
+        float fx = cx - nx;
+        float fy = cy - ny;
+        float fz = cz - nz;
+        float length = (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+        float horizontal = (float) Math.sqrt(fx * fx + fz * fz);
+        if (length < EPSILON || horizontal < EPSILON * length)
+            return false;
+        fx /= length;
+        fy /= length;
+        fz /= length;
+
+        // Right = up x forward, up = forward x right
+        float rx = fz * length / horizontal;
+        float rz = -fx * length / horizontal;
+        float ux = fy * rz;
+        float uy = fz * rx - fx * rz;
+        float uz = -fy * rx;
+
+        // Local rotation = transpose(parent) * world 转换到父结点坐标系
+        float m00 = parent[0] * rx + parent[2] * rz;
+        float m10 = parent[4] * rx + parent[6] * rz;
+        float m20 = parent[8] * rx + parent[10] * rz;
+        float m01 = parent[0] * ux + parent[1] * uy + parent[2] * uz;
+        float m11 = parent[4] * ux + parent[5] * uy + parent[6] * uz;
+        float m21 = parent[8] * ux + parent[9] * uy + parent[10] * uz;
+        float m02 = parent[0] * fx + parent[1] * fy + parent[2] * fz;
+        float m12 = parent[4] * fx + parent[5] * fy + parent[6] * fz;
+        float m22 = parent[8] * fx + parent[9] * fy + parent[10] * fz;
+
+        float trace = m00 + m11 + m22;
+        if (trace > 0) {
+            float s = (float) Math.sqrt(trace + 1F) * 2F;
+            qw = 0.25F * s;
+            qx = (m21 - m12) / s;
+            qy = (m02 - m20) / s;
+            qz = (m10 - m01) / s;
+        } else if (m00 > m11 && m00 > m22) {
+            float s = (float) Math.sqrt(1F + m00 - m11 - m22) * 2F;
+            qw = (m21 - m12) / s;
+            qx = 0.25F * s;
+            qy = (m01 + m10) / s;
+            qz = (m02 + m20) / s;
+        } else if (m11 > m22) {
+            float s = (float) Math.sqrt(1F + m11 - m00 - m22) * 2F;
+            qw = (m02 - m20) / s;
+            qx = (m01 + m10) / s;
+            qy = 0.25F * s;
+            qz = (m12 + m21) / s;
+        } else {
+            float s = (float) Math.sqrt(1F + m22 - m00 - m11) * 2F;
+            qw = (m10 - m01) / s;
+            qx = (m02 + m20) / s;
+            qy = (m12 + m21) / s;
+            qz = 0.25F * s;
+        }
+        return true;
+    }
+}
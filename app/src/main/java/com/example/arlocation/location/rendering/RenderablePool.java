@@ -0,0 +1,157 @@
+package com.example.arlocation.location.rendering;
+
+import android.content.Context;
+import android.os.Handler;
+import android.util.Log;
+
+import com.google.ar.sceneform.Node;
+import com.google.ar.sceneform.rendering.Renderable;
+import com.google.ar.sceneform.rendering.ViewRenderable;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Shares ViewRenderables built from one layout between markers 同一布局的ViewRenderable共享池
+ * <p>
+ * Every ViewRenderable inflates its own view and owns a texture. Instead of one per marker,
+ * the pool hands renderables to nodes as their markers get anchors and takes them back when
+ * the anchors are released, so the number built follows the markers on screen. Renderables
+ * are built in the background; a node that asks while none is free gets one as soon as it is
+ * ready. Nodes that already have a renderable are left alone.
+ * <p>
+ * A recycled renderable still shows what its last marker rendered, so render events should
+ * read the view from the node's renderable and update it when it changes.
+ */
+public class RenderablePool {
+
+    public interface OnBuiltListener {
+        /**
+         * Called once per renderable on the UI thread, e.g. to add touch listeners to its view
+         */
+        void onBuilt(ViewRenderable renderable);
+    }
+
+    private String TAG = "RenderablePool";
+
+    private final Context context;
+    private final int layoutId;
+    private final Handler handler = new Handler();
+    private final ArrayDeque<ViewRenderable> free = new ArrayDeque<>();
+    // Nodes waiting for a renderable, oldest first 等待分配的结点
+    private final ArrayDeque<Node> waiting = new ArrayDeque<>();
+    private final Set<Renderable> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int building = 0;
+    private int maxSize = 40;
+    private OnBuiltListener onBuiltListener;
+
+    /**
+     * @param layoutId - layout every renderable is inflated from, e.g. R.layout.card
+     */
+    public RenderablePool(Context context, int layoutId) {
+        this.context = context;
+        this.layoutId = layoutId;
+    }
+
+    /**
+     * Start building [count] renderables ahead of time
+     */
+    public void prebuild(int count) {
+        for (int i = 0; i < count; i++)
+            build();
+    }
+
+    /**
+     * Give [node] a renderable now, or as soon as one is built
+     */
+    public void attach(Node node) {
+        if (node.getRenderable() != null || waiting.contains(node))
+            return;
+        ViewRenderable renderable = free.poll();
+        if (renderable != null) {
+            node.setRenderable(renderable);
+            return;
+        }
+        waiting.add(node);
+        if (building < waiting.size())
+            build();
+    }
+
+    /**
+     * Take back the renderable [node] got from this pool, if any
+     */
+    public void detach(Node node) {
+        if (waiting.remove(node))
+            return;
+        Renderable renderable = node.getRenderable();
+        if (renderable == null || !owned.contains(renderable))
+            return;
+        node.setRenderable(null);
+        give((ViewRenderable) renderable);
+    }
+
+    private void build() {
+        if (owned.size() + building >= maxSize)
+            return;
+        building++;
+        ViewRenderable.builder()
+                .setView(context, layoutId)
+                .build()
+                .handle((renderable, throwable) -> {
+                    handler.post(() -> onBuilt(renderable, throwable));
+                    return null;
+                });
+    }
+
+    private void onBuilt(ViewRenderable renderable, Throwable throwable) {
+        building--;
+        if (throwable != null || renderable == null) {
+            Log.e(TAG, "Unable to build renderable", throwable);
+            return;
+        }
+        owned.add(renderable);
+        if (onBuiltListener != null)
+            onBuiltListener.onBuilt(renderable);
+        give(renderable);
+    }
+
+    private void give(ViewRenderable renderable) {
+        Node node = waiting.poll();
+        if (node != null)
+            node.setRenderable(renderable);
+        else
+            free.push(renderable);
+    }
+
+    public void setOnBuiltListener(OnBuiltListener onBuiltListener) {
+        this.onBuiltListener = onBuiltListener;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Most renderables to build, nodes beyond it wait for one to be returned. Default 40
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Renderables built so far
+     */
+    public int getBuiltCount() {
+        return owned.size();
+    }
+
+    public int getFreeCount() {
+        return free.size();
+    }
+
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+}
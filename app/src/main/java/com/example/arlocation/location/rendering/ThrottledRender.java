@@ -0,0 +1,115 @@
+package com.example.arlocation.location.rendering;
+
+/**
+ * Only forwards render events when what the user sees would change 仅在显示内容变化时触发渲染事件
+ * <p>
+ * Updating a ViewRenderable's TextView re-lays out the view and re-uploads its texture, so doing
+ * it on every frame for every marker is wasteful. This wrapper fires the wrapped event when
+ * <ul>
+ * <li>the GPS distance moves into another bucket,</li>
+ * <li>the anchored bearing changes by more than the bearing tolerance,</li>
+ * <li>the node starts rendering again, e.g. after tracking was lost,</li>
+ * <li>or {@link #invalidate()} was called,</li>
+ * </ul>
+ * and never more often than the minimum interval.
+ * <p>
+ * It keeps the state of the last update, so use one instance per marker.
+ */
+public class ThrottledRender implements LocationNodeRender {
+
+    private final LocationNodeRender renderEvent;
+    private int distanceBucketSize = 10; // metres
+    private float bearingTolerance = 5F; // degrees
+    private long minIntervalNanos = 200 * 1000000L; // 5 updates a second
+
+    // What the last update was made for 上次更新时的状态
+    private LocationNode lastNode;
+    private int lastDistanceBucket;
+    private float lastBearing;
+    private int lastResumeCount;
+    private long lastRenderTime;
+    private boolean dirty = true;
+
+    public ThrottledRender(LocationNodeRender renderEvent) {
+        this.renderEvent = renderEvent;
+    }
+
+    @Override
+    public void render(LocationNode node) {
+        if (node != lastNode) {
+            lastNode = node;
+            dirty = true;
+        }
+        if (shouldRender(node.getDistanceInGPS(), node.getAnchoredBearing(),
+                node.getRenderResumeCount(), System.nanoTime()))
+            renderEvent.render(node);
+    }
+
+    /**
+     * Force the next frame to update, e.g. after changing what the label shows
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Decide whether to fire for the given values, and remember them if so
+     */
+    boolean shouldRender(int distance, float bearing, int resumeCount, long now) {
+        int distanceBucket = distance / distanceBucketSize;
+        float bearingChange = Math.abs(((bearing - lastBearing) % 360 + 540) % 360 - 180);
+        boolean changed = dirty
+                || distanceBucket != lastDistanceBucket
+                || bearingChange > bearingTolerance
+                || resumeCount != lastResumeCount;
+        if (!changed)
+            return false;
+        // A resumed node is updated right away, anything else waits for the interval 恢复显示时立即更新
+        if (resumeCount == lastResumeCount && !dirty && now - lastRenderTime < minIntervalNanos)
+            return false;
+
+        lastDistanceBucket = distanceBucket;
+        lastBearing = bearing;
+        lastResumeCount = resumeCount;
+        lastRenderTime = now;
+        dirty = false;
+        return true;
+    }
+
+    public int getDistanceBucketSize() {
+        return distanceBucketSize;
+    }
+
+    /**
+     * Distance change in metres that triggers an update. Default 10
+     */
+    public void setDistanceBucketSize(int distanceBucketSize) {
+        if (distanceBucketSize <= 0)
+            throw new IllegalArgumentException("distanceBucketSize must be positive");
+        this.distanceBucketSize = distanceBucketSize;
+        dirty = true;
+    }
+
+    public float getBearingTolerance() {
+        return bearingTolerance;
+    }
+
+    /**
+     * Bearing change in degrees that triggers an update. Default 5
+     */
+    public void setBearingTolerance(float bearingTolerance) {
+        this.bearingTolerance = bearingTolerance;
+    }
+
+    public float getMaxUpdateRate() {
+        return minIntervalNanos == 0 ? Float.POSITIVE_INFINITY : 1e9F / minIntervalNanos;
+    }
+
+    /**
+     * Most updates per second for this node. Default 5
+     */
+    public void setMaxUpdateRate(float updatesPerSecond) {
+        this.minIntervalNanos = updatesPerSecond <= 0 || Float.isInfinite(updatesPerSecond)
+                ? 0 : (long) (1e9 / updatesPerSecond);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.arlocation.location.rendering;
+
+/**
+ * Horizontal view cone of the camera, for culling nodes outside the view 相机水平视野 用于剔除视野外的结点
+ * <p>
+ * Only the direction on the ground plane is compared, so a node is kept while it is within
+ * half the field of view plus a margin to either side of where the camera is facing. A node
+ * that is visible stays visible until it is a further hysteresis angle out, so nodes on the
+ * edge don't flicker. Works on column-major world matrices and doesn't allocate.
+ */
+public class ViewCone {
+
+    private float fieldOfView = 60F; // degrees
+    private float margin = 20F; // degrees
+    private float hysteresis = 5F; // degrees
+    // Closer than this a node is always visible 距离过近时不剔除
+    private float minDistance = 2F; // metres
+
+    private float cosEnter;
+    private float cosExit;
+    private boolean enterAll;
+    private boolean exitAll;
+
+    // Camera position and horizontal forward direction 相机位置及水平朝向
+    private float cameraX;
+    private float cameraZ;
+    private float forwardX;
+    private float forwardZ;
+
+    public ViewCone() {
+        updateThresholds();
+    }
+
+    /**
+     * Take the camera for the current frame.
+     *
+     * @param camera - camera world model matrix, column-major
+     * @return - false if the camera points almost straight up or down and nothing should be culled
+     */
+    public boolean setCamera(float[] camera) {
+        cameraX = camera[12];
+        cameraZ = camera[14];
+        // The camera looks down -Z 相机朝向-Z方向
+        float fx = -camera[8];
+        float fz = -camera[10];
+        float length = (float) Math.sqrt(fx * fx + fz * fz);
+        if (length < 0.3F)
+            return false;
+        forwardX = fx / length;
+        forwardZ = fz / length;
+        return true;
+    }
+
+    /**
+     * Whether a node at world [x, z] should be shown
+     *
+     * @param wasVisible - whether it is currently shown
+     */
+    public boolean contains(float x, float z, boolean wasVisible) {
+        float dx = x - cameraX;
+        float dz = z - cameraZ;
+        float length = (float) Math.sqrt(dx * dx + dz * dz);
+        if (length < minDistance)
+            return true;
+        if (wasVisible ? exitAll : enterAll)
+            return true;
+        float dot = dx * forwardX + dz * forwardZ;
+        return dot >= (wasVisible ? cosExit : cosEnter) * length;
+    }
+
+    private void updateThresholds() {
+        float enter = fieldOfView / 2 + margin;
+        float exit = enter + hysteresis;
+        enterAll = enter >= 180;
+        exitAll = exit >= 180;
+        cosEnter = (float) Math.cos(Math.toRadians(Math.min(enter, 180)));
+        cosExit = (float) Math.cos(Math.toRadians(Math.min(exit, 180)));
+    }
+
+    public float getFieldOfView() {
+        return fieldOfView;
+    }
+
+    /**
+     * Horizontal field of view of the camera in degrees. Default 60
+     */
+    public void setFieldOfView(float fieldOfView) {
+        this.fieldOfView = fieldOfView;
+        updateThresholds();
+    }
+
+    public float getMargin() {
+        return margin;
+    }
+
+    /**
+     * Extra degrees to either side before a node is culled, so labels that are partly on screen
+     * and quick turns are covered. Default 20
+     */
+    public void setMargin(float margin) {
+        this.margin = margin;
+        updateThresholds();
+    }
+
+    public float getHysteresis() {
+        return hysteresis;
+    }
+
+    /**
+     * Degrees a visible node must move out beyond the margin before it is culled. Default 5
+     */
+    public void setHysteresis(float hysteresis) {
+        this.hysteresis = hysteresis;
+        updateThresholds();
+    }
+
+    public float getMinDistance() {
+        return minDistance;
+    }
+
+    /**
+     * Nodes closer than this many metres are never culled. Default 2
+     */
+    public void setMinDistance(float minDistance) {
+        this.minDistance = minDistance;
+    }
+}
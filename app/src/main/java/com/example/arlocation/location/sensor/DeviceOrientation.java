@@ -7,6 +7,7 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 
 import com.example.arlocation.location.LocationScene;
+import com.example.arlocation.location.trace.TraceRecorder;
 
 
 /**
@@ -16,20 +17,13 @@ import com.example.arlocation.location.LocationScene;
 public class DeviceOrientation implements SensorEventListener {
 
     private SensorManager mSensorManager;
-    private static final float ALPHA = 0.25f;
 
-    // Gravity rotational data 重力数据
-    private float gravity[];
-
-    // Magnetic rotational data 磁场数据
-    private float magnetic[];
-    private float accels[] = new float[3];
-    private float mags[] = new float[3];
-    private float[] values = new float[3];
-    private float azimuth;
+    // Fused orientation from the rotation vector sensor 由旋转矢量传感器融合得到的姿态
+    private final OrientationFusion fusion = new OrientationFusion();
     public float pitch;
     public float roll;
     private LocationScene locationScene;
+    private TraceRecorder traceRecorder;
 
     // North 北方向
     public float currentDegree = 0f;
@@ -41,60 +35,63 @@ public class DeviceOrientation implements SensorEventListener {
 
     @Override
     public void onSensorChanged(SensorEvent event) {
-
-        // Get the device heading 获取设备朝向
-        float degree = -Math.round( event.values[0] );
-
-        // Temporary fix until we can work out what's causing the anomalies
-        if(degree != 1.0 && degree != 0 && degree != 2.0 && degree != -1.0)
-            currentDegree = degree;
-
         switch (event.sensor.getType()) {
-            case Sensor.TYPE_MAGNETIC_FIELD:
-                mags = lowPass(event.values.clone(),mags);
-                break;
-            case Sensor.TYPE_ACCELEROMETER:
-                accels = lowPass(event.values.clone(),accels);
+            case Sensor.TYPE_ROTATION_VECTOR:
+            case Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR:
+                fusion.update(event.values, event.timestamp);
                 break;
+            default:
+                return;
         }
 
-        if (mags != null && accels != null) {
-            gravity = new float[9];
-            magnetic = new float[9];
-            SensorManager.getRotationMatrix(gravity, magnetic, accels, mags);
-            float[] outGravity = new float[9];
-            SensorManager.remapCoordinateSystem(gravity, SensorManager.AXIS_X,SensorManager.AXIS_Z, outGravity);
-            SensorManager.getOrientation(outGravity, values);
-
-            azimuth = values[0] * 57.2957795f;
-            pitch = values[1] * 57.2957795f;
-            roll = values[2] * 57.2957795f;
-            mags = null;
-            accels = null;
-        }
+        // Read the three angles of one sample together 同一次采样的三个角度
+        long orientation = fusion.getPacked();
+        TraceRecorder recorder = traceRecorder;
+        if (recorder != null)
+            recorder.recordOrientation(event.timestamp, orientation);
+        onOrientation(OrientationFusion.headingOf(orientation),
+                OrientationFusion.pitchOf(orientation),
+                OrientationFusion.rollOf(orientation));
+    }
+
+    /**
+     * Apply an orientation, from the sensor or from a replayed trace.
+     *
+     * @param heading - degrees from north, clockwise
+     */
+    public void onOrientation(float heading, float pitch, float roll) {
+        currentDegree = -Math.round(heading);
+        this.pitch = pitch;
+        this.roll = roll;
+    }
+
+    /**
+     * Record every sensor sample to [traceRecorder], or stop recording with null
+     */
+    public void setTraceRecorder(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
     }
 
     @Override
     public void onAccuracyChanged(Sensor sensor, int accuracy) {}
 
+    /**
+     * Heading, pitch and roll published atomically, see {@link OrientationFusion#getPacked()}
+     */
+    public OrientationFusion getFusion() {
+        return fusion;
+    }
+
     public void resume() {
-        mSensorManager.registerListener(this, mSensorManager.getDefaultSensor(Sensor.TYPE_ORIENTATION),
-                SensorManager.SENSOR_DELAY_GAME);
-        mSensorManager.registerListener(this, mSensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER),SensorManager.SENSOR_DELAY_NORMAL);
-        mSensorManager.registerListener(this, mSensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD),SensorManager.SENSOR_DELAY_NORMAL);
+        Sensor sensor = mSensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
+        // Devices without a gyroscope only offer the geomagnetic variant 无陀螺仪的设备
+        if (sensor == null)
+            sensor = mSensorManager.getDefaultSensor(Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR);
+        mSensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_GAME);
     }
 
     public void pause() {
         mSensorManager.unregisterListener(this);
     }
 
-    protected float[] lowPass( float[] input, float[] output ) {
-        if ( output == null ) return input;
-
-        for ( int i=0; i<input.length; i++ ) {
-            output[i] = output[i] + ALPHA * (input[i] - output[i]);
-        }
-        return output;
-    }
-
 }
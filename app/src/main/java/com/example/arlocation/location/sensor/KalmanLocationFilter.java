@@ -0,0 +1,195 @@
+package com.example.arlocation.location.sensor;
+
+import com.example.arlocation.location.utils.LocationUtils;
+
+/**
+ * Accuracy weighted Kalman filter over location fixes 基于精度加权的卡尔曼滤波
+ * <p>
+ * The estimate is a position with an isotropic variance in square metres. Each fix is weighted
+ * by its reported accuracy and location type, and the variance grows between fixes with the
+ * reported speed, so a user standing still gets a stable position while a moving user is
+ * followed closely. Fixes further from the estimate than the gate allows are rejected as
+ * outliers, unless several in a row agree with each other, in which case the filter jumps to
+ * them.
+ * Cached fixes are ignored once a position is known.
+ */
+public class KalmanLocationFilter implements LocationFilter {
+
+    // AMapLocation location types 高德定位类型
+    static final int TYPE_GPS = 1;
+    static final int TYPE_SAME_REQ = 2;
+    static final int TYPE_FIX_CACHE = 4;
+    static final int TYPE_CELL = 6;
+    static final int TYPE_OFFLINE = 8;
+    static final int TYPE_LAST_LOCATION_CACHE = 9;
+
+    private static final double METRES_PER_DEGREE = LocationUtils.EARTH_RADIUS * Math.PI / 180;
+
+    private float defaultAccuracy = 30F; // metres
+    private float minSpeed = 0.5F; // metres per second
+    private float gate = 3F; // standard deviations
+    private int maxRejections = 3;
+
+    private boolean hasEstimate = false;
+    private double latitude;
+    private double longitude;
+    private double variance;
+    private long time;
+    private int rejections = 0;
+    private LocationFix rejected;
+    private double rejectedVariance;
+
+    @Override
+    public LocationFix filter(LocationFix fix) {
+        boolean cached = fix.locationType == TYPE_SAME_REQ || fix.locationType == TYPE_FIX_CACHE
+                || fix.locationType == TYPE_LAST_LOCATION_CACHE;
+        if (hasEstimate && cached)
+            return null;
+
+        double measurementVariance = measurementVariance(fix);
+        if (!hasEstimate) {
+            accept(fix, measurementVariance);
+            return output(fix);
+        }
+
+        // Predict: the position drifts with the reported speed 预测 位置随速度变化
+        double dt = fix.time > time ? (fix.time - time) / 1000.0 : 1.0;
+        double speed = Math.max(fix.speed, minSpeed);
+        double predictedLatitude = latitude;
+        double predictedLongitude = longitude;
+        if (fix.locationType == TYPE_GPS && fix.speed >= 1) {
+            double step = fix.speed * dt;
+            double bearing = Math.toRadians(fix.bearing);
+            predictedLatitude += step * Math.cos(bearing) / METRES_PER_DEGREE;
+            predictedLongitude += step * Math.sin(bearing) / metresPerDegreeLongitude(latitude);
+        }
+        double predictedVariance = variance + speed * dt * speed * dt;
+
+        // Innovation in metres 新息(米)
+        double north = (fix.latitude - predictedLatitude) * METRES_PER_DEGREE;
+        double east = (fix.longitude - predictedLongitude) * metresPerDegreeLongitude(predictedLatitude);
+        double squared = north * north + east * east;
+        double limit = gate * gate * (predictedVariance + measurementVariance);
+        if (squared > limit) {
+            // Only outliers that agree with the previous one count toward a jump 只有与上一个离群点一致的才累计
+            rejections = agreesWithRejected(fix, measurementVariance) ? rejections + 1 : 1;
+            rejected = fix;
+            rejectedVariance = measurementVariance;
+            if (rejections < maxRejections)
+                return null;
+            // Several agreeing outliers in a row, the user really moved 连续多次一致偏离 认为用户确实移动了
+            accept(fix, measurementVariance);
+            return output(fix);
+        }
+        rejections = 0;
+        rejected = null;
+
+        double gain = predictedVariance / (predictedVariance + measurementVariance);
+        latitude = predictedLatitude + gain * north / METRES_PER_DEGREE;
+        longitude = predictedLongitude + gain * east / metresPerDegreeLongitude(predictedLatitude);
+        variance = (1 - gain) * predictedVariance;
+        time = fix.time;
+        return output(fix);
+    }
+
+    @Override
+    public void reset() {
+        hasEstimate = false;
+        rejections = 0;
+        rejected = null;
+    }
+
+    /**
+     * Standard deviation of the current estimate in metres
+     */
+    public float getAccuracy() {
+        return hasEstimate ? (float) Math.sqrt(variance) : 0;
+    }
+
+    private void accept(LocationFix fix, double measurementVariance) {
+        latitude = fix.latitude;
+        longitude = fix.longitude;
+        variance = measurementVariance;
+        time = fix.time;
+        hasEstimate = true;
+        rejections = 0;
+        rejected = null;
+    }
+
+    /**
+     * Whether the fix is within the gate of the last rejected fix, allowing for the movement
+     * since then
+     */
+    private boolean agreesWithRejected(LocationFix fix, double measurementVariance) {
+        if (rejected == null)
+            return false;
+        double dt = fix.time > rejected.time ? (fix.time - rejected.time) / 1000.0 : 1.0;
+        double speed = Math.max(fix.speed, minSpeed);
+        double north = (fix.latitude - rejected.latitude) * METRES_PER_DEGREE;
+        double east = (fix.longitude - rejected.longitude) * metresPerDegreeLongitude(rejected.latitude);
+        double limit = gate * gate * (rejectedVariance + measurementVariance + speed * dt * speed * dt);
+        return north * north + east * east <= limit;
+    }
+
+    private LocationFix output(LocationFix fix) {
+        return new LocationFix(latitude, longitude, (float) Math.sqrt(variance),
+                fix.speed, fix.bearing, fix.locationType, fix.time);
+    }
+
+    private double measurementVariance(LocationFix fix) {
+        double accuracy = fix.accuracy > 0 ? fix.accuracy : defaultAccuracy;
+        // Cell and offline positions are coarser than their accuracy suggests 基站和离线定位精度较差
+        if (fix.locationType == TYPE_CELL || fix.locationType == TYPE_OFFLINE)
+            accuracy *= 2;
+        return accuracy * accuracy;
+    }
+
+    private static double metresPerDegreeLongitude(double latitude) {
+        return Math.max(METRES_PER_DEGREE * Math.cos(Math.toRadians(latitude)), 1);
+    }
+
+    public float getDefaultAccuracy() {
+        return defaultAccuracy;
+    }
+
+    /**
+     * Accuracy in metres assumed for fixes that don't report one. Default 30
+     */
+    public void setDefaultAccuracy(float defaultAccuracy) {
+        this.defaultAccuracy = defaultAccuracy;
+    }
+
+    public float getMinSpeed() {
+        return minSpeed;
+    }
+
+    /**
+     * Speed in metres per second assumed for a user reported as standing still, how quickly
+     * the estimate may drift without evidence. Default 0.5
+     */
+    public void setMinSpeed(float minSpeed) {
+        this.minSpeed = minSpeed;
+    }
+
+    public float getGate() {
+        return gate;
+    }
+
+    /**
+     * Fixes more than this many standard deviations from the estimate are outliers. Default 3
+     */
+    public void setGate(float gate) {
+        this.gate = gate;
+    }
+
+    public int getMaxRejections() {
+        return maxRejections;
+    }
+
+    /**
+     * Agreeing outliers in a row after which the filter restarts at the latest fix. Default 3
+     */
+    public void setMaxRejections(int maxRejections) {
+        this.maxRejections = Math.max(1, maxRejections);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.arlocation.location.sensor;
+
+/**
+ * Smooths raw location fixes before they reach the scene 在定位结果进入场景前进行滤波
+ */
+public interface LocationFilter {
+    /**
+     * @param fix - raw GCJ-02 fix
+     * @return - the filtered fix, or null to drop this fix
+     */
+    LocationFix filter(LocationFix fix);
+
+    /**
+     * Forget the current estimate, e.g. after a pause
+     */
+    void reset();
+}
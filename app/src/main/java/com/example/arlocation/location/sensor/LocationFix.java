@@ -0,0 +1,32 @@
+package com.example.arlocation.location.sensor;
+
+/**
+ * One location fix as delivered by AMap, in GCJ-02 高德返回的一次定位结果(GCJ-02坐标)
+ * <p>
+ * Plain values only, so fixes can be recorded, replayed and filtered without Android.
+ */
+public class LocationFix {
+
+    public final double latitude;
+    public final double longitude;
+    // Metres, 0 if unknown 精度(米)
+    public final float accuracy;
+    // Metres per second 速度(米/秒)
+    public final float speed;
+    public final float bearing;
+    // AMapLocation.getLocationType() 定位类型
+    public final int locationType;
+    // Wall clock time of the fix in milliseconds
+    public final long time;
+
+    public LocationFix(double latitude, double longitude, float accuracy, float speed,
+                       float bearing, int locationType, long time) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+        this.speed = speed;
+        this.bearing = bearing;
+        this.locationType = locationType;
+        this.time = time;
+    }
+}
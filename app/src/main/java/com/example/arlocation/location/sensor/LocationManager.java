@@ -1,11 +1,14 @@
 package com.example.arlocation.location.sensor;
 
 import android.content.Context;
+import android.os.SystemClock;
 
 import com.amap.api.location.AMapLocation;
 import com.amap.api.location.AMapLocationClient;
 import com.amap.api.location.AMapLocationListener;
 import com.amap.api.location.DPoint;
+import com.example.arlocation.location.geofence.GeofenceEngine;
+import com.example.arlocation.location.trace.TraceRecorder;
 import com.example.arlocation.location.utils.GCJ2WGSUtils;
 
 public class LocationManager {
@@ -14,6 +17,13 @@ public class LocationManager {
     public AMapLocationListener mLocationListener;
     public DPoint currentLocation=null;
     public AMapLocation currentAmapLocation=null;
+    // Latest fix, live or replayed 最新的定位结果(实时或回放)
+    public LocationFix currentFix=null;
+    // Latest fix after filtering, what currentLocation is based on 滤波后的定位结果
+    public LocationFix filteredFix=null;
+    private LocationFilter locationFilter=new KalmanLocationFilter();
+    private TraceRecorder traceRecorder;
+    private GeofenceEngine geofenceEngine;
     public LocationManager(Context context){
         this.mContext = context;
         //声明AMapLocationClient类对象
@@ -28,11 +38,18 @@ public class LocationManager {
                     if (amapLocation.getErrorCode() == 0) {
                         //解析定位结果
                         currentAmapLocation=amapLocation;
-                        double gcjLat=currentAmapLocation.getLatitude();
-                        double gcjLon=currentAmapLocation.getLongitude();
-                        double wgsLat=GCJ2WGSUtils.WGSLat(gcjLat,gcjLon);
-                        double wgsLon=GCJ2WGSUtils.WGSLon(gcjLat,gcjLon);
-                        currentLocation=new DPoint(wgsLat,wgsLon);
+                        LocationFix fix=new LocationFix(
+                                amapLocation.getLatitude(),
+                                amapLocation.getLongitude(),
+                                amapLocation.getAccuracy(),
+                                amapLocation.getSpeed(),
+                                amapLocation.getBearing(),
+                                amapLocation.getLocationType(),
+                                amapLocation.getTime());
+                        TraceRecorder recorder=traceRecorder;
+                        if(recorder!=null)
+                            recorder.recordLocation(SystemClock.elapsedRealtimeNanos(),fix);
+                        onFix(fix);
                     }
                     else{
                         //错误信息
@@ -49,6 +66,63 @@ public class LocationManager {
         mLocationClient.startLocation();
         //异步获取定位结果
     }
+
+    /**
+     * Apply a GCJ-02 fix, from AMap or from a replayed trace.
+     */
+    public void onFix(LocationFix fix){
+        currentFix=fix;
+        LocationFilter filter=locationFilter;
+        LocationFix filtered=filter!=null?filter.filter(fix):fix;
+        if(filtered==null)
+            return;//被滤除的异常定位
+        filteredFix=filtered;
+        double wgsLat=GCJ2WGSUtils.WGSLat(filtered.latitude,filtered.longitude);
+        double wgsLon=GCJ2WGSUtils.WGSLon(filtered.latitude,filtered.longitude);
+        currentLocation=new DPoint(wgsLat,wgsLon);
+        GeofenceEngine geofence=geofenceEngine;
+        if(geofence!=null)
+            geofence.onLocation(wgsLat,wgsLon,filtered.accuracy);
+    }
+
+    public LocationFilter getLocationFilter(){
+        return locationFilter;
+    }
+
+    /**
+     * Filter applied to every fix before it becomes currentLocation, null for raw fixes.
+     * Default KalmanLocationFilter
+     */
+    public void setLocationFilter(LocationFilter locationFilter){
+        this.locationFilter=locationFilter;
+    }
+
+    /**
+     * Record every live fix to [traceRecorder], or stop recording with null
+     */
+    public void setTraceRecorder(TraceRecorder traceRecorder){
+        this.traceRecorder=traceRecorder;
+    }
+
+    /**
+     * Feed every filtered fix, in WGS-84, to [geofenceEngine], or stop with null
+     */
+    public void setGeofenceEngine(GeofenceEngine geofenceEngine){
+        this.geofenceEngine=geofenceEngine;
+    }
+
+    //停止实时定位
+    public void stop(){
+        mLocationClient.stopLocation();
+    }
+
+    //恢复实时定位
+    public void start(){
+        LocationFilter filter=locationFilter;
+        if(filter!=null)
+            filter.reset();
+        mLocationClient.startLocation();
+    }
 }
 
 
@@ -0,0 +1,149 @@
+package com.example.arlocation.location.sensor;
+
+/**
+ * Turns rotation vector samples into heading, pitch and roll 由旋转矢量计算朝向、俯仰和横滚角
+ * <p>
+ * The axes are remapped for a device held upright with the camera facing forward, the same as
+ * SensorManager.remapCoordinateSystem(AXIS_X, AXIS_Z). All buffers are preallocated and the math
+ * mirrors SensorManager so it can be fed recorded samples on a plain JVM.
+ * <p>
+ * The three angles are published together as one packed long with a resolution of 0.01 degrees,
+ * so a reader never sees heading from one sample and pitch from another.
+ */
+public class OrientationFusion {
+
+    private final float[] rotation = new float[9];
+    private final float[] remapped = new float[9];
+
+    private volatile long packed = pack(0, 0, 0);
+    private volatile long timestamp = 0;
+    private volatile long sampleInterval = 0;
+
+    /**
+     * Feed one rotation vector sample, e.g. SensorEvent.values of TYPE_ROTATION_VECTOR.
+     *
+     * @param values    - x, y, z and optionally the scalar part of the unit quaternion
+     * @param timestamp - sample time in nanoseconds
+     */
+    public void update(float[] values, long timestamp) {
+        rotationMatrixFromVector(values, rotation);
+
+        // Camera looking forward: X stays X, Y becomes Z 相机朝前 重新映射坐标轴
+        for (int row = 0; row < 3; row++) {
+            int i = row * 3;
+            remapped[i] = rotation[i];
+            remapped[i + 1] = -rotation[i + 2];
+            remapped[i + 2] = rotation[i + 1];
+        }
+
+        float azimuth = (float) Math.toDegrees(Math.atan2(remapped[1], remapped[4]));
+        float pitch = (float) Math.toDegrees(Math.asin(-remapped[7]));
+        float roll = (float) Math.toDegrees(Math.atan2(-remapped[6], remapped[8]));
+        if (azimuth < 0)
+            azimuth += 360;
+
+        packed = pack(azimuth, pitch, roll);
+        if (this.timestamp != 0)
+            sampleInterval = timestamp - this.timestamp;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Heading, pitch and roll of the same sample. Read them with {@link #headingOf},
+     * {@link #pitchOf} and {@link #rollOf}.
+     */
+    public long getPacked() {
+        return packed;
+    }
+
+    /**
+     * Heading from north, clockwise, 0 to 360 degrees
+     */
+    public float getHeading() {
+        return headingOf(packed);
+    }
+
+    /**
+     * Pitch in degrees, negative when the camera points up
+     */
+    public float getPitch() {
+        return pitchOf(packed);
+    }
+
+    /**
+     * Roll in degrees
+     */
+    public float getRoll() {
+        return rollOf(packed);
+    }
+
+    /**
+     * Time of the latest sample in nanoseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Nanoseconds between the last two samples
+     */
+    public long getSampleInterval() {
+        return sampleInterval;
+    }
+
+    public static float headingOf(long packed) {
+        return (packed & 0xFFFF) / 100F;
+    }
+
+    public static float pitchOf(long packed) {
+        return (((packed >>> 16) & 0xFFFF) - 9000) / 100F;
+    }
+
+    public static float rollOf(long packed) {
+        return (((packed >>> 32) & 0xFFFF) - 18000) / 100F;
+    }
+
+    /**
+     * Pack three angles the same way as {@link #getPacked()}
+     */
+    public static long pack(float heading, float pitch, float roll) {
+        long h = Math.round(heading * 100) % 36000;
+        long p = Math.round(pitch * 100) + 9000;
+        long r = Math.round(roll * 100) + 18000;
+        return h | (p << 16) | (r << 32);
+    }
+
+    // Same as SensorManager.getRotationMatrixFromVector for a 3x3 matrix
+    static void rotationMatrixFromVector(float[] values, float[] matrix) {
+        float q1 = values[0];
+        float q2 = values[1];
+        float q3 = values[2];
+        float q0;
+        if (values.length >= 4) {
+            q0 = values[3];
+        } else {
+            q0 = 1 - q1 * q1 - q2 * q2 - q3 * q3;
+            q0 = (q0 > 0) ? (float) Math.sqrt(q0) : 0;
+        }
+
+        float sqQ1 = 2 * q1 * q1;
+        float sqQ2 = 2 * q2 * q2;
+        float sqQ3 = 2 * q3 * q3;
+        float q1Q2 = 2 * q1 * q2;
+        float q3Q0 = 2 * q3 * q0;
+        float q1Q3 = 2 * q1 * q3;
+        float q2Q0 = 2 * q2 * q0;
+        float q2Q3 = 2 * q2 * q3;
+        float q1Q0 = 2 * q1 * q0;
+
+        matrix[0] = 1 - sqQ2 - sqQ3;
+        matrix[1] = q1Q2 - q3Q0;
+        matrix[2] = q1Q3 + q2Q0;
+        matrix[3] = q1Q2 + q3Q0;
+        matrix[4] = 1 - sqQ1 - sqQ3;
+        matrix[5] = q2Q3 - q1Q0;
+        matrix[6] = q1Q3 - q2Q0;
+        matrix[7] = q2Q3 + q1Q0;
+        matrix[8] = 1 - sqQ1 - sqQ2;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.arlocation.location.stats;
+
+import java.util.Locale;
+
+/**
+ * Per-stage timings of the location scene 位置场景各阶段耗时统计
+ * <p>
+ * Disabled by default. While disabled {@link #start()} returns 0 without reading the clock and
+ * {@link #stop} ignores it, so the calls can stay in the hot paths.
+ * <pre>
+ *     long start = stats.start();
+ *     ...
+ *     stats.stop(FrameStats.Stage.RENDER, start);
+ * </pre>
+ */
+public class FrameStats {
+
+    public enum Stage {
+        // Finding the markers within render range 筛选范围内的标识
+        MARKER_FILTER("filter"),
+        // Anchor pose math for one refresh 计算Anchor位置
+        POSE_MATH("pose"),
+        // Detaching and creating anchors for one refresh 移除和创建Anchor
+        ANCHOR_UPDATE("anchors"),
+        // LocationNode.scaleAndRotate
+        SCALE_AND_ROTATE("scale"),
+        // LocationNodeRender.render
+        RENDER("render");
+
+        public final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private volatile boolean enabled = false;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    // Anchors created per refresh 每次刷新创建的Anchor数量
+    private final LatencyHistogram anchorsCreated = new LatencyHistogram();
+
+    public FrameStats() {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return - start time to pass to {@link #stop}, 0 when disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void stop(Stage stage, long start) {
+        if (start != 0)
+            histograms[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public void recordAnchorsCreated(int count) {
+        if (enabled)
+            anchorsCreated.record(count);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms)
+            histogram.reset();
+        anchorsCreated.reset();
+    }
+
+    public Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] stages = new LatencyHistogram.Snapshot[histograms.length];
+        for (int i = 0; i < stages.length; i++)
+            stages[i] = histograms[i].snapshot();
+        return new Snapshot(stages, anchorsCreated.snapshot());
+    }
+
+    public static class Snapshot {
+
+        private final LatencyHistogram.Snapshot[] stages;
+        private final LatencyHistogram.Snapshot anchorsCreated;
+
+        Snapshot(LatencyHistogram.Snapshot[] stages, LatencyHistogram.Snapshot anchorsCreated) {
+            this.stages = stages;
+            this.anchorsCreated = anchorsCreated;
+        }
+
+        /**
+         * Latencies of [stage] in nanoseconds
+         */
+        public LatencyHistogram.Snapshot get(Stage stage) {
+            return stages[stage.ordinal()];
+        }
+
+        /**
+         * Number of anchors created by each refresh
+         */
+        public LatencyHistogram.Snapshot getAnchorsCreated() {
+            return anchorsCreated;
+        }
+
+        /**
+         * One line per stage with count, p50, p99 and max in microseconds
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Stage stage : STAGES) {
+                LatencyHistogram.Snapshot s = get(stage);
+                sb.append(String.format(Locale.US, "%-8s n=%-6d p50=%6.0fus p99=%6.0fus max=%6.0fus%n",
+                        stage.label, s.getCount(),
+                        s.getPercentile(0.5) / 1000.0, s.getPercentile(0.99) / 1000.0, s.getMax() / 1000.0));
+            }
+            sb.append(String.format(Locale.US, "created  refreshes=%d mean=%.1f max=%d",
+                    anchorsCreated.getCount(), anchorsCreated.getMean(), anchorsCreated.getMax()));
+            return sb.toString();
+        }
+    }
+}
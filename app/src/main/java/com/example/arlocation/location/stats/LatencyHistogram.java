@@ -0,0 +1,118 @@
+package com.example.arlocation.location.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with power-of-two buckets 以2的幂为区间的耗时直方图
+ * <p>
+ * Bucket i holds samples in [2^(i-1), 2^i) nanoseconds, bucket 0 holds zero. Recording is a few
+ * atomic adds and never allocates, so it can run on the frame thread and the pose thread at once.
+ * Percentiles are reported as the upper edge of their bucket, i.e. at most twice the real value.
+ */
+public class LatencyHistogram {
+
+    static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value - nanoseconds, or any other non-negative quantity
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        buckets.incrementAndGet(bucketOf(value));
+        total.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+            current = max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            buckets.set(i, 0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Copy the current counts. Samples recorded while copying may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            copy[i] = buckets.get(i);
+        return new Snapshot(copy, total.get(), max.get());
+    }
+
+    static int bucketOf(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Largest value that falls into [bucket]
+     */
+    static long upperEdge(int bucket) {
+        if (bucket == 0)
+            return 0;
+        if (bucket >= 63)
+            return Long.MAX_VALUE;
+        return (1L << bucket) - 1;
+    }
+
+    public static class Snapshot {
+
+        private final long[] buckets;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] buckets, long total, long max) {
+            long sum = 0;
+            for (long b : buckets)
+                sum += b;
+            this.buckets = buckets;
+            this.count = sum;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        /**
+         * @param fraction - 0 to 1, e.g. 0.99 for the 99th percentile
+         * @return - upper edge of the bucket holding the percentile, capped at the max seen
+         */
+        public long getPercentile(double fraction) {
+            if (count == 0)
+                return 0;
+            long rank = (long) Math.ceil(fraction * count);
+            if (rank < 1)
+                rank = 1;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank)
+                    return Math.min(upperEdge(i), max);
+            }
+            return max;
+        }
+    }
+}
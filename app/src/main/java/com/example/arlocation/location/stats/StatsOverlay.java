@@ -0,0 +1,49 @@
+package com.example.arlocation.location.stats;
+
+import android.os.Handler;
+import android.widget.TextView;
+
+/**
+ * Shows a FrameStats snapshot in a TextView, refreshed on an interval 在TextView中定时显示耗时统计
+ */
+public class StatsOverlay {
+
+    private final FrameStats frameStats;
+    private final TextView textView;
+    private final Handler mHandler = new Handler();
+    private int updateInterval = 1000;
+    private final Runnable updateTask = new Runnable() {
+        @Override
+        public void run() {
+            textView.setText(frameStats.snapshot().toString());
+            mHandler.postDelayed(updateTask, updateInterval);
+        }
+    };
+
+    public StatsOverlay(FrameStats frameStats, TextView textView) {
+        this.frameStats = frameStats;
+        this.textView = textView;
+    }
+
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    /**
+     * Milliseconds between updates. Default 1000
+     */
+    public void setUpdateInterval(int updateInterval) {
+        this.updateInterval = updateInterval;
+    }
+
+    public void show() {
+        mHandler.removeCallbacks(updateTask);
+        textView.setVisibility(TextView.VISIBLE);
+        updateTask.run();
+    }
+
+    public void hide() {
+        mHandler.removeCallbacks(updateTask);
+        textView.setVisibility(TextView.GONE);
+    }
+}
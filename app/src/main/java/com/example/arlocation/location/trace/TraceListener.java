@@ -0,0 +1,19 @@
+package com.example.arlocation.location.trace;
+
+import com.example.arlocation.location.sensor.LocationFix;
+
+/**
+ * Receives the samples of a replayed trace 接收回放轨迹中的数据
+ */
+public interface TraceListener {
+
+    /**
+     * @param timestamp - nanoseconds, on the clock the trace was recorded with
+     */
+    void onLocation(long timestamp, LocationFix fix);
+
+    /**
+     * @param timestamp - nanoseconds, on the clock the trace was recorded with
+     */
+    void onOrientation(long timestamp, float heading, float pitch, float roll);
+}
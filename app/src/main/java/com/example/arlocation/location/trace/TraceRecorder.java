@@ -0,0 +1,102 @@
+package com.example.arlocation.location.trace;
+
+import com.example.arlocation.location.sensor.LocationFix;
+import com.example.arlocation.location.sensor.OrientationFusion;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes location fixes and orientation samples to a compact binary trace 将定位和姿态数据记录为二进制轨迹
+ * <p>
+ * Layout: magic, version, then one record per sample. Each record is a type byte, the time
+ * since the previous record in nanoseconds as a variable length integer, and the payload.
+ * Timestamps are expected to be non-negative.
+ * An orientation sample takes about 13 bytes, a location fix about 42.
+ */
+public class TraceRecorder implements Closeable {
+
+    static final int MAGIC = 0x41524C54; // "ARLT"
+    static final int VERSION = 1;
+    static final int RECORD_LOCATION = 1;
+    static final int RECORD_ORIENTATION = 2;
+
+    private final DataOutputStream out;
+    private long lastTimestamp = 0;
+    private IOException error;
+
+    public TraceRecorder(OutputStream stream) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * @param timestamp - nanoseconds, e.g. SystemClock.elapsedRealtimeNanos()
+     */
+    public synchronized void recordLocation(long timestamp, LocationFix fix) {
+        try {
+            writeHeader(RECORD_LOCATION, timestamp);
+            out.writeDouble(fix.latitude);
+            out.writeDouble(fix.longitude);
+            out.writeFloat(fix.accuracy);
+            out.writeFloat(fix.speed);
+            out.writeFloat(fix.bearing);
+            out.writeByte(fix.locationType);
+            out.writeLong(fix.time);
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * @param timestamp - nanoseconds, e.g. SensorEvent.timestamp
+     * @param packed    - OrientationFusion.getPacked()
+     */
+    public synchronized void recordOrientation(long timestamp, long packed) {
+        try {
+            writeHeader(RECORD_ORIENTATION, timestamp);
+            out.writeLong(packed);
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    public void recordOrientation(long timestamp, float heading, float pitch, float roll) {
+        recordOrientation(timestamp, OrientationFusion.pack(heading, pitch, roll));
+    }
+
+    /**
+     * The first write error, if any. Recording stops being useful after one.
+     */
+    public synchronized IOException getError() {
+        return error;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void writeHeader(int type, long timestamp) throws IOException {
+        if (error != null)
+            throw error;
+        // The first record holds the absolute time, the rest the time since the previous one.
+        // Samples from different sources may arrive slightly out of order and are clamped 不同来源的数据可能乱序
+        long delta = Math.max(0, timestamp - lastTimestamp);
+        lastTimestamp += delta;
+        out.writeByte(type);
+        writeVarLong(delta);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.arlocation.location.trace;
+
+import com.example.arlocation.location.sensor.LocationFix;
+import com.example.arlocation.location.sensor.OrientationFusion;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Feeds a trace written by {@link TraceRecorder} to a {@link TraceListener} 回放记录的轨迹
+ * <p>
+ * Samples are delivered on the thread calling {@link #run()}, or on a background thread after
+ * {@link #start()}, paced by their recorded timestamps divided by the speed.
+ */
+public class TraceReplayer implements Runnable {
+
+    private final InputStream stream;
+    private final TraceListener listener;
+    // 1 for real time, 10 for ten times faster, 0 or less for as fast as possible 回放速度
+    private volatile float speed = 1F;
+    private volatile boolean stopped = false;
+    private Thread thread;
+    private volatile IOException error;
+
+    public TraceReplayer(InputStream stream, TraceListener listener) {
+        this.stream = stream;
+        this.listener = listener;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Replay speed. 1 is real time, 0 or less replays without waiting. Default 1
+     */
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    public synchronized void start() {
+        if (thread != null)
+            return;
+        thread = new Thread(this, "TraceReplayer");
+        thread.start();
+    }
+
+    public void stop() {
+        stopped = true;
+        Thread t = thread;
+        if (t != null)
+            t.interrupt();
+    }
+
+    /**
+     * Whether the trace has been fully replayed, stopped or failed
+     */
+    public boolean isFinished() {
+        Thread t = thread;
+        return stopped || (t != null && !t.isAlive());
+    }
+
+    /**
+     * The error that ended the replay early, if any
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    @Override
+    public void run() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != TraceRecorder.MAGIC)
+                throw new IOException("Not a trace file");
+            int version = in.readUnsignedByte();
+            if (version != TraceRecorder.VERSION)
+                throw new IOException("Unsupported trace version " + version);
+
+            long timestamp = 0;
+            long firstTimestamp = -1;
+            long startTime = System.nanoTime();
+            while (!stopped) {
+                int type = in.read();
+                if (type < 0)
+                    break;
+                timestamp += readVarLong(in);
+                if (firstTimestamp < 0)
+                    firstTimestamp = timestamp;
+
+                switch (type) {
+                    case TraceRecorder.RECORD_LOCATION:
+                        LocationFix fix = new LocationFix(
+                                in.readDouble(), in.readDouble(),
+                                in.readFloat(), in.readFloat(), in.readFloat(),
+                                in.readUnsignedByte(), in.readLong());
+                        waitUntil(startTime, timestamp - firstTimestamp);
+                        listener.onLocation(timestamp, fix);
+                        break;
+                    case TraceRecorder.RECORD_ORIENTATION:
+                        long packed = in.readLong();
+                        waitUntil(startTime, timestamp - firstTimestamp);
+                        listener.onOrientation(timestamp,
+                                OrientationFusion.headingOf(packed),
+                                OrientationFusion.pitchOf(packed),
+                                OrientationFusion.rollOf(packed));
+                        break;
+                    default:
+                        throw new IOException("Unknown record type " + type);
+                }
+            }
+        } catch (EOFException e) {
+            error = new IOException("Trace ends in the middle of a record", e);
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitUntil(long startTime, long elapsed) throws InterruptedException {
+        float s = speed;
+        if (s <= 0)
+            return;
+        long wait = startTime + (long) (elapsed / s) - System.nanoTime();
+        if (wait > 0)
+            Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -1,38 +1,69 @@
 package com.example.arlocation.location.utils;
 
+import java.util.stream.IntStream;
+
 public class GCJ2WGSUtils {
 
+    private static final double PI = 3.14159265358979324;//圆周率
+    private static final double A = 6378245.0;//克拉索夫斯基椭球参数长半轴a
+    private static final double EE = 0.00669342162296594323;//克拉索夫斯基椭球参数第一偏心率平方
+
+    // Batches at least this large are split into chunks and converted in parallel 大批量并行转换
+    private static final int PARALLEL_THRESHOLD = 16384;
+    private static final int PARALLEL_CHUNK = 4096;
+    // Iterative inverse stops below this error in degrees (about 0.01mm) 迭代反算的收敛阈值
+    private static final double EXACT_TOLERANCE = 1e-10;
+    private static final int EXACT_MAX_ITERATIONS = 10;
+
+    // Sine and cosine of whole 1/1024 turns 每1/1024圈的正弦和余弦
+    private static final int TRIG_TABLE_SIZE = 1024;
+    private static final double[] SIN_TABLE = new double[TRIG_TABLE_SIZE];
+    private static final double[] COS_TABLE = new double[TRIG_TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < TRIG_TABLE_SIZE; i++) {
+            SIN_TABLE[i] = Math.sin(2 * Math.PI * i / TRIG_TABLE_SIZE);
+            COS_TABLE[i] = Math.cos(2 * Math.PI * i / TRIG_TABLE_SIZE);
+        }
+    }
+
+    /**
+     * How the batch conversions evaluate the sines of the transform 三角函数的计算方式
+     */
+    public enum Trig {
+        // Math.sin and Math.cos
+        EXACT,
+        // Nearest table entry plus a second order correction. Each sine is off by at most
+        // d^3/6 + d^4/24 with d = PI/1024, under 5e-9. The periodic terms of each shift add up
+        // to an amplitude below 390m, so a shift is off by under 2e-6m, far below 1cm
+        // across all of China 查表 误差远小于1cm
+        TABLE
+    }
+
     //输入GCJ经纬度 转WGS纬度
     public static double WGSLat (double lat,double lon) {
-        double PI = 3.14159265358979324;//圆周率
-        double a = 6378245.0;//克拉索夫斯基椭球参数长半轴a
-        double ee = 0.00669342162296594323;//克拉索夫斯基椭球参数第一偏心率平方
         double dLat = transformLat(lon - 105.0, lat - 35.0);
         double radLat = lat / 180.0 * PI;
         double magic = Math.sin(radLat);
-        magic = 1 - ee * magic * magic;
+        magic = 1 - EE * magic * magic;
         double sqrtMagic = Math.sqrt(magic);
-        dLat = (dLat * 180.0) / ((a * (1 - ee)) / (magic * sqrtMagic) * PI);
+        dLat = (dLat * 180.0) / ((A * (1 - EE)) / (magic * sqrtMagic) * PI);
         return (lat - dLat);
     }
 
     //输入GCJ经纬度 转WGS经度
     public static double WGSLon (double lat,double lon) {
-        double PI = 3.14159265358979324;//圆周率
-        double a = 6378245.0;//克拉索夫斯基椭球参数长半轴a
-        double ee = 0.00669342162296594323;//克拉索夫斯基椭球参数第一偏心率平方
         double dLon = transformLon(lon - 105.0, lat - 35.0);
         double radLat = lat / 180.0 * PI;
         double magic = Math.sin(radLat);
-        magic = 1 - ee * magic * magic;
+        magic = 1 - EE * magic * magic;
         double sqrtMagic = Math.sqrt(magic);
-        dLon = (dLon * 180.0) / (a / sqrtMagic * Math.cos(radLat) * PI);
+        dLon = (dLon * 180.0) / (A / sqrtMagic * Math.cos(radLat) * PI);
         return (lon - dLon);
     }
 
     //转换经度所需
     public static double transformLon(double x, double y) {
-        double PI = 3.14159265358979324;//圆周率
         double ret = 300.0 + x + 2.0 * y + 0.1 * x * x + 0.1 * x * y + 0.1 * Math.sqrt(Math.abs(x));
         ret += (20.0 * Math.sin(6.0 * x * PI) + 20.0 * Math.sin(2.0 * x * PI)) * 2.0 / 3.0;
         ret += (20.0 * Math.sin(x * PI) + 40.0 * Math.sin(x / 3.0 * PI)) * 2.0 / 3.0;
@@ -41,7 +72,6 @@ public class GCJ2WGSUtils {
     }
     //转换纬度所需
     public static double transformLat(double x, double y) {
-        double PI = 3.14159265358979324;//圆周率
         double ret = -100.0 + 2.0 * x + 3.0 * y + 0.2 * y * y + 0.1 * x * y + 0.2 * Math.sqrt(Math.abs(x));
         ret += (20.0 * Math.sin(6.0 * x * PI) + 20.0 * Math.sin(2.0 * x * PI)) * 2.0 / 3.0;
         ret += (20.0 * Math.sin(y * PI) + 40.0 * Math.sin(y / 3.0 * PI)) * 2.0 / 3.0;
@@ -49,4 +79,178 @@ public class GCJ2WGSUtils {
         return ret;
     }
 
-}
\ No newline at end of file
+    /**
+     * Convert GCJ-02 coordinates to WGS-84, the same single step as {@link #WGSLat} and
+     * {@link #WGSLon}, sharing the per-point terms between latitude and longitude.
+     * Output arrays may be the input arrays.
+     */
+    public static void toWGS(double[] lat, double[] lon, double[] outLat, double[] outLon) {
+        toWGS(lat, lon, outLat, outLon, Trig.EXACT);
+    }
+
+    public static void toWGS(double[] lat, double[] lon, double[] outLat, double[] outLon, Trig trig) {
+        convert(GCJ2WGSUtils::toWGSRange, trig, lat, lon, outLat, outLon);
+    }
+
+    /**
+     * Convert WGS-84 coordinates to GCJ-02. Output arrays may be the input arrays.
+     */
+    public static void toGCJ(double[] lat, double[] lon, double[] outLat, double[] outLon) {
+        toGCJ(lat, lon, outLat, outLon, Trig.EXACT);
+    }
+
+    public static void toGCJ(double[] lat, double[] lon, double[] outLat, double[] outLon, Trig trig) {
+        convert(GCJ2WGSUtils::toGCJRange, trig, lat, lon, outLat, outLon);
+    }
+
+    /**
+     * Convert GCJ-02 coordinates to WGS-84 by iterating the forward transform, so that
+     * {@link #toGCJ} of the result reproduces the input to within 1e-10 degrees.
+     * The single step of {@link #toWGS} leaves an error of up to a few metres.
+     * Output arrays may be the input arrays.
+     */
+    public static void toWGSExact(double[] lat, double[] lon, double[] outLat, double[] outLon) {
+        toWGSExact(lat, lon, outLat, outLon, Trig.EXACT);
+    }
+
+    public static void toWGSExact(double[] lat, double[] lon, double[] outLat, double[] outLon, Trig trig) {
+        convert(GCJ2WGSUtils::toWGSExactRange, trig, lat, lon, outLat, outLon);
+    }
+
+    private interface RangeConverter {
+        void convert(double[] lat, double[] lon, double[] outLat, double[] outLon, int from, int to, boolean table);
+    }
+
+    private static void convert(RangeConverter converter, Trig trig,
+                                double[] lat, double[] lon, double[] outLat, double[] outLon) {
+        int count = lat.length;
+        if (lon.length != count || outLat.length < count || outLon.length < count)
+            throw new IllegalArgumentException("Coordinate arrays must be the same length");
+
+        boolean table = trig == Trig.TABLE;
+        if (count < PARALLEL_THRESHOLD) {
+            converter.convert(lat, lon, outLat, outLon, 0, count, table);
+            return;
+        }
+        int chunks = (count + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(chunk ->
+                converter.convert(lat, lon, outLat, outLon,
+                        chunk * PARALLEL_CHUNK, Math.min(count, (chunk + 1) * PARALLEL_CHUNK), table));
+    }
+
+    private static void toWGSRange(double[] lat, double[] lon, double[] outLat, double[] outLon, int from, int to,
+                                   boolean table) {
+        for (int i = from; i < to; i++) {
+            double gcjLat = lat[i];
+            double gcjLon = lon[i];
+            offset(gcjLat, gcjLon, outLat, outLon, i, table);
+            outLat[i] = gcjLat - outLat[i];
+            outLon[i] = gcjLon - outLon[i];
+        }
+    }
+
+    private static void toGCJRange(double[] lat, double[] lon, double[] outLat, double[] outLon, int from, int to,
+                                   boolean table) {
+        for (int i = from; i < to; i++) {
+            double wgsLat = lat[i];
+            double wgsLon = lon[i];
+            offset(wgsLat, wgsLon, outLat, outLon, i, table);
+            outLat[i] = wgsLat + outLat[i];
+            outLon[i] = wgsLon + outLon[i];
+        }
+    }
+
+    private static void toWGSExactRange(double[] lat, double[] lon, double[] outLat, double[] outLon, int from, int to,
+                                        boolean table) {
+        for (int i = from; i < to; i++) {
+            double gcjLat = lat[i];
+            double gcjLon = lon[i];
+            // The first pass is the single step conversion 第一次迭代即为单步转换
+            double wgsLat = gcjLat;
+            double wgsLon = gcjLon;
+            for (int k = 0; k < EXACT_MAX_ITERATIONS; k++) {
+                offset(wgsLat, wgsLon, outLat, outLon, i, table);
+                double errorLat = wgsLat + outLat[i] - gcjLat;
+                double errorLon = wgsLon + outLon[i] - gcjLon;
+                wgsLat -= errorLat;
+                wgsLon -= errorLon;
+                if (Math.abs(errorLat) < EXACT_TOLERANCE && Math.abs(errorLon) < EXACT_TOLERANCE)
+                    break;
+            }
+            outLat[i] = wgsLat;
+            outLon[i] = wgsLon;
+        }
+    }
+
+    private static void offset(double lat, double lon, double[] dLat, double[] dLon, int i, boolean table) {
+        if (table)
+            offsetTable(lat, lon, dLat, dLon, i);
+        else
+            offset(lat, lon, dLat, dLon, i);
+    }
+
+    //计算GCJ在该点的偏移量(度) 写入dLat[i]和dLon[i]
+    private static void offset(double lat, double lon, double[] dLat, double[] dLon, int i) {
+        double x = lon - 105.0;
+        double y = lat - 35.0;
+
+        // Terms shared by the latitude and longitude polynomials 经纬度多项式的公共项
+        double sqrtAbsX = Math.sqrt(Math.abs(x));
+        double shared = (20.0 * Math.sin(6.0 * x * PI) + 20.0 * Math.sin(2.0 * x * PI)) * 2.0 / 3.0;
+
+        double latShift = -100.0 + 2.0 * x + 3.0 * y + 0.2 * y * y + 0.1 * x * y + 0.2 * sqrtAbsX;
+        latShift += shared;
+        latShift += (20.0 * Math.sin(y * PI) + 40.0 * Math.sin(y / 3.0 * PI)) * 2.0 / 3.0;
+        latShift += (160.0 * Math.sin(y / 12.0 * PI) + 320 * Math.sin(y * PI / 30.0)) * 2.0 / 3.0;
+
+        double lonShift = 300.0 + x + 2.0 * y + 0.1 * x * x + 0.1 * x * y + 0.1 * sqrtAbsX;
+        lonShift += shared;
+        lonShift += (20.0 * Math.sin(x * PI) + 40.0 * Math.sin(x / 3.0 * PI)) * 2.0 / 3.0;
+        lonShift += (150.0 * Math.sin(x / 12.0 * PI) + 300.0 * Math.sin(x / 30.0 * PI)) * 2.0 / 3.0;
+
+        double radLat = lat / 180.0 * PI;
+        double magic = Math.sin(radLat);
+        magic = 1 - EE * magic * magic;
+        double sqrtMagic = Math.sqrt(magic);
+        dLat[i] = (latShift * 180.0) / ((A * (1 - EE)) / (magic * sqrtMagic) * PI);
+        dLon[i] = (lonShift * 180.0) / (A / sqrtMagic * Math.cos(radLat) * PI);
+    }
+
+    // Same as offset, with every angle in turns and looked up in the table 查表计算偏移量
+    private static void offsetTable(double lat, double lon, double[] dLat, double[] dLon, int i) {
+        double x = lon - 105.0;
+        double y = lat - 35.0;
+
+        double sqrtAbsX = Math.sqrt(Math.abs(x));
+        double shared = (20.0 * sinTurns(3.0 * x) + 20.0 * sinTurns(x)) * 2.0 / 3.0;
+
+        double latShift = -100.0 + 2.0 * x + 3.0 * y + 0.2 * y * y + 0.1 * x * y + 0.2 * sqrtAbsX;
+        latShift += shared;
+        latShift += (20.0 * sinTurns(y / 2.0) + 40.0 * sinTurns(y / 6.0)) * 2.0 / 3.0;
+        latShift += (160.0 * sinTurns(y / 24.0) + 320 * sinTurns(y / 60.0)) * 2.0 / 3.0;
+
+        double lonShift = 300.0 + x + 2.0 * y + 0.1 * x * x + 0.1 * x * y + 0.1 * sqrtAbsX;
+        lonShift += shared;
+        lonShift += (20.0 * sinTurns(x / 2.0) + 40.0 * sinTurns(x / 6.0)) * 2.0 / 3.0;
+        lonShift += (150.0 * sinTurns(x / 24.0) + 300.0 * sinTurns(x / 60.0)) * 2.0 / 3.0;
+
+        double sinLat = sinTurns(lat / 360.0);
+        double cosLat = sinTurns(lat / 360.0 + 0.25);
+        double magic = 1 - EE * sinLat * sinLat;
+        double sqrtMagic = Math.sqrt(magic);
+        dLat[i] = (latShift * 180.0) / ((A * (1 - EE)) / (magic * sqrtMagic) * PI);
+        dLon[i] = (lonShift * 180.0) / (A / sqrtMagic * cosLat * PI);
+    }
+
+    /**
+     * sin(2 PI turns) from the nearest table entry, corrected with
+     * sin(a + d) = sin(a) cos(d) + cos(a) sin(d), cos(d) ~ 1 - d^2 / 2, sin(d) ~ d
+     */
+    static double sinTurns(double turns) {
+        double scaled = turns * TRIG_TABLE_SIZE;
+        long nearest = Math.round(scaled);
+        double d = (scaled - nearest) * (2 * Math.PI / TRIG_TABLE_SIZE);
+        int index = (int) (nearest & (TRIG_TABLE_SIZE - 1));
+        return SIN_TABLE[index] * (1 - d * d / 2) + COS_TABLE[index] * d;
+    }
+}
@@ -1,8 +1,47 @@
 package com.example.arlocation.location.utils;
 
+/**
+ * Distance and bearing between WGS-84 coordinates 经纬度之间的距离和方向角
+ * <p>
+ * Three accuracy tiers, see {@link Accuracy}. FAST and HAVERSINE work on the same sphere as
+ * {@link LocalProjection}, so they agree with each other and with the rest of the scene.
+ * ELLIPSOIDAL is only for callers that need true geodesic distances.
+ */
 public class LocationUtils {
 
-   // 输入经纬度计算方向角
+    /**
+     * Radius of the sphere all distances in the app are measured on 地球半径(米)
+     */
+    public static final double EARTH_RADIUS = 6371000.0;
+
+    // WGS-84 ellipsoid WGS-84椭球参数
+    private static final double WGS84_A = 6378137.0;
+    private static final double WGS84_F = 1 / 298.257223563;
+    private static final double WGS84_B = WGS84_A * (1 - WGS84_F);
+
+    /**
+     * AUTO uses FAST within this distance. Default 5km
+     */
+    public static final double FAST_RADIUS = 5000;
+
+    /**
+     * AUTO uses FAST only up to this latitude, the approximation degrades towards the poles
+     */
+    public static final double FAST_MAX_LATITUDE = 80;
+
+    public enum Accuracy {
+        // Equirectangular on the sphere, no trig for the distance. Compared to HAVERSINE,
+        // within 5mm and 0.0001 degrees up to 5km at latitudes up to 80 degrees 近距离快速近似
+        FAST,
+        // Great circle on the sphere 球面大圆
+        HAVERSINE,
+        // Vincenty on the WGS-84 ellipsoid, within 0.5mm of the true geodesic 椭球面
+        ELLIPSOIDAL,
+        // FAST within FAST_RADIUS, HAVERSINE beyond 按距离自动选择
+        AUTO
+    }
+
+    // 输入经纬度计算方向角
     public static double bearing(double lat1, double lon1, double lat2, double lon2){
         double longitude1 = lon1;
         double longitude2 = lon2;
@@ -17,16 +56,188 @@ public class LocationUtils {
     // 输入经纬度计算距离
     public static double distance(double lat1, double lat2, double lon1,
                                   double lon2) {
-        final int R = 6371; // 地球半径
         double latDistance = Math.toRadians(lat2 - lat1);
         double lonDistance = Math.toRadians(lon2 - lon1);
         double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
                 + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
                 * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c * 1000; // 单位转换成米
-        distance = Math.pow(distance, 2);
-        return Math.sqrt(distance);
+        return EARTH_RADIUS * c; // 单位为米
+    }
+
+    /**
+     * Distance and initial bearing from [lat1, lon1] to [lat2, lon2] in one pass.
+     *
+     * @param result - receives the distance in metres at [0] and the bearing in degrees from
+     *               north, clockwise, at [1]
+     */
+    public static void distanceAndBearing(double lat1, double lon1, double lat2, double lon2,
+                                          Accuracy accuracy, double[] result) {
+        double latitude1 = Math.toRadians(lat1);
+        distancesAndBearings(latitude1, Math.sin(latitude1), Math.cos(latitude1), lon1,
+                lat2, lon2, accuracy, result, 0, result, 1);
+    }
+
+    /**
+     * Distance and initial bearing from one point to [count] others in one pass. Work that only
+     * depends on the first point is done once.
+     *
+     * @param distances - receives metres
+     * @param bearings  - receives degrees from north, clockwise
+     */
+    public static void distancesAndBearings(double latitude, double longitude,
+                                            double[] latitudes, double[] longitudes, int count,
+                                            Accuracy accuracy, double[] distances, double[] bearings) {
+        double latitude1 = Math.toRadians(latitude);
+        double sinLatitude1 = Math.sin(latitude1);
+        double cosLatitude1 = Math.cos(latitude1);
+        for (int i = 0; i < count; i++)
+            distancesAndBearings(latitude1, sinLatitude1, cosLatitude1, longitude,
+                    latitudes[i], longitudes[i], accuracy, distances, i, bearings, i);
+    }
+
+    private static void distancesAndBearings(double latitude1, double sinLatitude1, double cosLatitude1,
+                                             double lon1, double lat2, double lon2, Accuracy accuracy,
+                                             double[] distances, int distanceIndex,
+                                             double[] bearings, int bearingIndex) {
+        double latitude2 = Math.toRadians(lat2);
+        double dLat = latitude2 - latitude1;
+        double dLon = Math.toRadians(wrapLongitude(lon2 - lon1));
+        if (accuracy == Accuracy.AUTO) {
+            if (Math.abs(latitude1) <= Math.toRadians(FAST_MAX_LATITUDE)
+                    && fast(sinLatitude1, cosLatitude1, dLat, dLon, distances, distanceIndex,
+                    bearings, bearingIndex) <= FAST_RADIUS)
+                return;
+            // Too far for the approximation 超出近似范围
+            accuracy = Accuracy.HAVERSINE;
+        }
+        switch (accuracy) {
+            case HAVERSINE:
+                haversine(sinLatitude1, cosLatitude1, latitude2, dLat, dLon, distances, distanceIndex,
+                        bearings, bearingIndex);
+                break;
+            case FAST:
+                fast(sinLatitude1, cosLatitude1, dLat, dLon, distances, distanceIndex, bearings, bearingIndex);
+                break;
+            case ELLIPSOIDAL:
+                if (!vincenty(latitude1, latitude2, dLon, distances, distanceIndex, bearings, bearingIndex))
+                    haversine(sinLatitude1, cosLatitude1, latitude2, dLat, dLon, distances, distanceIndex,
+                            bearings, bearingIndex);
+                break;
+        }
+    }
+
+    /**
+     * Equirectangular projection at the mid-latitude. Sine and cosine of the mid-latitude come
+     * from a series around the first point, and the bearing is turned back by half the
+     * convergence of the meridians so it is the initial bearing.
+     *
+     * @return - the distance
+     */
+    private static double fast(double sinLatitude1, double cosLatitude1, double dLat, double dLon,
+                               double[] distances, int distanceIndex, double[] bearings, int bearingIndex) {
+        double half = dLat / 2;
+        double c = 1 - half * half / 2;
+        double cosMid = cosLatitude1 * c - sinLatitude1 * half;
+        double sinMid = sinLatitude1 * c + cosLatitude1 * half;
+        double east = dLon * cosMid;
+        double distance = EARTH_RADIUS * Math.sqrt(east * east + dLat * dLat);
+        distances[distanceIndex] = distance;
+        bearings[bearingIndex] = normalizeBearing(Math.toDegrees(Math.atan2(east, dLat) - dLon * sinMid / 2));
+        return distance;
     }
 
+    private static void haversine(double sinLatitude1, double cosLatitude1, double latitude2,
+                                  double dLat, double dLon, double[] distances, int distanceIndex,
+                                  double[] bearings, int bearingIndex) {
+        double sinLatitude2 = Math.sin(latitude2);
+        double cosLatitude2 = Math.cos(latitude2);
+        double sinHalfLat = Math.sin(dLat / 2);
+        double sinHalfLon = Math.sin(dLon / 2);
+        double cosHalfLon = Math.cos(dLon / 2);
+        double a = sinHalfLat * sinHalfLat + cosLatitude1 * cosLatitude2 * sinHalfLon * sinHalfLon;
+        distances[distanceIndex] = 2 * EARTH_RADIUS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        // sin and cos of dLon from the half angle 由半角得到经度差的正弦和余弦
+        double sinLon = 2 * sinHalfLon * cosHalfLon;
+        double cosLon = 1 - 2 * sinHalfLon * sinHalfLon;
+        double y = sinLon * cosLatitude2;
+        double x = cosLatitude1 * sinLatitude2 - sinLatitude1 * cosLatitude2 * cosLon;
+        bearings[bearingIndex] = normalizeBearing(Math.toDegrees(Math.atan2(y, x)));
+    }
+
+    /**
+     * Vincenty's inverse formula
+     *
+     * @return - false if it did not converge, e.g. for nearly antipodal points
+     */
+    private static boolean vincenty(double latitude1, double latitude2, double dLon,
+                                    double[] distances, int distanceIndex, double[] bearings, int bearingIndex) {
+        double u1 = Math.atan((1 - WGS84_F) * Math.tan(latitude1));
+        double u2 = Math.atan((1 - WGS84_F) * Math.tan(latitude2));
+        double sinU1 = Math.sin(u1);
+        double cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU2 = Math.cos(u2);
+
+        double lambda = dLon;
+        double sinLambda;
+        double cosLambda;
+        double sinSigma;
+        double cosSigma;
+        double sigma;
+        double cosSqAlpha;
+        double cos2SigmaM;
+        int iterations = 0;
+        while (true) {
+            sinLambda = Math.sin(lambda);
+            cosLambda = Math.cos(lambda);
+            double t = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(cosU2 * sinLambda * cosU2 * sinLambda + t * t);
+            if (sinSigma == 0) {
+                // Same point 同一点
+                distances[distanceIndex] = 0;
+                bearings[bearingIndex] = 0;
+                return true;
+            }
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1 - sinAlpha * sinAlpha;
+            // Both points on the equator 均在赤道上
+            cos2SigmaM = cosSqAlpha != 0 ? cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha : 0;
+            double c = WGS84_F / 16 * cosSqAlpha * (4 + WGS84_F * (4 - 3 * cosSqAlpha));
+            double previous = lambda;
+            lambda = dLon + (1 - c) * WGS84_F * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+            if (Math.abs(lambda - previous) < 1e-12)
+                break;
+            if (++iterations >= 100)
+                return false;
+        }
+
+        double uSq = cosSqAlpha * (WGS84_A * WGS84_A - WGS84_B * WGS84_B) / (WGS84_B * WGS84_B);
+        double a = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        double b = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+        double deltaSigma = b * sinSigma * (cos2SigmaM + b / 4 * (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)
+                - b / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+        distances[distanceIndex] = WGS84_B * a * (sigma - deltaSigma);
+        bearings[bearingIndex] = normalizeBearing(Math.toDegrees(
+                Math.atan2(cosU2 * sinLambda, cosU1 * sinU2 - sinU1 * cosU2 * cosLambda)));
+        return true;
+    }
+
+    // -180 to 180 degrees
+    private static double wrapLongitude(double degrees) {
+        if (degrees > 180)
+            return degrees - 360;
+        if (degrees < -180)
+            return degrees + 360;
+        return degrees;
+    }
+
+    // 0 to 360 degrees
+    private static double normalizeBearing(double degrees) {
+        return degrees < 0 ? degrees + 360 : degrees >= 360 ? degrees - 360 : degrees;
+    }
 }
@@ -0,0 +1,93 @@
+package com.example.arlocation.location;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AnchorBudgetTest {
+
+    private static PoseBatch batch(LocationMarker[] markers, int[] distances) {
+        MarkerPose[] poses = new MarkerPose[markers.length];
+        for (int i = 0; i < markers.length; i++)
+            poses[i] = new MarkerPose(distances[i], 0, 0, -distances[i], 0);
+        return new PoseBatch(markers, poses, new float[markers.length], new LocationMarker[0], false,
+                new float[3], new float[]{0, 0, 0, 1});
+    }
+
+    private static LocationMarker[] markers(int count) {
+        LocationMarker[] markers = new LocationMarker[count];
+        for (int i = 0; i < count; i++)
+            markers[i] = new LocationMarker(114.3, 30.5);
+        return markers;
+    }
+
+    @Test
+    public void withinBudget_everythingIsKept() {
+        AnchorBudget budget = new AnchorBudget();
+        LocationMarker[] markers = markers(5);
+        boolean[] keep = budget.select(batch(markers, new int[]{1, 2, 3, 4, 5}), new boolean[5], 1000);
+        for (int i = 0; i < 5; i++)
+            assertTrue(keep[i]);
+    }
+
+    @Test
+    public void overBudget_inViewThenNearestWin() {
+        AnchorBudget budget = new AnchorBudget();
+        budget.setMaxAnchors(2);
+        LocationMarker[] markers = markers(4);
+        boolean[] inView = {false, false, true, false};
+        boolean[] keep = budget.select(batch(markers, new int[]{10, 20, 90, 5}), inView, 1000);
+        assertArrayEquals(new boolean[]{false, false, true, true}, Arrays.copyOf(keep, 4));
+    }
+
+    @Test
+    public void anchoredMarkers_outrankNewOnes_andRecentOutrankOld() {
+        AnchorBudget budget = new AnchorBudget();
+        budget.setMaxAnchors(2);
+        LocationMarker[] markers = markers(4);
+        budget.onAnchored(markers[2], 1000);
+        budget.onAnchored(markers[3], 2000);
+        budget.touch(markers[3], 9000);
+        boolean[] keep = budget.select(batch(markers, new int[]{1, 2, 50, 60}), new boolean[4], 10000);
+        // Seen 1s ago is recent, anchored 9s ago ranks after it but before new markers
+        assertArrayEquals(new boolean[]{false, false, true, true}, Arrays.copyOf(keep, 4));
+    }
+
+    @Test
+    public void newAnchors_areNotRecentUntilSeen() {
+        AnchorBudget budget = new AnchorBudget();
+        budget.setMaxAnchors(1);
+        LocationMarker[] markers = markers(2);
+        budget.onAnchored(markers[0], 9000);
+        budget.onAnchored(markers[1], 1000);
+        budget.touch(markers[1], 9500);
+        boolean[] keep = budget.select(batch(markers, new int[]{10, 50}), new boolean[2], 10000);
+        // Placed 1s ago but never in view, the farther marker was actually seen
+        assertArrayEquals(new boolean[]{false, true}, Arrays.copyOf(keep, 2));
+    }
+
+    @Test
+    public void markersOutsideTheBatch_areEvictedLeastRecentlySeenFirst() {
+        AnchorBudget budget = new AnchorBudget();
+        budget.setMaxAnchors(2);
+        LocationMarker[] old = markers(3);
+        budget.onAnchored(old[0], 1000);
+        budget.onAnchored(old[1], 2000);
+        budget.onAnchored(old[2], 3000);
+        budget.touch(old[0], 4000);
+
+        LocationMarker[] current = markers(1);
+        budget.select(batch(current, new int[]{5}), new boolean[1], 5000);
+        budget.onAnchored(current[0], 5000);
+
+        LocationMarker evicted = budget.nextEviction();
+        assertSame(old[1], evicted);
+        budget.onReleased(evicted);
+        assertSame(old[2], budget.nextEviction());
+        budget.onReleased(old[2]);
+        assertNull(budget.nextEviction());
+        assertEquals(2, budget.getAnchoredCount());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.arlocation.location;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LabelPlacerTest {
+
+    @Test
+    public void rowsBelowTop_neverOverlap() {
+        Random random = new Random(3);
+        int count = 500;
+        float[] bearings = new float[count];
+        int[] distances = new int[count];
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            bearings[i] = random.nextFloat() * 720 - 180;
+            distances[i] = random.nextInt(5000);
+            rows[i] = -1;
+        }
+
+        LabelPlacer placer = new LabelPlacer();
+        placer.place(bearings, distances, rows, count);
+
+        for (int i = 0; i < count; i++) {
+            assertTrue(rows[i] >= 0 && rows[i] < placer.getMaxRows());
+            if (rows[i] == placer.getMaxRows() - 1)
+                continue;
+            for (int j = i + 1; j < count; j++) {
+                if (rows[j] != rows[i])
+                    continue;
+                float difference = Math.abs(((bearings[i] - bearings[j]) % 360 + 540) % 360 - 180);
+                assertTrue(difference >= placer.getLabelWidth());
+            }
+        }
+    }
+
+    @Test
+    public void rowsStayStable_whenMarkersBarelyMove() {
+        float[] bearings = {10, 15, 20, 90, 95, 300};
+        int[] distances = {100, 200, 300, 50, 60, 1000};
+        int[] rows = new int[bearings.length];
+        Arrays.fill(rows, -1);
+
+        LabelPlacer placer = new LabelPlacer();
+        placer.place(bearings, distances, rows, bearings.length);
+        assertArrayEquals(new int[]{0, 1, 2, 0, 1, 0}, rows);
+
+        // The nearer label moved further than the next one, rows are kept 距离排序变化 行号保持不变
+        int[] previous = rows.clone();
+        distances[0] = 250;
+        bearings[1] = 16;
+        placer.place(bearings, distances, rows, bearings.length);
+        assertArrayEquals(previous, rows);
+    }
+
+    @Test
+    public void heightClearsRowsBelow() {
+        LabelPlacer placer = new LabelPlacer();
+        assertEquals(0, placer.heightOf(0, 20), 0);
+        assertEquals(20 * Math.tan(Math.toRadians(12)), placer.heightOf(1, 20), 1e-5);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.arlocation.location;
+
+import com.example.arlocation.location.engine.ImmediateScheduler;
+import com.example.arlocation.location.engine.InMemoryAnchorFactory;
+import com.example.arlocation.location.engine.InMemoryCamera;
+import com.example.arlocation.location.engine.ManualClock;
+import com.example.arlocation.location.engine.Scheduler;
+import com.example.arlocation.location.stats.FrameStats;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class LocationEngineTest {
+
+    private final InMemoryCamera camera = new InMemoryCamera();
+    private final InMemoryAnchorFactory anchors = new InMemoryAnchorFactory();
+    private final ManualClock clock = new ManualClock(1000);
+    private final LocationEngine<InMemoryAnchorFactory.Anchor> engine =
+            new LocationEngine<>(camera, anchors, new ImmediateScheduler(), clock);
+
+    @Test
+    public void largeScene_staysWithinAnchorBudget() {
+        // 10k markers on a 100 x 100 grid, roughly 11m apart 约11米间隔的网格
+        ArrayList<LocationMarker> markers = new ArrayList<>();
+        for (int i = 0; i < 10000; i++)
+            markers.add(new LocationMarker(114.3 + (i % 100) * 1e-4, 30.5 + (i / 100) * 1e-4));
+        engine.getMarkerRegistry().addAll(markers);
+        engine.getFrameStats().setEnabled(true);
+        engine.setLocation(30.505, 114.305, 5);
+        engine.setOrientation(0, 0);
+
+        // Poses are computed on one frame and applied on the next 下一帧应用计算结果
+        engine.processFrame();
+        assertEquals(0, anchors.getCreatedCount());
+        engine.processFrame();
+        int budget = engine.getAnchorBudget().getMaxAnchors();
+        assertEquals(budget, anchors.getLiveCount());
+        assertEquals(budget, engine.getAnchorBudget().getAnchoredCount());
+        FrameStats.Snapshot stats = engine.getFrameStats().snapshot();
+        assertEquals(1, stats.get(FrameStats.Stage.ANCHOR_UPDATE).getCount());
+        assertEquals(budget, stats.getAnchorsCreated().getMax());
+
+        // Nothing changed, nothing is refreshed 无变化时不刷新
+        clock.advance(2000);
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(budget, anchors.getCreatedCount());
+
+        // Walking past the distance threshold re-anchors, still within budget 移动后重建 仍在预算内
+        engine.setLocation(30.5051, 114.305, 5);
+        engine.processFrame();
+        engine.processFrame();
+        assertTrue(anchors.getCreatedCount() > budget);
+        assertEquals(budget, anchors.getLiveCount());
+    }
+
+    @Test
+    public void trackingLoss_refreshesWhenTrackingIsBack() {
+        engine.getMarkerRegistry().add(new LocationMarker(114.3001, 30.5001));
+        engine.setLocation(30.5, 114.3, 5);
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(1, anchors.getCreatedCount());
+
+        camera.setTracking(false);
+        clock.advance(2000);
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(1, anchors.getCreatedCount());
+
+        // Anchors may have drifted while tracking was lost 跟踪丢失期间Anchor可能漂移
+        camera.setTracking(true);
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(2, anchors.getCreatedCount());
+        assertEquals(1, anchors.getLiveCount());
+    }
+
+    @Test
+    public void anchorsFollowCamera() {
+        // A marker about 111m due north of the user 正北约111米
+        LocationMarker marker = new LocationMarker(114.3, 30.501);
+        engine.getMarkerRegistry().add(marker);
+        engine.setLocation(30.5, 114.3, 5);
+        camera.setTranslation(1, 2, 3);
+        engine.processFrame();
+        engine.processFrame();
+
+        InMemoryAnchorFactory.Anchor anchor = engine.getAnchor(marker);
+        assertNotNull(anchor);
+        // North is straight ahead (-z), far markers are lifted above the camera 正前方 远处标识抬高
+        assertEquals(1, anchor.x, 0.01);
+        assertTrue(anchor.y >= 2);
+        assertTrue(anchor.z < 3);
+    }
+
+    @Test
+    public void anchorsUseTheCameraPoseOfTheirRefresh() {
+        LocationMarker marker = new LocationMarker(114.3, 30.501);
+        engine.getMarkerRegistry().add(marker);
+        engine.setLocation(30.5, 114.3, 5);
+        camera.setTranslation(1, 2, 3);
+        engine.processFrame();
+
+        // The camera moves and turns before the poses are applied 应用前相机移动并转向
+        camera.setTranslation(10, 2, 3);
+        camera.setYaw(90);
+        engine.processFrame();
+
+        InMemoryAnchorFactory.Anchor anchor = engine.getAnchor(marker);
+        assertNotNull(anchor);
+        assertEquals(1, anchor.x, 0.01);
+        assertTrue(anchor.z < 3);
+    }
+
+    @Test
+    public void removedMarkers_releaseTheirAnchors() {
+        ArrayList<LocationMarker> markers = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            markers.add(new LocationMarker(114.3 + i * 1e-4, 30.5001));
+        engine.getMarkerRegistry().addAll(markers);
+        engine.setLocation(30.5, 114.3, 5);
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(10, anchors.getLiveCount());
+
+        LocationMarker removed = markers.get(3);
+        InMemoryAnchorFactory.Anchor anchor = engine.getAnchor(removed);
+        engine.getMarkerRegistry().remove(removed);
+        assertTrue(anchor.isDetached());
+        assertNull(engine.getAnchor(removed));
+        assertEquals(9, anchors.getLiveCount());
+
+        engine.clearMarkers();
+        assertEquals(0, anchors.getLiveCount());
+        assertEquals(0, engine.getAnchorBudget().getAnchoredCount());
+    }
+
+    @Test
+    public void clearMarkers_detachesTheStore() {
+        MarkerStore store = new MarkerStore();
+        store.addAll(new double[]{30.5001}, new double[]{114.3}, null, 1, 0);
+        engine.setMarkerStore(store);
+        engine.getMarkerRegistry().add(new LocationMarker(114.3001, 30.5));
+        engine.setLocation(30.5, 114.3, 5);
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(2, anchors.getLiveCount());
+
+        engine.clearMarkers();
+        assertNull(engine.getMarkerStore());
+        engine.refreshAllAnchors();
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(0, anchors.getLiveCount());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void removalDuringRefresh_stillReleasesHiddenMarkers() {
+        // Pose jobs wait until the test runs them 后台任务由测试手动执行
+        ArrayDeque<Runnable> background = new ArrayDeque<>();
+        LocationEngine<InMemoryAnchorFactory.Anchor> engine = new LocationEngine<>(camera, anchors,
+                new Scheduler() {
+                    @Override
+                    public void runInBackground(Runnable task) {
+                        background.add(task);
+                    }
+
+                    @Override
+                    public void runOnFrameThread(Runnable task) {
+                        task.run();
+                    }
+                }, clock);
+
+        MarkerStore store = new MarkerStore();
+        MarkerStyle style = new MarkerStyle();
+        style.setOnlyRenderWhenWithin(50);
+        int styleIndex = store.addStyle(style);
+        store.addAll(new double[]{30.5001}, new double[]{114.3}, null, 1, styleIndex);
+        engine.setMarkerStore(store);
+        LocationMarker listed = new LocationMarker(114.3001, 30.5);
+        engine.getMarkerRegistry().add(listed);
+        engine.setLocation(30.5, 114.3, 5);
+        engine.processFrame();
+        while (!background.isEmpty())
+            background.poll().run();
+        engine.processFrame();
+        assertEquals(2, anchors.getLiveCount());
+
+        // Walk away, the store marker is released by the placer 离开后存储标识被释放
+        clock.advance(2000);
+        engine.setLocation(30.51, 114.3, 5);
+        engine.processFrame();
+        assertEquals(1, background.size());
+        background.poll().run();
+
+        // A removal makes the finished batch stale 移除标识使计算结果过期
+        engine.getMarkerRegistry().remove(listed);
+        engine.processFrame();
+        assertEquals(0, anchors.getLiveCount());
+        assertEquals(0, engine.getAnchorBudget().getAnchoredCount());
+    }
+
+    @Test
+    public void failedPlacement_isReportedAndOthersArePlaced() {
+        LocationMarker broken = new LocationMarker(114.3001, 30.5001);
+        engine.getMarkerRegistry().add(broken);
+        engine.getMarkerRegistry().add(new LocationMarker(114.3002, 30.5001));
+        ArrayList<RuntimeException> errors = new ArrayList<>();
+        engine.setListener(new LocationEngine.Listener<InMemoryAnchorFactory.Anchor>() {
+            @Override
+            public boolean onPrepare(LocationMarker marker) {
+                if (marker == broken)
+                    throw new IllegalStateException("No node");
+                return true;
+            }
+
+            @Override
+            public void onAnchored(LocationMarker marker, InMemoryAnchorFactory.Anchor anchor,
+                                   InMemoryAnchorFactory.Anchor previous, MarkerPose pose, float height) {
+            }
+
+            @Override
+            public void onUpdated(LocationMarker marker, InMemoryAnchorFactory.Anchor anchor, int distance, float height) {
+            }
+
+            @Override
+            public void onReleased(LocationMarker marker, InMemoryAnchorFactory.Anchor anchor) {
+            }
+
+            @Override
+            public void onBatchApplied(int created, int size) {
+            }
+
+            @Override
+            public void onError(RuntimeException error) {
+                errors.add(error);
+            }
+        });
+        engine.setLocation(30.5, 114.3, 5);
+        engine.processFrame();
+        engine.processFrame();
+
+        assertEquals(1, errors.size());
+        assertEquals("No node", errors.get(0).getMessage());
+        assertNull(engine.getAnchor(broken));
+        assertEquals(1, anchors.getLiveCount());
+    }
+
+    @Test
+    public void closedEngine_ignoresSettingsAfterShutdown() {
+        // Rejects work like an executor that was shut down 模拟已关闭的线程池
+        boolean[] shutdown = {false};
+        LocationEngine<InMemoryAnchorFactory.Anchor> engine = new LocationEngine<>(camera, anchors,
+                new Scheduler() {
+                    @Override
+                    public void runInBackground(Runnable task) {
+                        if (shutdown[0])
+                            throw new RejectedExecutionException();
+                        task.run();
+                    }
+
+                    @Override
+                    public void runOnFrameThread(Runnable task) {
+                        task.run();
+                    }
+                }, clock);
+        engine.getMarkerRegistry().add(new LocationMarker(114.3001, 30.5001));
+        engine.setLocation(30.5, 114.3, 5);
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(1, anchors.getCreatedCount());
+
+        engine.close();
+        shutdown[0] = true;
+        engine.setClusteringEnabled(true);
+        engine.setClusterSplitDistance(100);
+        engine.setLabelSize(10, 5);
+        engine.refreshAllAnchors();
+        engine.processFrame();
+        engine.processFrame();
+        assertEquals(1, anchors.getCreatedCount());
+    }
+}
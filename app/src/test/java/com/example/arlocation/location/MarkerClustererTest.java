@@ -0,0 +1,61 @@
+package com.example.arlocation.location;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class MarkerClustererTest {
+
+    private static final int COUNT = 100;
+    private final LocationMarker[] all = new LocationMarker[COUNT];
+    private final LocationMarker[] markers = new LocationMarker[COUNT];
+    private final int[] distances = new int[COUNT];
+    private final float[] bearings = new float[COUNT];
+
+    @Test
+    public void denseDistantMarkers_mergeAndSplitWhenNear() {
+        for (int i = 0; i < COUNT; i++)
+            all[i] = new LocationMarker(114 + i * 1e-5, 30.5);
+        MarkerClusterer clusterer = new MarkerClusterer();
+        ArrayList<LocationMarker> hidden = new ArrayList<>();
+
+        // 98 markers in one direction and band merge, the two near ones stay 同方向的远处标识合并为一个
+        int n = refresh(1000, clusterer, hidden);
+        assertEquals(3, n);
+        ClusterMarker cluster = findCluster(n);
+        assertNotNull(cluster);
+        assertEquals(98, cluster.getSize());
+        assertEquals(98, hidden.size());
+
+        // Same bucket on the next refresh, same cluster instance
+        hidden.clear();
+        n = refresh(1000, clusterer, hidden);
+        assertSame(cluster, findCluster(n));
+
+        // Walk up to them, the cluster splits and is hidden 靠近后聚合拆分
+        hidden.clear();
+        n = refresh(200, clusterer, hidden);
+        assertEquals(COUNT, n);
+        assertNull(findCluster(n));
+        assertTrue(hidden.contains(cluster));
+    }
+
+    private int refresh(int distance, MarkerClusterer clusterer, ArrayList<LocationMarker> hidden) {
+        for (int i = 0; i < COUNT; i++) {
+            markers[i] = all[i];
+            distances[i] = i < 98 ? distance + i : 50 + i;
+            bearings[i] = i < 98 ? 40 + i * 0.05F : i * 90;
+        }
+        return clusterer.cluster(markers, distances, bearings, COUNT, hidden);
+    }
+
+    private ClusterMarker findCluster(int n) {
+        for (int i = 0; i < n; i++) {
+            if (markers[i] instanceof ClusterMarker)
+                return (ClusterMarker) markers[i];
+        }
+        return null;
+    }
+}
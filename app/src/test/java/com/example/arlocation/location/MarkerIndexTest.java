@@ -0,0 +1,69 @@
+package com.example.arlocation.location;
+
+import com.example.arlocation.location.utils.LocationUtils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MarkerIndexTest {
+
+    private static final double METRES = 111195.0;
+
+    @Test
+    public void markerJustInsideRadius_inNextCell() {
+        // 49.98m due north, just across the cell edge at 30 degrees 刚好跨过30度的网格边界
+        double latitude = 30 - 49.96 / METRES;
+        double[] lat = {latitude + 49.98 / METRES};
+        double[] lon = {114.3};
+        MarkerIndex index = new MarkerIndex(0.25);
+        index.build(lat, lon, 1);
+        int[] hits = {0};
+        index.query(latitude, 114.3, 50, id -> hits[0]++);
+        assertEquals(1, hits[0]);
+    }
+
+    @Test
+    public void query_findsEverythingBruteForceFinds() {
+        Random random = new Random(1);
+        // Mid latitudes, near a pole and around the antimeridian 中纬度、极地附近和180度经线
+        double[][] centres = {{30.5, 114.3}, {78, 20}, {-45, 179.995}, {10, -179.998}};
+        for (double[] centre : centres) {
+            int count = 5000;
+            double[] lat = new double[count];
+            double[] lon = new double[count];
+            for (int i = 0; i < count; i++) {
+                lat[i] = centre[0] + (random.nextDouble() * 2 - 1) * 0.05;
+                lon[i] = centre[1] + (random.nextDouble() * 2 - 1) * 0.05;
+                if (lon[i] > 180)
+                    lon[i] -= 360;
+                else if (lon[i] < -180)
+                    lon[i] += 360;
+            }
+            MarkerIndex index = new MarkerIndex(0.005);
+            index.build(lat, lon, count);
+
+            for (int q = 0; q < 200; q++) {
+                double latitude = centre[0] + (random.nextDouble() * 2 - 1) * 0.03;
+                double longitude = centre[1] + (random.nextDouble() * 2 - 1) * 0.03;
+                if (longitude > 180)
+                    longitude -= 360;
+                else if (longitude < -180)
+                    longitude += 360;
+                double radius = 10 + random.nextDouble() * 2000;
+
+                boolean[] visited = new boolean[count];
+                index.query(latitude, longitude, radius, id -> {
+                    assertFalse("visited twice", visited[id]);
+                    visited[id] = true;
+                });
+                for (int i = 0; i < count; i++) {
+                    if (LocationUtils.distance(latitude, lat[i], longitude, lon[i]) <= radius)
+                        assertTrue("missed marker " + i, visited[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.arlocation.location;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MarkerRegistryTest {
+
+    private static LocationMarker marker() {
+        return new LocationMarker(114.3, 30.5);
+    }
+
+    @Test
+    public void changes_publishNewSnapshots_andOldOnesStayIntact() {
+        MarkerRegistry registry = new MarkerRegistry();
+        LocationMarker a = marker();
+        LocationMarker b = marker();
+        registry.add(a);
+        MarkerRegistry.Snapshot first = registry.getSnapshot();
+        registry.addAll(Arrays.asList(b, marker()));
+        assertTrue(registry.remove(a));
+        assertFalse(registry.remove(a));
+
+        assertEquals(1, first.size());
+        assertSame(a, first.get(0));
+        assertEquals(2, registry.size());
+        assertSame(b, registry.getSnapshot().get(0));
+        assertEquals(3, registry.getVersion());
+    }
+
+    @Test
+    public void listeners_getOnlyWhatChanged() {
+        MarkerRegistry registry = new MarkerRegistry();
+        List<LocationMarker> added = new ArrayList<>();
+        List<LocationMarker> removed = new ArrayList<>();
+        registry.addListener((a, r, version) -> {
+            added.addAll(Arrays.asList(a));
+            removed.addAll(Arrays.asList(r));
+        });
+        LocationMarker kept = marker();
+        LocationMarker dropped = marker();
+        LocationMarker fresh = marker();
+        registry.addAll(Arrays.asList(kept, dropped));
+        added.clear();
+
+        registry.replaceAll(Arrays.asList(kept, fresh));
+        assertEquals(Arrays.asList(fresh), added);
+        assertEquals(Arrays.asList(dropped), removed);
+
+        removed.clear();
+        registry.clear();
+        assertEquals(2, removed.size());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void concurrentAdds_areAllKept() throws InterruptedException {
+        MarkerRegistry registry = new MarkerRegistry();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++)
+                    registry.add(marker());
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(2000, registry.size());
+        assertEquals(2000, registry.getVersion());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.arlocation.location;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class MarkerStoreTest {
+
+    // Camera at the origin looking north 相机位于原点朝北
+    private static final float[] ORIGIN = new float[3];
+    private static final float[] IDENTITY = {0, 0, 0, 1};
+
+    @Test
+    public void onlyMarkersInRange_areMaterialized() {
+        // 100k markers on a 300 x 334 grid, roughly 11m apart 约11米间隔的网格
+        MarkerStore store = new MarkerStore();
+        MarkerStyle style = new MarkerStyle();
+        style.setOnlyRenderWhenWithin(50);
+        int styleIndex = store.addStyle(style);
+        int total = 100000;
+        double[] lat = new double[total];
+        double[] lon = new double[total];
+        for (int i = 0; i < total; i++) {
+            lat[i] = 30.5 + (i / 300) * 1e-4;
+            lon[i] = 114.3 + (i % 300) * 1e-4;
+        }
+        assertEquals(0, store.addAll(lat, lon, null, total, styleIndex));
+
+        LocationMarker listed = new LocationMarker(114.31, 30.51);
+        MarkerPlacer placer = new MarkerPlacer();
+        placer.setMarkers(new ArrayList<>(Collections.singletonList(listed)), store);
+        assertEquals(total + 1, placer.getMarkerCount());
+
+        PoseBatch batch = placer.place(30.51, 114.31, 0, 0, 0, 20, false, false, ORIGIN, IDENTITY);
+        assertTrue(batch.size() > 10 && batch.size() < 100);
+        assertEquals(batch.size() - 1, placer.getMaterializedCount());
+        for (int i = 0; i < batch.size(); i++) {
+            LocationMarker marker = batch.getMarker(i);
+            assertTrue(batch.getPose(i).markerDistance <= 50);
+            if (marker != listed) {
+                assertEquals(50, marker.getOnlyRenderWhenWithin());
+                assertEquals(store.getLatitude(marker.getStoreId()), marker.latitude, 0);
+            }
+        }
+        LocationMarker first = batch.getMarker(batch.size() - 1);
+
+        // Same place, same objects 位置不变 对象不变
+        PoseBatch again = placer.place(30.51, 114.31, 0, 0, 0, 20, false, false, ORIGIN, IDENTITY);
+        assertEquals(0, again.getHidden().length);
+        boolean same = false;
+        for (int i = 0; i < again.size(); i++)
+            same |= again.getMarker(i) == first;
+        assertTrue(same);
+
+        // Walk 1km north, the old markers are released 离开后释放
+        PoseBatch moved = placer.place(30.519, 114.31, 0, 0, 0, 20, false, false, ORIGIN, IDENTITY);
+        assertEquals(batch.size() - 1, moved.getHidden().length);
+        assertEquals(moved.size() - 1, placer.getMaterializedCount());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.arlocation.location;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RefreshSchedulerTest {
+
+    private static final double LAT = 30.5;
+    private static final double LON = 114.3;
+    private static final double METRE = 1 / 111195.0;
+
+    private static RefreshScheduler started() {
+        RefreshScheduler scheduler = new RefreshScheduler();
+        assertEquals(RefreshScheduler.REASON_MOVED, scheduler.check(0, LAT, LON, 10, 0));
+        scheduler.onRefresh(0, LAT, LON, 10, 0);
+        return scheduler;
+    }
+
+    @Test
+    public void standingStill_onlyMaxIntervalRefreshes() {
+        RefreshScheduler scheduler = started();
+        assertEquals(0, scheduler.check(29000, LAT + METRE, LON, 10, 5));
+        assertEquals(RefreshScheduler.REASON_INTERVAL, scheduler.check(30000, LAT, LON, 10, 0));
+
+        scheduler.setMaxInterval(0);
+        assertEquals(0, scheduler.check(600000, LAT, LON, 10, 0));
+    }
+
+    @Test
+    public void signals_triggerAfterMinInterval() {
+        RefreshScheduler scheduler = started();
+        assertEquals(0, scheduler.check(500, LAT + 5 * METRE, LON, 10, 0));
+        assertEquals(RefreshScheduler.REASON_MOVED, scheduler.check(1000, LAT + 5 * METRE, LON, 10, 0));
+        assertEquals(RefreshScheduler.REASON_HEADING, scheduler.check(1000, LAT, LON, 10, 340));
+        assertEquals(RefreshScheduler.REASON_ACCURACY, scheduler.check(1000, LAT, LON, 4, 0));
+        assertEquals(0, scheduler.check(1000, LAT, LON, 8, 10));
+    }
+
+    @Test
+    public void trackingRecovery_refreshesImmediately() {
+        RefreshScheduler scheduler = started();
+        scheduler.onTrackingLost();
+        assertEquals(RefreshScheduler.REASON_TRACKING, scheduler.check(10, LAT, LON, 10, 0));
+        scheduler.onRefresh(10, LAT, LON, 10, 0);
+        assertEquals(0, scheduler.check(20, LAT, LON, 10, 0));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.arlocation.location.geofence;
+
+import com.example.arlocation.location.LocationMarker;
+import com.example.arlocation.location.MarkerRegistry;
+import com.example.arlocation.location.engine.ManualClock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class GeofenceEngineTest {
+
+    // Metres per degree of latitude on the app's sphere
+    private static final double METRES = 111195.0;
+
+    private final MarkerRegistry registry = new MarkerRegistry();
+    private final ManualClock clock = new ManualClock(0);
+    private final GeofenceEngine geofence = new GeofenceEngine(registry, Runnable::run, clock);
+    private final List<String> events = new ArrayList<>();
+    private final LocationMarker marker = new LocationMarker(114.3, 30.5);
+
+    public GeofenceEngineTest() {
+        geofence.setListener(new GeofenceListener() {
+            @Override
+            public void onEnter(LocationMarker marker, double distance) {
+                events.add("enter");
+            }
+
+            @Override
+            public void onDwell(LocationMarker marker, double distance, long insideMillis) {
+                events.add("dwell " + insideMillis);
+            }
+
+            @Override
+            public void onExit(LocationMarker marker, double distance) {
+                events.add("exit");
+            }
+        });
+        registry.add(marker);
+    }
+
+    // [metres] due north of the marker
+    private void walkTo(double metres) {
+        geofence.onLocation(30.5 + metres / METRES, 114.3, 5);
+    }
+
+    @Test
+    public void edgeJitter_doesNotFlap() {
+        walkTo(80);
+        assertTrue(events.isEmpty());
+        walkTo(45);
+        assertEquals(1, events.size());
+
+        // Between the radius and the exit margin 在半径和退出阈值之间
+        for (int i = 0; i < 10; i++) {
+            walkTo(i % 2 == 0 ? 55 : 48);
+            assertTrue(geofence.isInside(marker));
+        }
+        assertEquals(1, events.size());
+
+        walkTo(65);
+        assertEquals("exit", events.get(1));
+        walkTo(55);
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void dwell_firesOncePerVisit() {
+        walkTo(10);
+        clock.advance(20000);
+        walkTo(12);
+        assertEquals(1, events.size());
+        clock.advance(15000);
+        walkTo(11);
+        clock.advance(15000);
+        walkTo(10);
+        assertEquals("dwell 35000", events.get(1));
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void jumpFarAway_exits() {
+        walkTo(10);
+        walkTo(50000);
+        assertEquals(2, events.size());
+        assertEquals("exit", events.get(1));
+    }
+
+    @Test
+    public void inaccurateFixes_areIgnored() {
+        geofence.onLocation(30.5, 114.3, 500);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void markerRadius_overridesEngineRadius() {
+        marker.setGeofenceRadius(200);
+        geofence.refreshMarkerIndex();
+        walkTo(150);
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void removedMarker_isDropped() {
+        walkTo(10);
+        registry.remove(marker);
+        assertFalse(geofence.isInside(marker));
+        walkTo(500);
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void onlyNearbyMarkersAreChecked() {
+        // 10k markers on a 100 x 100 grid, roughly 110m apart 约110米间隔的网格
+        ArrayList<LocationMarker> markers = new ArrayList<>();
+        for (int i = 0; i < 10000; i++)
+            markers.add(new LocationMarker(114.4 + (i % 100) * 1e-3, 30.6 + (i / 100) * 1e-3));
+        registry.addAll(markers);
+        geofence.onLocation(30.65, 114.45, 5);
+        assertTrue(geofence.getCandidateCount() < 1000);
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void closedEngine_stopsFollowingTheRegistry() {
+        // Rejects work like an executor that was shut down 模拟已关闭的线程池
+        boolean[] shutdown = {false};
+        GeofenceEngine geofence = new GeofenceEngine(registry, task -> {
+            if (shutdown[0])
+                throw new RejectedExecutionException();
+            task.run();
+        }, clock);
+        geofence.onLocation(30.5, 114.3, 5);
+        assertTrue(geofence.isInside(marker));
+
+        geofence.close();
+        shutdown[0] = true;
+        registry.add(new LocationMarker(114.31, 30.51));
+        registry.remove(marker);
+        geofence.onLocation(30.6, 114.3, 5);
+        geofence.refreshMarkerIndex();
+        assertTrue(geofence.isInside(marker));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.arlocation.location.poi;
+
+import com.example.arlocation.location.utils.GCJ2WGSUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class PoiImporterTest {
+
+    private final ArrayList<PoiBatch> batches = new ArrayList<>();
+    private long lastProgress = -1;
+    private final PoiImporter.Listener listener = new PoiImporter.Listener() {
+        @Override
+        public void onBatch(PoiBatch batch) {
+            batches.add(batch);
+        }
+
+        @Override
+        public void onProgress(long bytesRead, long totalBytes) {
+            assertTrue(bytesRead >= lastProgress);
+            lastProgress = bytesRead;
+        }
+    };
+
+    @Test
+    public void csv_quotedFieldsAndBadRows() throws IOException {
+        String csv = "id,Name,lng,lat\r\n"
+                + "1,\"Wuhan University, \"\"WHU\"\"\",114.3637,30.5399\r\n"
+                + "\n"
+                + "2,no coordinates,,\n"
+                + "3,\"Two\nlines\",114.3541,30.5180";
+        PoiImporter importer = new PoiImporter();
+        int count = importer.importStream(stream(csv), csv.length(), PoiImporter.Format.CSV, listener);
+
+        assertEquals(2, count);
+        assertEquals(1, importer.getSkipped());
+        PoiBatch batch = batches.get(0);
+        assertEquals("Wuhan University, \"WHU\"", batch.names[0]);
+        assertEquals("Two\nlines", batch.names[1]);
+        assertEquals(30.5399, batch.latitudes[0], 0);
+        assertEquals(114.3541, batch.longitudes[1], 0);
+    }
+
+    @Test
+    public void geoJson_pointsOnly() throws IOException {
+        String json = "{\"type\":\"FeatureCollection\",\"crs\":{\"x\":[1,{\"y\":null}]},\"features\":["
+                + "{\"type\":\"Feature\",\"properties\":{\"tags\":{\"a\":true},\"name\":\"\\u6b66\\u6c49 \\\"A\\\"\"},"
+                + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[114.36,30.54,12.5]}},"
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1,2],[3,4]]}},"
+                + "{\"type\":\"Feature\",\"geometry\":{\"coordinates\":[-0.5e1,5E-1],\"type\":\"Point\"},\"properties\":null}"
+                + "]}";
+        PoiImporter importer = new PoiImporter();
+        int count = importer.importStream(stream(json), -1, PoiImporter.Format.GEOJSON, listener);
+
+        assertEquals(2, count);
+        assertEquals(1, importer.getSkipped());
+        PoiBatch batch = batches.get(0);
+        assertEquals("武汉 \"A\"", batch.names[0]);
+        assertEquals(30.54, batch.latitudes[0], 0);
+        assertNull(batch.names[1]);
+        assertEquals(-5, batch.longitudes[1], 0);
+        assertEquals(0.5, batch.latitudes[1], 0);
+    }
+
+    @Test
+    public void largeMappedFile_streamsInBatchesWithGcjConversion() throws IOException {
+        File file = File.createTempFile("pois", ".geojson");
+        file.deleteOnExit();
+        int total = 100000;
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write("{\"type\":\"FeatureCollection\",\"features\":[");
+            for (int i = 0; i < total; i++) {
+                if (i > 0)
+                    out.write(',');
+                out.write("{\"type\":\"Feature\",\"properties\":{\"name\":\"p" + i + "\"},"
+                        + "\"geometry\":{\"type\":\"Point\",\"coordinates\":["
+                        + (114 + i * 1e-6) + "," + (30.5 + i * 1e-6) + "]}}");
+            }
+            out.write("]}");
+        }
+
+        PoiImporter importer = new PoiImporter();
+        importer.setBatchSize(4096);
+        importer.setConvertFromGcj(true);
+        int count = importer.importFile(file, PoiImporter.formatOf(file.getName()), listener);
+
+        assertEquals(total, count);
+        assertEquals(file.length(), lastProgress);
+        assertEquals((total + 4095) / 4096, batches.size());
+        PoiBatch last = batches.get(batches.size() - 1);
+        int i = total - 1;
+        assertEquals("p" + i, last.names[last.size() - 1]);
+
+        double[] lat = {30.5 + i * 1e-6};
+        double[] lon = {114 + i * 1e-6};
+        GCJ2WGSUtils.toWGSExact(lat, lon, lat, lon, importer.getGcjTrig());
+        assertEquals(lat[0], last.latitudes[last.size() - 1], 1e-12);
+        assertEquals(lon[0], last.longitudes[last.size() - 1], 1e-12);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedGeoJson_fails() throws IOException {
+        String json = "{\"features\":[{\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}}";
+        new PoiImporter().importStream(stream(json), -1, PoiImporter.Format.GEOJSON, listener);
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
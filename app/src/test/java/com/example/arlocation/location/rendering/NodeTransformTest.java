@@ -0,0 +1,141 @@
+package com.example.arlocation.location.rendering;
+
+import com.example.arlocation.location.LocationMarker;
+import com.example.arlocation.location.stats.FrameStats;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Per-frame node math, run on the development machine (host).
+ */
+public class NodeTransformTest {
+
+    private static final float[] IDENTITY = {
+            1, 0, 0, 0,
+            0, 1, 0, 0,
+            0, 0, 1, 0,
+            0, 0, 0, 1};
+
+    @Test
+    public void lookAt_turnsForwardTowardsCamera() {
+        NodeTransform transform = new NodeTransform();
+        assertTrue(transform.lookAt(IDENTITY, 0, 0, 0, 3, 0, 4));
+
+        // Rotate +Z by the quaternion, it should point at (0.6, 0, 0.8)
+        float[] forward = rotate(transform, 0, 0, 1);
+        assertEquals(0.6F, forward[0], 1e-5F);
+        assertEquals(0F, forward[1], 1e-5F);
+        assertEquals(0.8F, forward[2], 1e-5F);
+
+        // And stay upright
+        float[] up = rotate(transform, 0, 1, 0);
+        assertEquals(1F, up[1], 1e-5F);
+    }
+
+    @Test
+    public void lookAt_isRelativeToParent() {
+        // Parent turned 90 degrees around Y, at (1, 2, 3)
+        float[] parent = {
+                0, 0, -1, 0,
+                0, 1, 0, 0,
+                1, 0, 0, 0,
+                1, 2, 3, 1};
+        NodeTransform transform = new NodeTransform();
+        assertTrue(transform.lookAt(parent, 1, 2, 3, 1, 2, 10));
+
+        // World +Z expressed in the parent's frame is its -X
+        float[] forward = rotate(transform, 0, 0, 1);
+        assertEquals(-1F, forward[0], 1e-5F);
+        assertEquals(0F, forward[2], 1e-5F);
+
+        transform.toLocal(parent, 1, 2, 10);
+        assertEquals(-7F, transform.x, 1e-5F);
+        assertEquals(0F, transform.y, 1e-5F);
+        assertEquals(0F, transform.z, 1e-5F);
+    }
+
+    @Test
+    public void lookAt_ignoresCameraStraightAbove() {
+        NodeTransform transform = new NodeTransform();
+        assertFalse(transform.lookAt(IDENTITY, 0, 0, 0, 0, 5, 0));
+        assertEquals(1F, transform.qw, 0F);
+    }
+
+    @Test
+    public void scaleFor_fixedSizeGrowsUpToTheLimit() {
+        LocationMarker.ScalingMode mode = LocationMarker.ScalingMode.FIXED_SIZE_ON_SCREEN;
+        assertEquals(5F, NodeTransform.scaleFor(mode, 10, 20, 0.8F, 1.4F), 0F);
+        assertEquals(10F, NodeTransform.scaleFor(mode, 500, 20, 0.8F, 1.4F), 0F);
+        assertEquals(7.5F, NodeTransform.scaleFor(mode, 5000, 20, 0.8F, 1.4F), 0F);
+        assertEquals(1F, NodeTransform.scaleFor(LocationMarker.ScalingMode.NO_SCALING, 5000, 20, 0.8F, 1.4F), 0F);
+    }
+
+    /**
+     * The math of LocationNode.scaleAndRotate for one child, with stats enabled. The Sceneform
+     * calls around it need a scene and aren't covered here.
+     */
+    @Test
+    public void update_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationCounting(threads);
+
+        NodeTransform transform = new NodeTransform();
+        FrameStats stats = new FrameStats();
+        stats.setEnabled(true);
+        float[] parent = IDENTITY.clone();
+        long thread = Thread.currentThread().getId();
+
+        // Warm up until the measured loop runs fully compiled code, the first switch from the
+        // on-stack replacement allocates a few bytes 预热至完全编译 首次切换会有少量分配
+        float sink = 0;
+        for (int i = 0; i < 3; i++)
+            sink += run(transform, stats, parent, 100000);
+        threads.getThreadAllocatedBytes(thread);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        sink += run(transform, stats, parent, 100000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals("Allocated " + allocated + " bytes", 0, allocated);
+        assertFalse(Float.isNaN(sink));
+    }
+
+    private static float run(NodeTransform transform, FrameStats stats, float[] parent, int updates) {
+        float sink = 0;
+        for (int i = 0; i < updates; i++) {
+            long start = stats.start();
+            float angle = i * 0.001F;
+            parent[12] = angle;
+            sink += NodeTransform.scaleFor(LocationMarker.ScalingMode.GRADUAL_TO_MAX_RENDER_DISTANCE,
+                    i % 5000, 20, 0.8F, 1.4F);
+            transform.toLocal(parent, 1, 1.5F, -20);
+            transform.lookAt(parent, transform.x, transform.y, transform.z,
+                    (float) Math.sin(angle), 1.6F, (float) Math.cos(angle));
+            sink += transform.qw;
+            stats.stop(FrameStats.Stage.SCALE_AND_ROTATE, start);
+        }
+        return sink;
+    }
+
+    private static void assumeAllocationCounting(com.sun.management.ThreadMXBean threads) {
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static float[] rotate(NodeTransform q, float vx, float vy, float vz) {
+        // v' = v + 2w(q x v) + 2q x (q x v)
+        float tx = 2 * (q.qy * vz - q.qz * vy);
+        float ty = 2 * (q.qz * vx - q.qx * vz);
+        float tz = 2 * (q.qx * vy - q.qy * vx);
+        return new float[]{
+                vx + q.qw * tx + q.qy * tz - q.qz * ty,
+                vy + q.qw * ty + q.qz * tx - q.qx * tz,
+                vz + q.qw * tz + q.qx * ty - q.qy * tx};
+    }
+}
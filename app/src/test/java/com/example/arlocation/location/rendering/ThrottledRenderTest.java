@@ -0,0 +1,39 @@
+package com.example.arlocation.location.rendering;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThrottledRenderTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void firesOnlyOnMeaningfulChange() {
+        ThrottledRender render = new ThrottledRender(node -> {
+        });
+        assertTrue(render.shouldRender(120, 30F, 1, 0));
+        // Same bucket, small bearing change 距离区间相同 方向变化小
+        assertFalse(render.shouldRender(125, 33F, 1, 1000 * MS));
+        // Next distance bucket
+        assertTrue(render.shouldRender(131, 33F, 1, 2000 * MS));
+        // Bearing wraps around north
+        assertTrue(render.shouldRender(131, 33F + 360 - 30, 1, 3000 * MS));
+        assertFalse(render.shouldRender(131, 2F, 1, 4000 * MS));
+    }
+
+    @Test
+    public void limitsRate_exceptOnResume() {
+        ThrottledRender render = new ThrottledRender(node -> {
+        });
+        render.setMaxUpdateRate(2);
+        assertTrue(render.shouldRender(0, 0F, 1, 0));
+        assertFalse(render.shouldRender(50, 0F, 1, 100 * MS));
+        assertTrue(render.shouldRender(50, 0F, 1, 500 * MS));
+        // Tracking regained, update right away
+        assertTrue(render.shouldRender(50, 0F, 2, 510 * MS));
+        render.invalidate();
+        assertTrue(render.shouldRender(50, 0F, 2, 520 * MS));
+        assertFalse(render.shouldRender(50, 0F, 2, 530 * MS));
+    }
+}
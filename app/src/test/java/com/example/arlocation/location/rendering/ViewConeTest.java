@@ -0,0 +1,50 @@
+package com.example.arlocation.location.rendering;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ViewConeTest {
+
+    // Camera at [1, 0, 1] looking down -Z 相机朝向-Z
+    private static final float[] CAMERA = {
+            1, 0, 0, 0,
+            0, 1, 0, 0,
+            0, 0, 1, 0,
+            1, 0, 1, 1};
+
+    @Test
+    public void culls_outsideFieldOfViewAndMargin() {
+        ViewCone cone = new ViewCone();
+        assertTrue(cone.setCamera(CAMERA));
+
+        // Straight ahead, within 30 + 20 degrees, and behind
+        assertTrue(cone.contains(1, -20, false));
+        assertTrue(cone.contains(1 + 10 * (float) Math.sin(Math.toRadians(45)), 1 - 10 * (float) Math.cos(Math.toRadians(45)), false));
+        assertFalse(cone.contains(1 + 10 * (float) Math.sin(Math.toRadians(52)), 1 - 10 * (float) Math.cos(Math.toRadians(52)), false));
+        assertFalse(cone.contains(1, 20, true));
+        // Too close to judge
+        assertTrue(cone.contains(1, 2, false));
+    }
+
+    @Test
+    public void visibleNodes_stayUntilHysteresis() {
+        ViewCone cone = new ViewCone();
+        cone.setCamera(CAMERA);
+        float x = 1 + 10 * (float) Math.sin(Math.toRadians(53));
+        float z = 1 - 10 * (float) Math.cos(Math.toRadians(53));
+        assertFalse(cone.contains(x, z, false));
+        assertTrue(cone.contains(x, z, true));
+    }
+
+    @Test
+    public void cameraFacingDown_cullsNothing() {
+        ViewCone cone = new ViewCone();
+        float[] down = {
+                1, 0, 0, 0,
+                0, 0, -1, 0,
+                0, 1, 0, 0,
+                0, 0, 0, 1};
+        assertFalse(cone.setCamera(down));
+    }
+}
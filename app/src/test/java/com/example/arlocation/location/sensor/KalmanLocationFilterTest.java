@@ -0,0 +1,91 @@
+package com.example.arlocation.location.sensor;
+
+import com.example.arlocation.location.utils.LocationUtils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KalmanLocationFilterTest {
+
+    private static final double DEGREE = LocationUtils.EARTH_RADIUS * Math.PI / 180;
+    private static final double LAT = 30.5;
+    private static final double LON = 114.3;
+
+    private static LocationFix fix(double north, double east, float accuracy, float speed, long time) {
+        double lonScale = DEGREE * Math.cos(Math.toRadians(LAT));
+        return new LocationFix(LAT + north / DEGREE, LON + east / lonScale, accuracy, speed, 0,
+                KalmanLocationFilter.TYPE_GPS, time);
+    }
+
+    private static double northOf(LocationFix fix) {
+        return (fix.latitude - LAT) * DEGREE;
+    }
+
+    @Test
+    public void standingStill_jitterIsSuppressed() {
+        KalmanLocationFilter filter = new KalmanLocationFilter();
+        Random random = new Random(1);
+        double rawSpread = 0;
+        double filteredSpread = 0;
+        for (int i = 0; i < 60; i++) {
+            double north = random.nextGaussian() * 8;
+            LocationFix out = filter.filter(fix(north, 0, 10, 0, i * 2000L));
+            if (i >= 20 && out != null) {
+                rawSpread = Math.max(rawSpread, Math.abs(north));
+                filteredSpread = Math.max(filteredSpread, Math.abs(northOf(out)));
+            }
+        }
+        assertTrue(filteredSpread < 5);
+        assertTrue(filteredSpread < rawSpread / 3);
+    }
+
+    @Test
+    public void singleOutlier_isRejected_persistentJump_isFollowed() {
+        KalmanLocationFilter filter = new KalmanLocationFilter();
+        for (int i = 0; i < 10; i++)
+            filter.filter(fix(0, 0, 5, 0, i * 1000L));
+        assertNull(filter.filter(fix(300, 0, 5, 0, 10000)));
+        assertNotNull(filter.filter(fix(0, 0, 5, 0, 11000)));
+
+        assertNull(filter.filter(fix(300, 0, 5, 0, 12000)));
+        assertNull(filter.filter(fix(300, 0, 5, 0, 13000)));
+        LocationFix jumped = filter.filter(fix(300, 0, 5, 0, 14000));
+        assertEquals(300, northOf(jumped), 0.01);
+    }
+
+    @Test
+    public void scatteredOutliers_areAllRejected() {
+        KalmanLocationFilter filter = new KalmanLocationFilter();
+        for (int i = 0; i < 10; i++)
+            filter.filter(fix(0, 0, 5, 0, i * 1000L));
+        assertNull(filter.filter(fix(300, 0, 5, 0, 10000)));
+        assertNull(filter.filter(fix(0, 300, 5, 0, 11000)));
+        assertNull(filter.filter(fix(-300, 0, 5, 0, 12000)));
+        assertNull(filter.filter(fix(0, -300, 5, 0, 13000)));
+        LocationFix out = filter.filter(fix(0, 0, 5, 0, 14000));
+        assertEquals(0, northOf(out), 1);
+    }
+
+    @Test
+    public void walking_isFollowedClosely() {
+        KalmanLocationFilter filter = new KalmanLocationFilter();
+        LocationFix out = null;
+        for (int i = 0; i < 30; i++)
+            out = filter.filter(fix(i * 1.4, 0, 5, 1.4F, i * 1000L));
+        assertEquals(29 * 1.4, northOf(out), 2);
+    }
+
+    @Test
+    public void cachedFix_isIgnoredOnceLocated() {
+        KalmanLocationFilter filter = new KalmanLocationFilter();
+        assertNotNull(filter.filter(fix(0, 0, 5, 0, 0)));
+        LocationFix cached = new LocationFix(LAT, LON, 5, 0, 0,
+                KalmanLocationFilter.TYPE_LAST_LOCATION_CACHE, 1000);
+        assertNull(filter.filter(cached));
+        filter.reset();
+        assertNotNull(filter.filter(cached));
+    }
+}
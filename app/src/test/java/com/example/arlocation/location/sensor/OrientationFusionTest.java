@@ -0,0 +1,81 @@
+package com.example.arlocation.location.sensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Orientation from recorded rotation vector samples, run on the development machine (host).
+ */
+public class OrientationFusionTest {
+
+    private static final long SAMPLE_INTERVAL = 5_000_000L; // 200Hz
+
+    @Test
+    public void update_headingOfUprightDevice() {
+        OrientationFusion fusion = new OrientationFusion();
+        for (float heading : new float[]{0, 45, 90, 180, 270, 359.5F}) {
+            fusion.update(sample(heading, 0), 1);
+            assertEquals(heading, fusion.getHeading(), 0.02F);
+            assertEquals(0F, fusion.getPitch(), 0.02F);
+            assertEquals(0F, fusion.getRoll(), 0.02F);
+        }
+    }
+
+    @Test
+    public void update_pitchIsNegativeLookingUp() {
+        OrientationFusion fusion = new OrientationFusion();
+        fusion.update(sample(120, 30), 1);
+        assertEquals(120F, fusion.getHeading(), 0.02F);
+        assertEquals(-30F, fusion.getPitch(), 0.02F);
+    }
+
+    @Test
+    public void update_replaysRecordedSweep() {
+        // A recorded half turn at 200Hz, with the scalar part left out as some sensors do
+        OrientationFusion fusion = new OrientationFusion();
+        long time = 1_000_000_000L;
+        float previous = -1;
+        for (int i = 0; i <= 180; i++) {
+            float[] values = sample(i, -10);
+            fusion.update(new float[]{values[0], values[1], values[2]}, time);
+            time += SAMPLE_INTERVAL;
+
+            long packed = fusion.getPacked();
+            assertEquals(i, OrientationFusion.headingOf(packed), 0.05F);
+            assertEquals(10F, OrientationFusion.pitchOf(packed), 0.05F);
+            assertTrue(OrientationFusion.headingOf(packed) >= previous);
+            previous = OrientationFusion.headingOf(packed);
+        }
+        assertEquals(SAMPLE_INTERVAL, fusion.getSampleInterval());
+    }
+
+    @Test
+    public void pack_keepsAnglesTogether() {
+        long packed = OrientationFusion.pack(359.996F, -89.5F, 179.25F);
+        assertEquals(0F, OrientationFusion.headingOf(packed), 0F);
+        assertEquals(-89.5F, OrientationFusion.pitchOf(packed), 0.001F);
+        assertEquals(179.25F, OrientationFusion.rollOf(packed), 0.001F);
+    }
+
+    /**
+     * Rotation vector of a device held upright, facing [heading], with the camera tilted [pitchUp]
+     * degrees above the horizon: a turn about world up, then about the device X axis.
+     */
+    private static float[] sample(float heading, float pitchUp) {
+        double yaw = Math.toRadians(-heading) / 2;
+        double tilt = Math.toRadians(90 + pitchUp) / 2;
+        // (0, 0, sin yaw, cos yaw) * (sin tilt, 0, 0, cos tilt)
+        double x = Math.cos(yaw) * Math.sin(tilt);
+        double y = Math.sin(yaw) * Math.sin(tilt);
+        double z = Math.sin(yaw) * Math.cos(tilt);
+        double w = Math.cos(yaw) * Math.cos(tilt);
+        if (w < 0) {
+            x = -x;
+            y = -y;
+            z = -z;
+            w = -w;
+        }
+        return new float[]{(float) x, (float) y, (float) z, (float) w};
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.arlocation.location.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that reported percentiles stay within one bucket of the exact value.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentile_withinTwiceExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++)
+            histogram.record(i * 1000);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(10000000, snapshot.getMax());
+        assertEquals(5000500, snapshot.getMean(), 1e-6);
+        for (double fraction : new double[]{0.5, 0.9, 0.99}) {
+            long exact = (long) Math.ceil(fraction * 10000) * 1000;
+            long reported = histogram.snapshot().getPercentile(fraction);
+            assertTrue(reported >= exact);
+            assertTrue(reported < exact * 2);
+        }
+    }
+
+    @Test
+    public void bucketEdges() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(1, LatencyHistogram.bucketOf(1));
+        assertEquals(2, LatencyHistogram.bucketOf(3));
+        assertEquals(3, LatencyHistogram.bucketOf(4));
+        for (int b = 1; b < 62; b++) {
+            assertEquals(b, LatencyHistogram.bucketOf(LatencyHistogram.upperEdge(b)));
+            assertEquals(b + 1, LatencyHistogram.bucketOf(LatencyHistogram.upperEdge(b) + 1));
+        }
+    }
+
+    @Test
+    public void disabledStats_recordNothing() {
+        FrameStats stats = new FrameStats();
+        stats.stop(FrameStats.Stage.RENDER, stats.start());
+        stats.recordAnchorsCreated(3);
+        assertEquals(0, stats.snapshot().get(FrameStats.Stage.RENDER).getCount());
+        assertEquals(0, stats.snapshot().getAnchorsCreated().getCount());
+
+        stats.setEnabled(true);
+        stats.stop(FrameStats.Stage.RENDER, stats.start());
+        stats.recordAnchorsCreated(3);
+        assertEquals(1, stats.snapshot().get(FrameStats.Stage.RENDER).getCount());
+        assertEquals(3, stats.snapshot().getAnchorsCreated().getMax());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.arlocation.location.trace;
+
+import com.example.arlocation.location.sensor.LocationFix;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Record and replay of a trace, run on the development machine (host).
+ */
+public class TraceReplayerTest {
+
+    @Test
+    public void replay_deliversRecordedSamplesInOrder() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TraceRecorder recorder = new TraceRecorder(bytes);
+        long start = 123_456_789_000L;
+        recorder.recordLocation(start, new LocationFix(30.518, 114.354, 12.5F, 1.2F, 90F, 1, 1550000000000L));
+        for (int i = 1; i <= 200; i++)
+            recorder.recordOrientation(start + i * 5_000_000L, i * 0.5F, -10F, 2.5F);
+        recorder.close();
+        assertNull(recorder.getError());
+
+        List<Long> timestamps = new ArrayList<>();
+        List<Object> samples = new ArrayList<>();
+        TraceReplayer replayer = new TraceReplayer(new ByteArrayInputStream(bytes.toByteArray()), new TraceListener() {
+            @Override
+            public void onLocation(long timestamp, LocationFix fix) {
+                timestamps.add(timestamp);
+                samples.add(fix);
+            }
+
+            @Override
+            public void onOrientation(long timestamp, float heading, float pitch, float roll) {
+                timestamps.add(timestamp);
+                samples.add(new float[]{heading, pitch, roll});
+            }
+        });
+        replayer.setSpeed(0);
+        replayer.run();
+
+        assertNull(replayer.getError());
+        assertEquals(201, samples.size());
+        LocationFix fix = (LocationFix) samples.get(0);
+        assertEquals(30.518, fix.latitude, 0);
+        assertEquals(12.5F, fix.accuracy, 0);
+        assertEquals(1550000000000L, fix.time);
+        assertEquals(start, (long) timestamps.get(0));
+
+        float[] last = (float[]) samples.get(200);
+        assertEquals(100F, last[0], 0.01F);
+        assertEquals(-10F, last[1], 0.01F);
+        assertEquals(start + 200 * 5_000_000L, (long) timestamps.get(200));
+
+        // Compact: well under 16 bytes per orientation sample
+        assertTrue(bytes.size() < 200 * 16);
+    }
+
+    @Test
+    public void replay_pacesByTimestamps() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TraceRecorder recorder = new TraceRecorder(bytes);
+        recorder.recordOrientation(0, 0, 0, 0);
+        recorder.recordOrientation(400_000_000L, 0, 0, 0);
+        recorder.close();
+
+        TraceReplayer replayer = new TraceReplayer(new ByteArrayInputStream(bytes.toByteArray()), new TraceListener() {
+            @Override
+            public void onLocation(long timestamp, LocationFix fix) {
+            }
+
+            @Override
+            public void onOrientation(long timestamp, float heading, float pitch, float roll) {
+            }
+        });
+        // 400ms of trace at 4x speed
+        replayer.setSpeed(4);
+        long begin = System.nanoTime();
+        replayer.run();
+        long elapsed = System.nanoTime() - begin;
+
+        assertTrue(elapsed >= 95_000_000L);
+        assertTrue(elapsed < 400_000_000L);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.arlocation.location.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Batch coordinate conversion, run on the development machine (host).
+ */
+public class GCJ2WGSUtilsTest {
+
+    @Test
+    public void toWGS_matchesSinglePointConversion() {
+        double[] lat = new double[100];
+        double[] lon = new double[100];
+        fillChina(lat, lon, new Random(1));
+        double[] outLat = new double[lat.length];
+        double[] outLon = new double[lon.length];
+
+        GCJ2WGSUtils.toWGS(lat, lon, outLat, outLon);
+
+        for (int i = 0; i < lat.length; i++) {
+            assertEquals(GCJ2WGSUtils.WGSLat(lat[i], lon[i]), outLat[i], 1e-12);
+            assertEquals(GCJ2WGSUtils.WGSLon(lat[i], lon[i]), outLon[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void toWGSExact_roundTripsThroughGCJ() {
+        // Large enough to take the parallel path
+        double[] lat = new double[50000];
+        double[] lon = new double[50000];
+        fillChina(lat, lon, new Random(2));
+        double[] gcjLat = new double[lat.length];
+        double[] gcjLon = new double[lon.length];
+        double[] wgsLat = new double[lat.length];
+        double[] wgsLon = new double[lon.length];
+
+        GCJ2WGSUtils.toGCJ(lat, lon, gcjLat, gcjLon);
+        GCJ2WGSUtils.toWGSExact(gcjLat, gcjLon, wgsLat, wgsLon);
+
+        for (int i = 0; i < lat.length; i++) {
+            assertEquals(lat[i], wgsLat[i], 1e-9);
+            assertEquals(lon[i], wgsLon[i], 1e-9);
+        }
+    }
+
+    @Test
+    public void toWGSExact_convertsInPlace() {
+        double[] lat = {30.5180109898, 39.9087};
+        double[] lon = {114.3541910072, 116.3975};
+        double[] expectedLat = new double[2];
+        double[] expectedLon = new double[2];
+        GCJ2WGSUtils.toWGSExact(lat, lon, expectedLat, expectedLon);
+
+        GCJ2WGSUtils.toWGSExact(lat, lon, lat, lon);
+
+        assertEquals(expectedLat[0], lat[0], 0);
+        assertEquals(expectedLon[1], lon[1], 0);
+    }
+
+    @Test
+    public void sinTurns_withinTableBound() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100000; i++) {
+            double turns = (random.nextDouble() * 2 - 1) * 100;
+            assertEquals(Math.sin(2 * Math.PI * turns), GCJ2WGSUtils.sinTurns(turns), 5e-9);
+        }
+    }
+
+    @Test
+    public void tableTrig_within1cmAcrossChina() {
+        // Every 0.01 degrees over China's bounding box, about 22 million points 覆盖全国的密集网格
+        int columns = 6200;
+        double[] lat = new double[columns];
+        double[] lon = new double[columns];
+        double[] exactLat = new double[columns];
+        double[] exactLon = new double[columns];
+        double[] tableLat = new double[columns];
+        double[] tableLon = new double[columns];
+        for (int j = 0; j < columns; j++)
+            lon[j] = 73 + j * 0.01 + 0.0037;
+        double worst = 0;
+        for (int row = 0; row < 3600; row++) {
+            Arrays.fill(lat, 18 + row * 0.01 + 0.0011);
+            GCJ2WGSUtils.toGCJ(lat, lon, exactLat, exactLon, GCJ2WGSUtils.Trig.EXACT);
+            GCJ2WGSUtils.toGCJ(lat, lon, tableLat, tableLon, GCJ2WGSUtils.Trig.TABLE);
+            double metresPerLon = 111195 * Math.cos(Math.toRadians(lat[0]));
+            for (int j = 0; j < columns; j++) {
+                double north = (tableLat[j] - exactLat[j]) * 111195;
+                double east = (tableLon[j] - exactLon[j]) * metresPerLon;
+                worst = Math.max(worst, Math.sqrt(north * north + east * east));
+            }
+        }
+        assertTrue("worst error " + worst + "m", worst < 0.01);
+    }
+
+    @Test
+    public void tableTrig_exactInverseRoundTrips() {
+        double[] lat = new double[1000];
+        double[] lon = new double[1000];
+        fillChina(lat, lon, new Random(4));
+        double[] gcjLat = new double[lat.length];
+        double[] gcjLon = new double[lon.length];
+        double[] wgsLat = new double[lat.length];
+        double[] wgsLon = new double[lon.length];
+
+        GCJ2WGSUtils.toGCJ(lat, lon, gcjLat, gcjLon);
+        GCJ2WGSUtils.toWGSExact(gcjLat, gcjLon, wgsLat, wgsLon, GCJ2WGSUtils.Trig.TABLE);
+
+        for (int i = 0; i < lat.length; i++) {
+            // 1e-7 degrees is about 1cm 约1厘米
+            assertEquals(lat[i], wgsLat[i], 1e-7);
+            assertEquals(lon[i], wgsLon[i], 1e-7);
+        }
+    }
+
+    private static void fillChina(double[] lat, double[] lon, Random random) {
+        for (int i = 0; i < lat.length; i++) {
+            lat[i] = 18 + random.nextDouble() * 35;
+            lon[i] = 73 + random.nextDouble() * 62;
+        }
+    }
+}
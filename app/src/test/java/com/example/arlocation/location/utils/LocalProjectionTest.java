@@ -0,0 +1,59 @@
+package com.example.arlocation.location.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the documented accuracy of the local projection against LocationUtils.
+ */
+public class LocalProjectionTest {
+
+    @Test
+    public void distanceAndBearing_withinDocumentedBound() {
+        Random random = new Random(1);
+        for (double originLatitude : new double[]{18, 30.5, 45, 55}) {
+            LocalProjection projection = new LocalProjection();
+            projection.update(originLatitude, 114.35);
+
+            for (int i = 0; i < 2000; i++) {
+                // Device anywhere within the origin threshold, marker up to the valid radius
+                double cos = Math.cos(Math.toRadians(originLatitude));
+                double lat = originLatitude + (random.nextDouble() * 2 - 1) * 350 / 111195.0;
+                double lon = 114.35 + (random.nextDouble() * 2 - 1) * 350 / (111195.0 * cos);
+                assertFalse(projection.update(lat, lon));
+
+                double angle = random.nextDouble() * 2 * Math.PI;
+                double range = 10 + random.nextDouble() * (projection.getValidRadius() - 10);
+                double markerLat = lat + range * Math.cos(angle) / 111195.0;
+                double markerLon = lon + range * Math.sin(angle) / (111195.0 * cos);
+
+                double dEast = projection.east(markerLat, markerLon) - projection.east(lat, lon);
+                double dNorth = projection.north(markerLat) - projection.north(lat);
+                double distance = Math.sqrt(dEast * dEast + dNorth * dNorth);
+                double exact = LocationUtils.distance(lat, markerLat, lon, markerLon);
+                assertEquals(exact, distance, exact * 1e-4);
+
+                double bearing = LocalProjection.bearing(dEast, dNorth);
+                double exactBearing = LocationUtils.bearing(lat, lon, markerLat, markerLon);
+                double difference = Math.abs(((bearing - exactBearing) % 360 + 540) % 360 - 180);
+                assertTrue(difference < 0.15);
+            }
+        }
+    }
+
+    @Test
+    public void update_movesOriginPastThreshold() {
+        LocalProjection projection = new LocalProjection();
+        assertTrue(projection.update(30.5, 114.35));
+        int version = projection.getVersion();
+
+        assertFalse(projection.update(30.5 + 400 / 111195.0, 114.35));
+        assertEquals(version, projection.getVersion());
+
+        assertTrue(projection.update(30.5 + 600 / 111195.0, 114.35));
+        assertNotEquals(version, projection.getVersion());
+    }
+}
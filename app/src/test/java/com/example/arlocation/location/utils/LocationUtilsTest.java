@@ -0,0 +1,108 @@
+package com.example.arlocation.location.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the documented accuracy of each tier against the reference formulas.
+ */
+public class LocationUtilsTest {
+
+    private final double[] result = new double[2];
+
+    private static double bearingDifference(double a, double b) {
+        return Math.abs(((a - b) % 360 + 540) % 360 - 180);
+    }
+
+    @Test
+    public void fast_withinDocumentedBoundOfHaversine() {
+        Random random = new Random(1);
+        for (double latitude : new double[]{0, 30.5, 55, 80}) {
+            double cos = Math.cos(Math.toRadians(latitude));
+            for (int i = 0; i < 2000; i++) {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                double range = random.nextDouble() * LocationUtils.FAST_RADIUS;
+                double markerLat = latitude + range * Math.cos(angle) / 111195.0;
+                double markerLon = 114.35 + range * Math.sin(angle) / (111195.0 * cos);
+
+                LocationUtils.distanceAndBearing(latitude, 114.35, markerLat, markerLon,
+                        LocationUtils.Accuracy.FAST, result);
+                double exact = LocationUtils.distance(latitude, markerLat, 114.35, markerLon);
+                assertEquals(exact, result[0], 0.005);
+                if (range > 1)
+                    assertTrue(bearingDifference(result[1],
+                            LocationUtils.bearing(latitude, 114.35, markerLat, markerLon)) < 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void haversine_matchesDistanceAndBearing() {
+        LocationUtils.distanceAndBearing(30.5, 114.35, 39.9, 116.4, LocationUtils.Accuracy.HAVERSINE, result);
+        assertEquals(LocationUtils.distance(30.5, 39.9, 114.35, 116.4), result[0], 1e-6);
+        assertEquals(LocationUtils.bearing(30.5, 114.35, 39.9, 116.4), result[1], 1e-9);
+    }
+
+    @Test
+    public void auto_switchesTierByDistance() {
+        double[] other = new double[2];
+        // 1km, FAST 近距离
+        LocationUtils.distanceAndBearing(30.5, 114.35, 30.509, 114.35, LocationUtils.Accuracy.AUTO, result);
+        LocationUtils.distanceAndBearing(30.5, 114.35, 30.509, 114.35, LocationUtils.Accuracy.FAST, other);
+        assertEquals(other[0], result[0], 0);
+        // 1000km, HAVERSINE 远距离
+        LocationUtils.distanceAndBearing(30.5, 114.35, 39.9, 116.4, LocationUtils.Accuracy.AUTO, result);
+        LocationUtils.distanceAndBearing(30.5, 114.35, 39.9, 116.4, LocationUtils.Accuracy.HAVERSINE, other);
+        assertEquals(other[0], result[0], 0);
+        assertEquals(other[1], result[1], 0);
+    }
+
+    @Test
+    public void ellipsoidal_matchesVincentyReference() {
+        // Flinders Peak to Buninyong, from Vincenty's paper
+        double lat1 = -(37 + 57 / 60.0 + 3.72030 / 3600);
+        double lon1 = 144 + 25 / 60.0 + 29.52440 / 3600;
+        double lat2 = -(37 + 39 / 60.0 + 10.15610 / 3600);
+        double lon2 = 143 + 55 / 60.0 + 35.38390 / 3600;
+        LocationUtils.distanceAndBearing(lat1, lon1, lat2, lon2, LocationUtils.Accuracy.ELLIPSOIDAL, result);
+        assertEquals(54972.271, result[0], 0.001);
+        assertEquals(306 + 52 / 60.0 + 5.37 / 3600, result[1], 1e-5);
+
+        LocationUtils.distanceAndBearing(lat1, lon1, lat1, lon1, LocationUtils.Accuracy.ELLIPSOIDAL, result);
+        assertEquals(0, result[0], 0);
+    }
+
+    @Test
+    public void fast_wrapsAroundTheAntimeridian() {
+        LocationUtils.distanceAndBearing(0, 179.99, 0, -179.99, LocationUtils.Accuracy.FAST, result);
+        assertEquals(LocationUtils.distance(0, 0, 179.99, -179.99), result[0], 0.001);
+        assertEquals(90, result[1], 1e-6);
+    }
+
+    @Test
+    public void batch_matchesSinglePoint() {
+        Random random = new Random(2);
+        int count = 500;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            // Up to about 20km away, both tiers of AUTO are used 两种精度都会用到
+            latitudes[i] = 30.5 + (random.nextDouble() * 2 - 1) * 0.15;
+            longitudes[i] = 114.35 + (random.nextDouble() * 2 - 1) * 0.15;
+        }
+        double[] distances = new double[count];
+        double[] bearings = new double[count];
+        for (LocationUtils.Accuracy accuracy : LocationUtils.Accuracy.values()) {
+            LocationUtils.distancesAndBearings(30.5, 114.35, latitudes, longitudes, count, accuracy,
+                    distances, bearings);
+            for (int i = 0; i < count; i++) {
+                LocationUtils.distanceAndBearing(30.5, 114.35, latitudes[i], longitudes[i], accuracy, result);
+                assertEquals(result[0], distances[i], 0);
+                assertEquals(result[1], bearings[i], 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.arlocation.benchmark;
+
+import com.example.arlocation.location.utils.GCJ2WGSUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GCJ-02 / WGS-84 conversion of a whole POI dataset.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinateTransformBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int markerCount;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] outLatitudes;
+    private double[] outLongitudes;
+
+    @Setup
+    public void setup() {
+        latitudes = new double[markerCount];
+        longitudes = new double[markerCount];
+        outLatitudes = new double[markerCount];
+        outLongitudes = new double[markerCount];
+        Markers.scatter(latitudes, longitudes, 20000, 2);
+    }
+
+    @Benchmark
+    public double[] singlePoint() {
+        for (int i = 0; i < markerCount; i++) {
+            outLatitudes[i] = GCJ2WGSUtils.WGSLat(latitudes[i], longitudes[i]);
+            outLongitudes[i] = GCJ2WGSUtils.WGSLon(latitudes[i], longitudes[i]);
+        }
+        return outLatitudes;
+    }
+
+    @Benchmark
+    public double[] batchToWGS() {
+        GCJ2WGSUtils.toWGS(latitudes, longitudes, outLatitudes, outLongitudes);
+        return outLatitudes;
+    }
+
+    @Benchmark
+    public double[] batchToWGSExact() {
+        GCJ2WGSUtils.toWGSExact(latitudes, longitudes, outLatitudes, outLongitudes);
+        return outLatitudes;
+    }
+
+    @Benchmark
+    public double[] batchToWGSTable() {
+        GCJ2WGSUtils.toWGS(latitudes, longitudes, outLatitudes, outLongitudes, GCJ2WGSUtils.Trig.TABLE);
+        return outLatitudes;
+    }
+
+    @Benchmark
+    public double[] batchToWGSExactTable() {
+        GCJ2WGSUtils.toWGSExact(latitudes, longitudes, outLatitudes, outLongitudes, GCJ2WGSUtils.Trig.TABLE);
+        return outLatitudes;
+    }
+
+    @Benchmark
+    public double[] batchToGCJ() {
+        GCJ2WGSUtils.toGCJ(latitudes, longitudes, outLatitudes, outLongitudes);
+        return outLatitudes;
+    }
+}
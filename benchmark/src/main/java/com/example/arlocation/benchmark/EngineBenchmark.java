@@ -0,0 +1,88 @@
+package com.example.arlocation.benchmark;
+
+import com.example.arlocation.location.LocationEngine;
+import com.example.arlocation.location.LocationMarker;
+import com.example.arlocation.location.engine.ImmediateScheduler;
+import com.example.arlocation.location.engine.InMemoryAnchorFactory;
+import com.example.arlocation.location.engine.InMemoryCamera;
+import com.example.arlocation.location.engine.ManualClock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full anchor refresh of LocationEngine, with the in-memory camera and anchors: index
+ * query, pose math, labels, anchor budget and anchor updates, as run for the scene.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final double DATASET_RADIUS = 15000;
+    private static final int RENDER_WITHIN = 1500;
+    // About 1m north per refresh 每次刷新向北约1米
+    private static final double STEP = 1e-5;
+
+    @Param({"1000", "10000"})
+    public int markerCount;
+
+    @Param({"false", "true"})
+    public boolean diffRefreshing;
+
+    private final ManualClock clock = new ManualClock(0);
+    private final InMemoryAnchorFactory anchors = new InMemoryAnchorFactory();
+    private LocationEngine<InMemoryAnchorFactory.Anchor> engine;
+    private double latitude = Markers.CENTER_LATITUDE;
+
+    @Setup
+    public void setup() {
+        engine = new LocationEngine<>(new InMemoryCamera(), anchors, new ImmediateScheduler(), clock);
+        engine.setDiffRefreshing(diffRefreshing);
+        engine.setOffsetOverlapping(true);
+        double[] latitudes = new double[markerCount];
+        double[] longitudes = new double[markerCount];
+        Markers.scatter(latitudes, longitudes, DATASET_RADIUS, 5);
+        ArrayList<LocationMarker> markers = new ArrayList<>(markerCount);
+        for (int i = 0; i < markerCount; i++) {
+            LocationMarker marker = new LocationMarker(longitudes[i], latitudes[i]);
+            marker.setOnlyRenderWhenWithin(RENDER_WITHIN);
+            markers.add(marker);
+        }
+        engine.getMarkerRegistry().addAll(markers);
+        engine.setLocation(latitude, Markers.CENTER_LONGITUDE, 5);
+        refresh();
+    }
+
+    // The first frame computes the poses, the second applies them 第一帧计算 第二帧应用
+    private void refresh() {
+        engine.refreshAnchors();
+        engine.processFrame();
+        clock.advance(16);
+        engine.processFrame();
+        clock.advance(16);
+    }
+
+    @Benchmark
+    public int walk() {
+        latitude += STEP;
+        engine.setLocation(latitude, Markers.CENTER_LONGITUDE, 5);
+        refresh();
+        return anchors.getLiveCount();
+    }
+}
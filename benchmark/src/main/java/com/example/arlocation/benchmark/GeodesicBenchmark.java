@@ -0,0 +1,120 @@
+package com.example.arlocation.benchmark;
+
+import com.example.arlocation.location.utils.LocalProjection;
+import com.example.arlocation.location.utils.LocationUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a distance or bearing between the device and a marker, per accuracy tier.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeodesicBenchmark {
+
+    private static final int POINTS = 1024;
+
+    private final double[] latitudes = new double[POINTS];
+    private final double[] longitudes = new double[POINTS];
+    private final double[] east = new double[POINTS];
+    private final double[] north = new double[POINTS];
+    private final double[] distances = new double[POINTS];
+    private final double[] bearings = new double[POINTS];
+    private final double[] result = new double[2];
+    private final LocalProjection projection = new LocalProjection();
+    private int next;
+
+    @Setup
+    public void setup() {
+        Markers.scatter(latitudes, longitudes, 5000, 1);
+        projection.update(Markers.CENTER_LATITUDE, Markers.CENTER_LONGITUDE);
+        for (int i = 0; i < POINTS; i++) {
+            east[i] = projection.east(latitudes[i], longitudes[i]);
+            north[i] = projection.north(latitudes[i]);
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (POINTS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public double haversineDistance() {
+        int i = nextIndex();
+        return LocationUtils.distance(Markers.CENTER_LATITUDE, latitudes[i], Markers.CENTER_LONGITUDE, longitudes[i]);
+    }
+
+    @Benchmark
+    public double bearing() {
+        int i = nextIndex();
+        return LocationUtils.bearing(Markers.CENTER_LATITUDE, Markers.CENTER_LONGITUDE, latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public double fastDistanceAndBearing() {
+        int i = nextIndex();
+        LocationUtils.distanceAndBearing(Markers.CENTER_LATITUDE, Markers.CENTER_LONGITUDE, latitudes[i], longitudes[i],
+                LocationUtils.Accuracy.FAST, result);
+        return result[0] + result[1];
+    }
+
+    @Benchmark
+    public double haversineDistanceAndBearing() {
+        int i = nextIndex();
+        LocationUtils.distanceAndBearing(Markers.CENTER_LATITUDE, Markers.CENTER_LONGITUDE, latitudes[i], longitudes[i],
+                LocationUtils.Accuracy.HAVERSINE, result);
+        return result[0] + result[1];
+    }
+
+    @Benchmark
+    public double ellipsoidalDistanceAndBearing() {
+        int i = nextIndex();
+        LocationUtils.distanceAndBearing(Markers.CENTER_LATITUDE, Markers.CENTER_LONGITUDE, latitudes[i], longitudes[i],
+                LocationUtils.Accuracy.ELLIPSOIDAL, result);
+        return result[0] + result[1];
+    }
+
+    /**
+     * All points in one call, divide by 1024 for the cost per point
+     */
+    @Benchmark
+    public double autoBatch() {
+        LocationUtils.distancesAndBearings(Markers.CENTER_LATITUDE, Markers.CENTER_LONGITUDE, latitudes, longitudes, POINTS,
+                LocationUtils.Accuracy.AUTO, distances, bearings);
+        return distances[POINTS - 1] + bearings[POINTS - 1];
+    }
+
+    @Benchmark
+    public double projectPoint() {
+        int i = nextIndex();
+        return projection.east(latitudes[i], longitudes[i]) + projection.north(latitudes[i]);
+    }
+
+    @Benchmark
+    public double projectedDistance() {
+        int i = nextIndex();
+        return Math.sqrt(east[i] * east[i] + north[i] * north[i]);
+    }
+
+    @Benchmark
+    public double projectedBearing() {
+        int i = nextIndex();
+        return LocalProjection.bearing(east[i], north[i]);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.arlocation.benchmark;
+
+import java.util.Random;
+
+/**
+ * Synthetic POI datasets around central Wuhan 武汉市中心附近的模拟POI数据
+ */
+final class Markers {
+
+    static final double CENTER_LATITUDE = 30.5180109898;
+    static final double CENTER_LONGITUDE = 114.3541910072;
+
+    private static final double METRES_PER_DEGREE = 111195.0;
+
+    private Markers() {
+    }
+
+    /**
+     * Fill [latitudes] and [longitudes] with points spread evenly over a disc of [radius] metres.
+     */
+    static void scatter(double[] latitudes, double[] longitudes, double radius, long seed) {
+        Random random = new Random(seed);
+        double cos = Math.cos(Math.toRadians(CENTER_LATITUDE));
+        for (int i = 0; i < latitudes.length; i++) {
+            double range = radius * Math.sqrt(random.nextDouble());
+            double angle = random.nextDouble() * 2 * Math.PI;
+            latitudes[i] = CENTER_LATITUDE + range * Math.cos(angle) / METRES_PER_DEGREE;
+            longitudes[i] = CENTER_LONGITUDE + range * Math.sin(angle) / (METRES_PER_DEGREE * cos);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.arlocation.benchmark;
+
+import com.example.arlocation.location.MarkerIndex;
+import com.example.arlocation.location.MarkerPose;
+import com.example.arlocation.location.utils.LocalProjection;
+import com.example.arlocation.location.utils.LocationUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synthetic kernel of one anchor refresh pass: filter markers by render distance and compute the
+ * pose of each one in range. Both methods are hand-written copies of the maths over plain arrays,
+ * not calls into MarkerPlacer, so they compare the two approaches rather than measure the
+ * placer itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark {
+
+    // City-scale dataset, each marker visible within 1.5km 城市范围数据 每个标识1.5公里内可见
+    private static final double DATASET_RADIUS = 15000;
+    private static final int RENDER_WITHIN = 1500;
+    private static final int DISTANCE_LIMIT = 20;
+
+    @Param({"10", "1000", "100000"})
+    public int markerCount;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] east;
+    private double[] north;
+    private final MarkerIndex index = new MarkerIndex();
+    private final LocalProjection projection = new LocalProjection();
+
+    private double deviceLatitude = Markers.CENTER_LATITUDE;
+    private double deviceLongitude = Markers.CENTER_LONGITUDE;
+
+    @Setup
+    public void setup() {
+        latitudes = new double[markerCount];
+        longitudes = new double[markerCount];
+        east = new double[markerCount];
+        north = new double[markerCount];
+        Markers.scatter(latitudes, longitudes, DATASET_RADIUS, 3);
+
+        index.build(latitudes, longitudes, markerCount);
+        projection.update(deviceLatitude, deviceLongitude);
+        for (int i = 0; i < markerCount; i++) {
+            east[i] = projection.east(latitudes[i], longitudes[i]);
+            north[i] = projection.north(latitudes[i]);
+        }
+    }
+
+    /**
+     * Haversine distance and bearing over every marker, as refreshes originally worked.
+     */
+    @Benchmark
+    public void linearHaversine(Blackhole blackhole) {
+        for (int i = 0; i < markerCount; i++) {
+            int markerDistance = (int) Math.round(
+                    LocationUtils.distance(latitudes[i], deviceLatitude, longitudes[i], deviceLongitude));
+            if (markerDistance > RENDER_WITHIN)
+                continue;
+            float gpsBearing = (float) LocationUtils.bearing(deviceLatitude, deviceLongitude, latitudes[i], longitudes[i]);
+            blackhole.consume(MarkerPose.compute(markerDistance, gpsBearing, 0, 0, 0, DISTANCE_LIMIT));
+        }
+    }
+
+    /**
+     * Grid index query plus cached local projection, the approach MarkerPlacer takes.
+     */
+    @Benchmark
+    public void indexedProjected(Blackhole blackhole) {
+        double deviceEast = projection.east(deviceLatitude, deviceLongitude);
+        double deviceNorth = projection.north(deviceLatitude);
+        index.query(deviceLatitude, deviceLongitude, RENDER_WITHIN, id -> {
+            double dEast = east[id] - deviceEast;
+            double dNorth = north[id] - deviceNorth;
+            int markerDistance = (int) Math.round(Math.sqrt(dEast * dEast + dNorth * dNorth));
+            if (markerDistance > RENDER_WITHIN)
+                return;
+            float gpsBearing = (float) LocalProjection.bearing(dEast, dNorth);
+            blackhole.consume(MarkerPose.compute(markerDistance, gpsBearing, 0, 0, 0, DISTANCE_LIMIT));
+        });
+    }
+}